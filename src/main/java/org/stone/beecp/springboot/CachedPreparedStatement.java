@@ -0,0 +1,564 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.*;
+import java.util.Calendar;
+
+/**
+ * Logical prepared statement over a cached physical statement
+ *
+ * @author Chris Liao
+ */
+class CachedPreparedStatement implements PreparedStatement {
+    private static final int Setting_MaxRows = 1;
+    private static final int Setting_QueryTimeout = 1 << 1;
+    private static final int Setting_FetchSize = 1 << 2;
+    private static final int Setting_FetchDirection = 1 << 3;
+    private static final int Setting_MaxFieldSize = 1 << 4;
+    private static final int Setting_EscapeProcessing = 1 << 5;
+
+    final PreparedStatement statement;
+    final StatementCacheKey key;
+    private final StatementCacheConnection connection;
+    private boolean closed;
+
+    //settings changed in use,original values recorded at first change are restored before return to cache
+    private int changedSettings;
+    private int maxRows;
+    private int queryTimeout;
+    private int fetchSize;
+    private int fetchDirection;
+    private int maxFieldSize;
+    private boolean reusable = true;//false after cursor name,close on completion or not poolable set
+    //result sets opened by this logical statement
+    private ResultSet resultSet;
+    private ResultSet generatedKeys;
+
+    CachedPreparedStatement(PreparedStatement statement, StatementCacheConnection connection, StatementCacheKey key) {
+        this.statement = statement;
+        this.connection = connection;
+        this.key = key;
+    }
+
+    //return physical statement to cache
+    public void close() {
+        if (!closed) {
+            closed = true;
+            connection.release(this);
+        }
+    }
+
+    //close opened result sets and clear state of physical statement,false if it can't be reused
+    boolean clearState() throws SQLException {
+        if (resultSet != null) resultSet.close();
+        if (generatedKeys != null) generatedKeys.close();
+        if (!reusable) return false;
+
+        if (changedSettings != 0) {
+            if ((changedSettings & Setting_MaxRows) != 0) statement.setMaxRows(maxRows);
+            if ((changedSettings & Setting_QueryTimeout) != 0) statement.setQueryTimeout(queryTimeout);
+            if ((changedSettings & Setting_FetchSize) != 0) statement.setFetchSize(fetchSize);
+            if ((changedSettings & Setting_FetchDirection) != 0) statement.setFetchDirection(fetchDirection);
+            if ((changedSettings & Setting_MaxFieldSize) != 0) statement.setMaxFieldSize(maxFieldSize);
+            if ((changedSettings & Setting_EscapeProcessing) != 0) statement.setEscapeProcessing(true);//jdbc default
+        }
+        statement.clearParameters();
+        statement.clearWarnings();
+        try {
+            statement.clearBatch();
+        } catch (SQLFeatureNotSupportedException e) {
+            //batch not supported
+        }
+        return true;
+    }
+
+    //return true at first change of a setting
+    private boolean changeSetting(int setting) {
+        if ((changedSettings & setting) != 0) return false;
+        changedSettings |= setting;
+        return true;
+    }
+
+    public boolean isClosed() throws SQLException {
+        return closed || statement.isClosed();
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public ResultSet executeQuery(String sql) throws SQLException {
+        connection.markDirty();
+        return resultSet = statement.executeQuery(sql);
+    }
+
+    public int executeUpdate(String sql) throws SQLException {
+        connection.markDirty();
+        return statement.executeUpdate(sql);
+    }
+
+    public int getMaxFieldSize() throws SQLException {
+        return statement.getMaxFieldSize();
+    }
+
+    public void setMaxFieldSize(int max) throws SQLException {
+        if (changeSetting(Setting_MaxFieldSize)) maxFieldSize = statement.getMaxFieldSize();
+        statement.setMaxFieldSize(max);
+    }
+
+    public int getMaxRows() throws SQLException {
+        return statement.getMaxRows();
+    }
+
+    public void setMaxRows(int max) throws SQLException {
+        if (changeSetting(Setting_MaxRows)) maxRows = statement.getMaxRows();
+        statement.setMaxRows(max);
+    }
+
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        changeSetting(Setting_EscapeProcessing);
+        statement.setEscapeProcessing(enable);
+    }
+
+    public int getQueryTimeout() throws SQLException {
+        return statement.getQueryTimeout();
+    }
+
+    public void setQueryTimeout(int seconds) throws SQLException {
+        if (changeSetting(Setting_QueryTimeout)) queryTimeout = statement.getQueryTimeout();
+        statement.setQueryTimeout(seconds);
+    }
+
+    public void cancel() throws SQLException {
+        statement.cancel();
+    }
+
+    public SQLWarning getWarnings() throws SQLException {
+        return statement.getWarnings();
+    }
+
+    public void clearWarnings() throws SQLException {
+        statement.clearWarnings();
+    }
+
+    public void setCursorName(String name) throws SQLException {
+        reusable = false;
+        statement.setCursorName(name);
+    }
+
+    public boolean execute(String sql) throws SQLException {
+        connection.markDirty();
+        return statement.execute(sql);
+    }
+
+    public ResultSet getResultSet() throws SQLException {
+        return resultSet = statement.getResultSet();
+    }
+
+    public int getUpdateCount() throws SQLException {
+        return statement.getUpdateCount();
+    }
+
+    public boolean getMoreResults() throws SQLException {
+        return statement.getMoreResults();
+    }
+
+    public void setFetchDirection(int direction) throws SQLException {
+        if (changeSetting(Setting_FetchDirection)) fetchDirection = statement.getFetchDirection();
+        statement.setFetchDirection(direction);
+    }
+
+    public int getFetchDirection() throws SQLException {
+        return statement.getFetchDirection();
+    }
+
+    public void setFetchSize(int rows) throws SQLException {
+        if (changeSetting(Setting_FetchSize)) fetchSize = statement.getFetchSize();
+        statement.setFetchSize(rows);
+    }
+
+    public int getFetchSize() throws SQLException {
+        return statement.getFetchSize();
+    }
+
+    public int getResultSetConcurrency() throws SQLException {
+        return statement.getResultSetConcurrency();
+    }
+
+    public int getResultSetType() throws SQLException {
+        return statement.getResultSetType();
+    }
+
+    public void addBatch(String sql) throws SQLException {
+        statement.addBatch(sql);
+    }
+
+    public void clearBatch() throws SQLException {
+        statement.clearBatch();
+    }
+
+    public int[] executeBatch() throws SQLException {
+        connection.markDirty();
+        return statement.executeBatch();
+    }
+
+    public boolean getMoreResults(int current) throws SQLException {
+        return statement.getMoreResults(current);
+    }
+
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return generatedKeys = statement.getGeneratedKeys();
+    }
+
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        connection.markDirty();
+        return statement.executeUpdate(sql, autoGeneratedKeys);
+    }
+
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        connection.markDirty();
+        return statement.executeUpdate(sql, columnIndexes);
+    }
+
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        connection.markDirty();
+        return statement.executeUpdate(sql, columnNames);
+    }
+
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        connection.markDirty();
+        return statement.execute(sql, autoGeneratedKeys);
+    }
+
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        connection.markDirty();
+        return statement.execute(sql, columnIndexes);
+    }
+
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        connection.markDirty();
+        return statement.execute(sql, columnNames);
+    }
+
+    public int getResultSetHoldability() throws SQLException {
+        return statement.getResultSetHoldability();
+    }
+
+    public void setPoolable(boolean poolable) throws SQLException {
+        if (!poolable) reusable = false;
+        statement.setPoolable(poolable);
+    }
+
+    public boolean isPoolable() throws SQLException {
+        return statement.isPoolable();
+    }
+
+    public void closeOnCompletion() throws SQLException {
+        reusable = false;
+        statement.closeOnCompletion();
+    }
+
+    public boolean isCloseOnCompletion() throws SQLException {
+        return statement.isCloseOnCompletion();
+    }
+
+    public long getLargeUpdateCount() throws SQLException {
+        return statement.getLargeUpdateCount();
+    }
+
+    public void setLargeMaxRows(long max) throws SQLException {
+        if (changeSetting(Setting_MaxRows)) maxRows = statement.getMaxRows();
+        statement.setLargeMaxRows(max);
+    }
+
+    public long getLargeMaxRows() throws SQLException {
+        return statement.getLargeMaxRows();
+    }
+
+    public long[] executeLargeBatch() throws SQLException {
+        connection.markDirty();
+        return statement.executeLargeBatch();
+    }
+
+    public long executeLargeUpdate(String sql) throws SQLException {
+        connection.markDirty();
+        return statement.executeLargeUpdate(sql);
+    }
+
+    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        connection.markDirty();
+        return statement.executeLargeUpdate(sql, autoGeneratedKeys);
+    }
+
+    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        connection.markDirty();
+        return statement.executeLargeUpdate(sql, columnIndexes);
+    }
+
+    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+        connection.markDirty();
+        return statement.executeLargeUpdate(sql, columnNames);
+    }
+
+    public ResultSet executeQuery() throws SQLException {
+        connection.markDirty();
+        return resultSet = statement.executeQuery();
+    }
+
+    public int executeUpdate() throws SQLException {
+        connection.markDirty();
+        return statement.executeUpdate();
+    }
+
+    public void setNull(int parameterIndex, int sqlType) throws SQLException {
+        statement.setNull(parameterIndex, sqlType);
+    }
+
+    public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+        statement.setBoolean(parameterIndex, x);
+    }
+
+    public void setByte(int parameterIndex, byte x) throws SQLException {
+        statement.setByte(parameterIndex, x);
+    }
+
+    public void setShort(int parameterIndex, short x) throws SQLException {
+        statement.setShort(parameterIndex, x);
+    }
+
+    public void setInt(int parameterIndex, int x) throws SQLException {
+        statement.setInt(parameterIndex, x);
+    }
+
+    public void setLong(int parameterIndex, long x) throws SQLException {
+        statement.setLong(parameterIndex, x);
+    }
+
+    public void setFloat(int parameterIndex, float x) throws SQLException {
+        statement.setFloat(parameterIndex, x);
+    }
+
+    public void setDouble(int parameterIndex, double x) throws SQLException {
+        statement.setDouble(parameterIndex, x);
+    }
+
+    public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+        statement.setBigDecimal(parameterIndex, x);
+    }
+
+    public void setString(int parameterIndex, String x) throws SQLException {
+        statement.setString(parameterIndex, x);
+    }
+
+    public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+        statement.setBytes(parameterIndex, x);
+    }
+
+    public void setDate(int parameterIndex, Date x) throws SQLException {
+        statement.setDate(parameterIndex, x);
+    }
+
+    public void setTime(int parameterIndex, Time x) throws SQLException {
+        statement.setTime(parameterIndex, x);
+    }
+
+    public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+        statement.setTimestamp(parameterIndex, x);
+    }
+
+    public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        statement.setAsciiStream(parameterIndex, x, length);
+    }
+
+    public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        statement.setUnicodeStream(parameterIndex, x, length);
+    }
+
+    public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        statement.setBinaryStream(parameterIndex, x, length);
+    }
+
+    public void clearParameters() throws SQLException {
+        statement.clearParameters();
+    }
+
+    public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+        statement.setObject(parameterIndex, x, targetSqlType);
+    }
+
+    public void setObject(int parameterIndex, Object x) throws SQLException {
+        statement.setObject(parameterIndex, x);
+    }
+
+    public boolean execute() throws SQLException {
+        connection.markDirty();
+        return statement.execute();
+    }
+
+    public void addBatch() throws SQLException {
+        statement.addBatch();
+    }
+
+    public void setCharacterStream(int parameterIndex, Reader reader, int length) throws SQLException {
+        statement.setCharacterStream(parameterIndex, reader, length);
+    }
+
+    public void setRef(int parameterIndex, Ref x) throws SQLException {
+        statement.setRef(parameterIndex, x);
+    }
+
+    public void setBlob(int parameterIndex, Blob x) throws SQLException {
+        statement.setBlob(parameterIndex, x);
+    }
+
+    public void setClob(int parameterIndex, Clob x) throws SQLException {
+        statement.setClob(parameterIndex, x);
+    }
+
+    public void setArray(int parameterIndex, Array x) throws SQLException {
+        statement.setArray(parameterIndex, x);
+    }
+
+    public ResultSetMetaData getMetaData() throws SQLException {
+        return statement.getMetaData();
+    }
+
+    public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
+        statement.setDate(parameterIndex, x, cal);
+    }
+
+    public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
+        statement.setTime(parameterIndex, x, cal);
+    }
+
+    public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
+        statement.setTimestamp(parameterIndex, x, cal);
+    }
+
+    public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+        statement.setNull(parameterIndex, sqlType, typeName);
+    }
+
+    public void setURL(int parameterIndex, URL x) throws SQLException {
+        statement.setURL(parameterIndex, x);
+    }
+
+    public ParameterMetaData getParameterMetaData() throws SQLException {
+        return statement.getParameterMetaData();
+    }
+
+    public void setRowId(int parameterIndex, RowId x) throws SQLException {
+        statement.setRowId(parameterIndex, x);
+    }
+
+    public void setNString(int parameterIndex, String value) throws SQLException {
+        statement.setNString(parameterIndex, value);
+    }
+
+    public void setNCharacterStream(int parameterIndex, Reader value, long length) throws SQLException {
+        statement.setNCharacterStream(parameterIndex, value, length);
+    }
+
+    public void setNClob(int parameterIndex, NClob value) throws SQLException {
+        statement.setNClob(parameterIndex, value);
+    }
+
+    public void setClob(int parameterIndex, Reader reader, long length) throws SQLException {
+        statement.setClob(parameterIndex, reader, length);
+    }
+
+    public void setBlob(int parameterIndex, InputStream inputStream, long length) throws SQLException {
+        statement.setBlob(parameterIndex, inputStream, length);
+    }
+
+    public void setNClob(int parameterIndex, Reader reader, long length) throws SQLException {
+        statement.setNClob(parameterIndex, reader, length);
+    }
+
+    public void setSQLXML(int parameterIndex, SQLXML xmlObject) throws SQLException {
+        statement.setSQLXML(parameterIndex, xmlObject);
+    }
+
+    public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
+        statement.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+    }
+
+    public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
+        statement.setAsciiStream(parameterIndex, x, length);
+    }
+
+    public void setBinaryStream(int parameterIndex, InputStream x, long length) throws SQLException {
+        statement.setBinaryStream(parameterIndex, x, length);
+    }
+
+    public void setCharacterStream(int parameterIndex, Reader reader, long length) throws SQLException {
+        statement.setCharacterStream(parameterIndex, reader, length);
+    }
+
+    public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+        statement.setAsciiStream(parameterIndex, x);
+    }
+
+    public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+        statement.setBinaryStream(parameterIndex, x);
+    }
+
+    public void setCharacterStream(int parameterIndex, Reader reader) throws SQLException {
+        statement.setCharacterStream(parameterIndex, reader);
+    }
+
+    public void setNCharacterStream(int parameterIndex, Reader value) throws SQLException {
+        statement.setNCharacterStream(parameterIndex, value);
+    }
+
+    public void setClob(int parameterIndex, Reader reader) throws SQLException {
+        statement.setClob(parameterIndex, reader);
+    }
+
+    public void setBlob(int parameterIndex, InputStream inputStream) throws SQLException {
+        statement.setBlob(parameterIndex, inputStream);
+    }
+
+    public void setNClob(int parameterIndex, Reader reader) throws SQLException {
+        statement.setNClob(parameterIndex, reader);
+    }
+
+    public void setObject(int parameterIndex, Object x, SQLType targetSqlType, int scaleOrLength) throws SQLException {
+        statement.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+    }
+
+    public void setObject(int parameterIndex, Object x, SQLType targetSqlType) throws SQLException {
+        statement.setObject(parameterIndex, x, targetSqlType);
+    }
+
+    public long executeLargeUpdate() throws SQLException {
+        connection.markDirty();
+        return statement.executeLargeUpdate();
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return statement.unwrap(iface);
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return statement.isWrapperFor(iface);
+    }
+}
@@ -54,13 +54,19 @@ public class CombineDataSourceAspect {
         MethodSignature methodSignature = (MethodSignature) joinPoint.getSignature();
         DsId annotation = methodSignature.getMethod().getAnnotation(DsId.class);
         String dsId = annotation.value();
+        //value-less annotation with read or shard key only routes inside group datasource,current datasource unchanged
+        if (isBlank(dsId) && (annotation.read() || !isBlank(annotation.shardKey()))) return joinPoint.proceed();
+        if (isBlank(dsId)) dsId = primaryDsId;
 
+        SpringBootDataSource previous = dsThreadLocal.get();
         try {
-            if (isBlank(dsId)) dsId = primaryDsId;
             dsThreadLocal.set(SpringBootDataSourceManager.getInstance().getSpringBootDataSource(dsId));
             return joinPoint.proceed();
-        } finally {
-            if (!isBlank(dsId)) dsThreadLocal.remove();
+        } finally {//restore datasource of outer method
+            if (previous != null)
+                dsThreadLocal.set(previous);
+            else
+                dsThreadLocal.remove();
         }
     }
     //***************************************************************************************************************//
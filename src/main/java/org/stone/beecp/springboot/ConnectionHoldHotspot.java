@@ -0,0 +1,66 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.stone.beecp.springboot.util.LatencyHistogram.toMillis;
+
+/**
+ * Borrow call stack holding connections over threshold
+ *
+ * @author Chris Liao
+ */
+public class ConnectionHoldHotspot {
+    private final String dsId;
+    private final String[] stack;
+    private final LongAdder count = new LongAdder();
+    private final AtomicLong maxHoldTimeNanos = new AtomicLong();
+    private volatile long lastTimeMs;
+
+    ConnectionHoldHotspot(String dsId, String[] stack) {
+        this.dsId = dsId;
+        this.stack = stack;
+    }
+
+    void update(long holdTimeNanos, boolean newHold) {
+        if (newHold) count.increment();
+        long cur;
+        while (holdTimeNanos > (cur = maxHoldTimeNanos.get()) && !maxHoldTimeNanos.compareAndSet(cur, holdTimeNanos)) ;
+        lastTimeMs = System.currentTimeMillis();
+    }
+
+    public String getDsId() {
+        return dsId;
+    }
+
+    public String[] getStack() {
+        return stack;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMaxHoldTimeMs() {
+        return toMillis(maxHoldTimeNanos.get());
+    }
+
+    public String getLastTime() {
+        return SpringBootDataSourceUtil.formatTime(lastTimeMs);
+    }
+}
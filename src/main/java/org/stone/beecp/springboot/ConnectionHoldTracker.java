@@ -0,0 +1,136 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.stone.beecp.springboot.jfr.JfrEvents;
+import org.stone.beecp.springboot.util.LatencyHistogram;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection hold time tracker of a datasource,hold time of every borrowed connection is recorded,
+ * borrow call stacks are sampled and aggregated as hotspots when they hold connections over threshold.
+ *
+ * @author Chris Liao
+ */
+final class ConnectionHoldTracker {
+    private static final int Max_Hotspot_Size = 100;
+    private static final int Max_Stack_Depth = 16;
+    private static final String Skipped_Frame_Prefix = "org.stone.beecp.";
+
+    private final String dsId;
+    private final long thresholdNanos;
+    private final int stackSampleInterval;
+    private final LatencyHistogram holdHistogram = new LatencyHistogram();
+    private final LongAdder overThresholdCount = new LongAdder();
+    private final Set<HoldTrackedConnection> sampledSet = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<String, ConnectionHoldHotspot> hotspotMap = new ConcurrentHashMap<>(16);
+
+    ConnectionHoldTracker(String dsId, long thresholdNanos, int stackSampleInterval) {
+        this.dsId = dsId;
+        this.thresholdNanos = thresholdNanos;
+        this.stackSampleInterval = stackSampleInterval;
+    }
+
+    LatencyHistogram getHoldHistogram() {
+        return holdHistogram;
+    }
+
+    long getOverThresholdCount() {
+        return overThresholdCount.sum();
+    }
+
+    List<ConnectionHoldHotspot> getHotspotList() {
+        return new ArrayList<>(hotspotMap.values());
+    }
+
+    Connection track(Connection con) {
+        boolean sampled = stackSampleInterval <= 1 || ThreadLocalRandom.current().nextInt(stackSampleInterval) == 0;
+        HoldTrackedConnection holdCon = new HoldTrackedConnection(con, this, sampled ? new Throwable().getStackTrace() : null);
+        if (sampled) sampledSet.add(holdCon);
+        return holdCon;
+    }
+
+    void release(HoldTrackedConnection con) {
+        long holdTime = System.nanoTime() - con.borrowNanoTime;
+        holdHistogram.record(holdTime);
+        boolean overThreshold = holdTime >= thresholdNanos;
+        if (overThreshold) overThresholdCount.increment();
+        JfrEvents.commitConnectionHold(con.jfrEvent, dsId);
+
+        if (con.borrowStack != null) {
+            sampledSet.remove(con);
+            if (overThreshold) addHotspot(con, holdTime);
+        }
+    }
+
+    //report sampled connections still held over threshold,connections closed without logical close(recycled by pool) are removed
+    void scan() {
+        long now = System.nanoTime();
+        Iterator<HoldTrackedConnection> iterator = sampledSet.iterator();
+        while (iterator.hasNext()) {
+            HoldTrackedConnection con = iterator.next();
+            if (isClosed(con)) {
+                iterator.remove();
+                continue;
+            }
+            long holdTime = now - con.borrowNanoTime;
+            if (holdTime >= thresholdNanos) addHotspot(con, holdTime);
+        }
+    }
+
+    private static boolean isClosed(Connection con) {
+        try {
+            return con.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    //a connection is counted once,later calls only update its hold time
+    private void addHotspot(HoldTrackedConnection con, long holdTime) {
+        boolean counted = con.reported;
+        con.reported = true;
+
+        String[] stack = filterStack(con.borrowStack);
+        String stackKey = String.join("\n", stack);
+        ConnectionHoldHotspot hotspot = hotspotMap.get(stackKey);
+        if (hotspot == null) {
+            if (hotspotMap.size() >= Max_Hotspot_Size) return;
+            hotspot = hotspotMap.computeIfAbsent(stackKey, k -> new ConnectionHoldHotspot(dsId, stack));
+        }
+        hotspot.update(holdTime, !counted);
+    }
+
+    //frames of datasource and pool are skipped
+    private static String[] filterStack(StackTraceElement[] elements) {
+        int begin = 0;
+        while (begin < elements.length && elements[begin].getClassName().startsWith(Skipped_Frame_Prefix)) begin++;
+        int size = Math.min(Max_Stack_Depth, elements.length - begin);
+        String[] stack = new String[size];
+        for (int i = 0; i < size; i++)
+            stack[i] = elements[begin + i].toString();
+        return stack;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker of a datasource,trips to open on consecutive borrow timeouts or fatal SQLExceptions(configured fatal
+ * codes,states and connection exception states '08xxx'),borrows fail fast or fail over while open,after open time
+ * one borrow is let through as half-open probe,closed on its success and reopened on its failure,results of borrows
+ * started before the trip don't change half-open state.
+ *
+ * @author Chris Liao
+ */
+final class DataSourceCircuitBreaker {
+    static final int State_Closed = 0;
+    static final int State_Open = 1;
+    static final int State_HalfOpen = 2;
+    static final int Acquire_Rejected = 0;
+    static final int Acquire_Passed = 1;
+    static final int Acquire_Probe = 2;//the only borrow let through in half-open state
+    private static final String[] State_Names = {"closed", "open", "halfOpen"};
+    private static final String Connection_Exception_State_Prefix = "08";
+    private static final Logger Log = LoggerFactory.getLogger(DataSourceCircuitBreaker.class);
+
+    private final String dsId;
+    private final int failureThreshold;
+    private final long openTimeNanos;
+    private final List<Integer> fatalCodeList;
+    private final List<String> fatalStateList;
+    private final String failoverDsId;//null when fail fast
+
+    private final AtomicInteger state = new AtomicInteger(State_Closed);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedTime;//written before state moves to open,so open state is never seen with a stale time
+    private final LongAdder tripCount = new LongAdder();
+    private final LongAdder fastFailCount = new LongAdder();
+    private final LongAdder failoverCount = new LongAdder();
+
+    DataSourceCircuitBreaker(String dsId, int failureThreshold, long openTimeMs, List<Integer> fatalCodeList,
+                             List<String> fatalStateList, String failoverDsId) {
+        this.dsId = dsId;
+        this.failureThreshold = failureThreshold;
+        this.openTimeNanos = TimeUnit.MILLISECONDS.toNanos(openTimeMs);
+        this.fatalCodeList = fatalCodeList;
+        this.fatalStateList = fatalStateList;
+        this.failoverDsId = failoverDsId;
+    }
+
+    //***************************************************************************************************************//
+    //                                1: state methods(3)                                                            //
+    //***************************************************************************************************************//
+    //only one borrow passes as probe after open time
+    int tryAcquire() {
+        int currentState = state.get();
+        if (currentState == State_Closed) return Acquire_Passed;
+        return currentState == State_Open && System.nanoTime() - openedTime >= openTimeNanos
+                && state.compareAndSet(State_Open, State_HalfOpen) ? Acquire_Probe : Acquire_Rejected;
+    }
+
+    void onSuccess(boolean probe) {
+        consecutiveFailures.set(0);
+        if (probe && state.compareAndSet(State_HalfOpen, State_Closed))
+            Log.info("DataSource({})-circuit breaker closed", dsId);
+    }
+
+    //a time written by a losing thread is only a little later than real open time,so open period is never shortened
+    void onFailure(Throwable e, boolean probe) {
+        if (probe) {
+            openedTime = System.nanoTime();
+            if (state.compareAndSet(State_HalfOpen, State_Open))
+                Log.warn("DataSource({})-circuit breaker reopened by failed probe:{}", dsId, String.valueOf(e));
+        } else if (state.get() == State_Closed && consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedTime = System.nanoTime();
+            if (state.compareAndSet(State_Closed, State_Open)) {
+                tripCount.increment();
+                Log.warn("DataSource({})-circuit breaker opened after {} consecutive failures,last:{}", dsId, failureThreshold, String.valueOf(e));
+            }
+        }
+    }
+
+    //***************************************************************************************************************//
+    //                                2: check methods(2)                                                            //
+    //***************************************************************************************************************//
+    boolean isFatal(SQLException e) {
+        for (SQLException cause = e; cause != null; cause = cause.getNextException()) {
+            String sqlState = cause.getSQLState();
+            if (sqlState != null && (sqlState.startsWith(Connection_Exception_State_Prefix) || fatalStateList.contains(sqlState)))
+                return true;
+            if (fatalCodeList.contains(cause.getErrorCode())) return true;
+        }
+        return false;
+    }
+
+    SQLException createOpenException() {
+        return new SQLTransientConnectionException("DataSource(" + dsId + ")-circuit breaker is open");
+    }
+
+    //***************************************************************************************************************//
+    //                                3: statistics methods(6)                                                       //
+    //***************************************************************************************************************//
+    String getFailoverDsId() {
+        return failoverDsId;
+    }
+
+    String getStateName() {
+        return State_Names[state.get()];
+    }
+
+    void recordFastFail() {
+        fastFailCount.increment();
+    }
+
+    void recordFailover() {
+        failoverCount.increment();
+    }
+
+    long getTripCount() {
+        return tripCount.sum();
+    }
+
+    long getFastFailCount() {
+        return fastFailCount.sum();
+    }
+
+    long getFailoverCount() {
+        return failoverCount.sum();
+    }
+}
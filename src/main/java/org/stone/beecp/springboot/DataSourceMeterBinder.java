@@ -0,0 +1,83 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.stone.beecp.BeeConnectionPoolMonitorVo;
+import org.stone.beecp.springboot.statement.StatementTraceContext;
+import org.stone.beecp.springboot.util.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer binder of datasources,meters are tagged by dsId.Pool gauges read cached pool snapshot,
+ * timers are functions over borrow,hold,execution and transaction histograms(counts restart from zero
+ * when execution histogram is reset by period).
+ *
+ * @author Chris Liao
+ */
+public class DataSourceMeterBinder implements MeterBinder {
+    private static final String Tag_DsId = "dsId";
+
+    public void bindTo(MeterRegistry registry) {
+        SpringBootDataSourceManager.getInstance().addDataSourceListener(ds -> bindDataSource(ds, registry));
+    }
+
+    private static void bindDataSource(SpringBootDataSource ds, MeterRegistry registry) {
+        String dsId = ds.getDsId();
+        //1:pool gauges
+        bindPoolGauge(ds, registry, "beecp.pool.max", "Max size of connection pool", BeeConnectionPoolMonitorVo::getPoolMaxSize);
+        bindPoolGauge(ds, registry, "beecp.pool.idle", "Idle connections in pool", BeeConnectionPoolMonitorVo::getIdleSize);
+        bindPoolGauge(ds, registry, "beecp.pool.active", "Borrowed connections of pool", BeeConnectionPoolMonitorVo::getUsingSize);
+        bindPoolGauge(ds, registry, "beecp.pool.pending", "Threads waiting for connections in pool", vo -> vo.getSemaphoreWaitingSize() + vo.getTransferWaitingSize());
+
+        //2:borrow and hold
+        bindTimer(registry, dsId, "beecp.connection.borrow", "Connection borrow wait time", ds.getBorrowHistogram());
+        FunctionCounter.builder("beecp.connection.borrow.timeouts", ds, SpringBootDataSource::getBorrowTimeoutCount)
+                .tag(Tag_DsId, dsId).description("Connection borrow timeouts").register(registry);
+        ConnectionHoldTracker holdTracker = ds.getHoldTracker();
+        if (holdTracker != null)
+            bindTimer(registry, dsId, "beecp.connection.hold", "Connection hold time from borrow to close", holdTracker.getHoldHistogram());
+
+        //3:sql execution and transaction
+        StatementTraceContext context = ds.getTraceContext();
+        if (context != null) {
+            bindTimer(registry, dsId, "beecp.statement.execute", "Sql execution time", context.getExecHistogram());
+            FunctionCounter.builder("beecp.statement.errors", context, StatementTraceContext::getExecErrorCount)
+                    .tag(Tag_DsId, dsId).description("Failed sql executions").register(registry);
+            bindTimer(registry, dsId, "beecp.transaction", "Transaction time from first statement to commit or rollback",
+                    context.getTransactionStat().getDurationHistogram());
+        }
+    }
+
+    private static void bindPoolGauge(SpringBootDataSource ds, MeterRegistry registry, String name, String description,
+                                      ToDoubleFunction<BeeConnectionPoolMonitorVo> getter) {
+        Gauge.builder(name, ds, d -> {
+            BeeConnectionPoolMonitorVo vo = d.getCachedPoolMonitorVo();
+            return vo != null ? getter.applyAsDouble(vo) : Double.NaN;
+        }).tag(Tag_DsId, ds.getDsId()).description(description).register(registry);
+    }
+
+    private static void bindTimer(MeterRegistry registry, String dsId, String name, String description, LatencyHistogram histogram) {
+        FunctionTimer.builder(name, histogram, LatencyHistogram::getCount, LatencyHistogram::getSumNanos, TimeUnit.NANOSECONDS)
+                .tag(Tag_DsId, dsId).description(description).register(registry);
+    }
+}
@@ -16,7 +16,9 @@
 package org.stone.beecp.springboot;
 
 import org.stone.beecp.springboot.monitor.DataSourceMonitor;
+import org.stone.beecp.springboot.statement.StatementJournal;
 import org.stone.beecp.springboot.statement.StatementTraceAlert;
+import org.stone.beecp.springboot.statement.StatementTraceSampler;
 
 import java.util.concurrent.TimeUnit;
 
@@ -27,6 +29,8 @@ import static org.stone.tools.CommonUtil.isBlank;
  *
  * spring.datasource.monitor-userId=admin
  * spring.datasource.monitor-password=admin
+ * spring.datasource.monitor-metrics-anonymous=false
+ * spring.datasource.monitor-jmx=false
  *
  * spring.datasource.sql-trace=true
  * spring.datasource.sql-show=true
@@ -35,6 +39,31 @@ import static org.stone.tools.CommonUtil.isBlank;
  * spring.datasource.sql-trace-timeout=60000
  * spring.datasource.sql-exec-alert-action=xxxxx
  * spring.datasource.sql-trace-timeout-scan-period=18000
+ * spring.datasource.sql-trace-sample-mode=rate
+ * spring.datasource.sql-trace-sample-rate=0.5
+ * spring.datasource.sql-trace-tail-sample-interval=100
+ * spring.datasource.sql-stat-max-size=1000
+ * spring.datasource.sql-top-size=20
+ * spring.datasource.sql-top-window-time=60000
+ * spring.datasource.sql-top-window-count=5
+ * spring.datasource.sql-trace-result-set=false
+ * spring.datasource.sql-exec-histogram-reset-period=0
+ * spring.datasource.sql-trace-parameter-capture=false
+ * spring.datasource.sql-trace-parameter-max-length=100
+ * spring.datasource.sql-trace-parameter-max-bytes=2048
+ * spring.datasource.sql-trace-parameter-redact-names=password,passwd,pwd,secret,token
+ * spring.datasource.sql-journal-dir=/data/beecp/journal
+ * spring.datasource.sql-journal-file-size=16777216
+ * spring.datasource.sql-journal-max-files=8
+ * spring.datasource.sql-journal-queue-size=4096
+ *
+ * spring.datasource.connection-hold-trace=true
+ * spring.datasource.connection-hold-time-threshold=10000
+ * spring.datasource.connection-hold-stack-sample-interval=10
+ *
+ * spring.datasource.request-trace=false
+ * spring.datasource.request-stat-max-size=200
+ * spring.datasource.request-repeat-threshold=10
  *
  * spring.datasource.redis-host=192.168.1.1
  * spring.datasource.redis-port=6379
@@ -57,13 +86,44 @@ public class DataSourceMonitorConfig {
     private long sqlTraceTimeout = TimeUnit.MINUTES.toMillis(3);
     private long sqlTraceTimeoutScanPeriod = TimeUnit.MINUTES.toMillis(3);
     private StatementTraceAlert sqlExecAlertAction;
+    private String sqlTraceSampleMode = StatementTraceSampler.Mode_Rate;//rate,tail
+    private double sqlTraceSampleRate = 1.0D;//default rate of all datasources,can be overridden by datasource
+    private int sqlTraceTailSampleInterval = 100;//tail mode:keep one from every N normal executions
+    private int sqlStatMaxSize = 1000;//max sql fingerprints of statistics per datasource
+    private int sqlTopSize = 20;//top sql fingerprints per datasource by count and by time,zero means off
+    private long sqlTopWindowTime = TimeUnit.MINUTES.toMillis(1);
+    private int sqlTopWindowCount = 5;//top sql are over last N windows
+    private boolean sqlTraceResultSet;//wrap result sets of traced queries to record fetch
+    private long sqlExecHistogramResetPeriod;//reset period of datasource execution histogram,zero means never
+    private boolean sqlTraceParameterCapture;//capture parameters of prepared statements for slow or failed executions
+    private int sqlTraceParameterMaxLength = 100;//max characters of a rendered parameter value
+    private int sqlTraceParameterMaxBytes = 2048;//max bytes of rendered parameters per trace
+    private String sqlTraceParameterRedactNames = "password,passwd,pwd,secret,token";//values of matched column names are masked
+    private String sqlJournalDir;//directory of slow and failed sql journal files,journal is off when blank
+    private int sqlJournalFileSize = 16 * 1024 * 1024;//bytes of a journal file,min 1MB
+    private int sqlJournalMaxFiles = 8;
+    private int sqlJournalQueueSize = 4096;//traces beyond are dropped
 
     //*********************************sql trace config end***********************************************************//
 
+    //*********************************connection hold config begin **************************************************//
+    private boolean connectionHoldTrace;
+    private long connectionHoldTimeThreshold = TimeUnit.SECONDS.toMillis(10);
+    private int connectionHoldStackSampleInterval = 10;//capture borrow stack of one from every N borrows
+    //*********************************connection hold config end****************************************************//
+
+    //*********************************request trace config begin ****************************************************//
+    private boolean requestTrace;//register a filter to attribute database time to http endpoints
+    private int requestStatMaxSize = 200;//max endpoints of statistics
+    private int requestRepeatThreshold = 10;//a request is flagged as N+1 when a fingerprint repeats N times in it
+    //*********************************request trace config end******************************************************//
+
     //*********************************monitor config begin **********************************************************//
     private String consoleUserId;
     private String consolePassword;
     private String monitorLoggedInTagName = DataSourceMonitor.class.getName();
+    private boolean monitorMetricsAnonymous;//allow prometheus scrape of '/beecp/metrics' without login
+    private boolean monitorJmx;//register a jmx bean per datasource
     //*********************************monitor config end************************************************************//
 
     //*********************************redis config begin ************************************************************//
@@ -139,6 +199,212 @@ public class DataSourceMonitorConfig {
         if (sqlExecAlertAction != null) this.sqlExecAlertAction = sqlExecAlertAction;
     }
 
+    public String getSqlTraceSampleMode() {
+        return sqlTraceSampleMode;
+    }
+
+    public void setSqlTraceSampleMode(String sqlTraceSampleMode) {
+        if (StatementTraceSampler.Mode_Rate.equalsIgnoreCase(sqlTraceSampleMode) || StatementTraceSampler.Mode_Tail.equalsIgnoreCase(sqlTraceSampleMode))
+            this.sqlTraceSampleMode = sqlTraceSampleMode.toLowerCase();
+    }
+
+    public double getSqlTraceSampleRate() {
+        return sqlTraceSampleRate;
+    }
+
+    public void setSqlTraceSampleRate(double sqlTraceSampleRate) {
+        if (sqlTraceSampleRate >= 0 && sqlTraceSampleRate <= 1)
+            this.sqlTraceSampleRate = sqlTraceSampleRate;
+    }
+
+    public int getSqlTraceTailSampleInterval() {
+        return sqlTraceTailSampleInterval;
+    }
+
+    public void setSqlTraceTailSampleInterval(int sqlTraceTailSampleInterval) {
+        if (sqlTraceTailSampleInterval > 0)
+            this.sqlTraceTailSampleInterval = sqlTraceTailSampleInterval;
+    }
+
+    public int getSqlStatMaxSize() {
+        return sqlStatMaxSize;
+    }
+
+    public void setSqlStatMaxSize(int sqlStatMaxSize) {
+        if (sqlStatMaxSize > 0) this.sqlStatMaxSize = sqlStatMaxSize;
+    }
+
+    public int getSqlTopSize() {
+        return sqlTopSize;
+    }
+
+    public void setSqlTopSize(int sqlTopSize) {
+        if (sqlTopSize >= 0) this.sqlTopSize = sqlTopSize;
+    }
+
+    public long getSqlTopWindowTime() {
+        return sqlTopWindowTime;
+    }
+
+    public void setSqlTopWindowTime(long sqlTopWindowTime) {
+        if (sqlTopWindowTime > 0) this.sqlTopWindowTime = sqlTopWindowTime;
+    }
+
+    public int getSqlTopWindowCount() {
+        return sqlTopWindowCount;
+    }
+
+    public void setSqlTopWindowCount(int sqlTopWindowCount) {
+        if (sqlTopWindowCount > 0) this.sqlTopWindowCount = sqlTopWindowCount;
+    }
+
+    public boolean isSqlTraceResultSet() {
+        return sqlTraceResultSet;
+    }
+
+    public void setSqlTraceResultSet(boolean sqlTraceResultSet) {
+        this.sqlTraceResultSet = sqlTraceResultSet;
+    }
+
+    public long getSqlExecHistogramResetPeriod() {
+        return sqlExecHistogramResetPeriod;
+    }
+
+    public void setSqlExecHistogramResetPeriod(long sqlExecHistogramResetPeriod) {
+        if (sqlExecHistogramResetPeriod >= 0)
+            this.sqlExecHistogramResetPeriod = sqlExecHistogramResetPeriod;
+    }
+
+    public boolean isSqlTraceParameterCapture() {
+        return sqlTraceParameterCapture;
+    }
+
+    public void setSqlTraceParameterCapture(boolean sqlTraceParameterCapture) {
+        this.sqlTraceParameterCapture = sqlTraceParameterCapture;
+    }
+
+    public int getSqlTraceParameterMaxLength() {
+        return sqlTraceParameterMaxLength;
+    }
+
+    public void setSqlTraceParameterMaxLength(int sqlTraceParameterMaxLength) {
+        if (sqlTraceParameterMaxLength > 0) this.sqlTraceParameterMaxLength = sqlTraceParameterMaxLength;
+    }
+
+    public int getSqlTraceParameterMaxBytes() {
+        return sqlTraceParameterMaxBytes;
+    }
+
+    public void setSqlTraceParameterMaxBytes(int sqlTraceParameterMaxBytes) {
+        if (sqlTraceParameterMaxBytes > 0) this.sqlTraceParameterMaxBytes = sqlTraceParameterMaxBytes;
+    }
+
+    public String getSqlTraceParameterRedactNames() {
+        return sqlTraceParameterRedactNames;
+    }
+
+    public void setSqlTraceParameterRedactNames(String sqlTraceParameterRedactNames) {
+        this.sqlTraceParameterRedactNames = sqlTraceParameterRedactNames;
+    }
+
+    public String getSqlJournalDir() {
+        return sqlJournalDir;
+    }
+
+    public void setSqlJournalDir(String sqlJournalDir) {
+        this.sqlJournalDir = sqlJournalDir;
+    }
+
+    public int getSqlJournalFileSize() {
+        return sqlJournalFileSize;
+    }
+
+    public void setSqlJournalFileSize(int sqlJournalFileSize) {
+        if (sqlJournalFileSize >= StatementJournal.Min_File_Size) this.sqlJournalFileSize = sqlJournalFileSize;
+    }
+
+    public int getSqlJournalMaxFiles() {
+        return sqlJournalMaxFiles;
+    }
+
+    public void setSqlJournalMaxFiles(int sqlJournalMaxFiles) {
+        if (sqlJournalMaxFiles > 0) this.sqlJournalMaxFiles = sqlJournalMaxFiles;
+    }
+
+    public int getSqlJournalQueueSize() {
+        return sqlJournalQueueSize;
+    }
+
+    public void setSqlJournalQueueSize(int sqlJournalQueueSize) {
+        if (sqlJournalQueueSize > 0) this.sqlJournalQueueSize = sqlJournalQueueSize;
+    }
+
+    public boolean isMonitorMetricsAnonymous() {
+        return monitorMetricsAnonymous;
+    }
+
+    public void setMonitorMetricsAnonymous(boolean monitorMetricsAnonymous) {
+        this.monitorMetricsAnonymous = monitorMetricsAnonymous;
+    }
+
+    public boolean isMonitorJmx() {
+        return monitorJmx;
+    }
+
+    public void setMonitorJmx(boolean monitorJmx) {
+        this.monitorJmx = monitorJmx;
+    }
+
+    public boolean isConnectionHoldTrace() {
+        return connectionHoldTrace;
+    }
+
+    public void setConnectionHoldTrace(boolean connectionHoldTrace) {
+        this.connectionHoldTrace = connectionHoldTrace;
+    }
+
+    public long getConnectionHoldTimeThreshold() {
+        return connectionHoldTimeThreshold;
+    }
+
+    public void setConnectionHoldTimeThreshold(long connectionHoldTimeThreshold) {
+        if (connectionHoldTimeThreshold > 0)
+            this.connectionHoldTimeThreshold = connectionHoldTimeThreshold;
+    }
+
+    public int getConnectionHoldStackSampleInterval() {
+        return connectionHoldStackSampleInterval;
+    }
+
+    public void setConnectionHoldStackSampleInterval(int connectionHoldStackSampleInterval) {
+        if (connectionHoldStackSampleInterval > 0)
+            this.connectionHoldStackSampleInterval = connectionHoldStackSampleInterval;
+    }
+
+    public boolean isRequestTrace() {
+        return requestTrace;
+    }
+
+    public void setRequestTrace(boolean requestTrace) {
+        this.requestTrace = requestTrace;
+    }
+
+    public int getRequestStatMaxSize() {
+        return requestStatMaxSize;
+    }
+
+    public void setRequestStatMaxSize(int requestStatMaxSize) {
+        if (requestStatMaxSize > 0) this.requestStatMaxSize = requestStatMaxSize;
+    }
+
+    public int getRequestRepeatThreshold() {
+        return requestRepeatThreshold;
+    }
+
+    public void setRequestRepeatThreshold(int requestRepeatThreshold) {
+        if (requestRepeatThreshold > 1) this.requestRepeatThreshold = requestRepeatThreshold;
+    }
+
     public String getConsoleUserId() {
         return consoleUserId;
     }
@@ -0,0 +1,184 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.stone.beecp.BeeConnectionPoolMonitorVo;
+import org.stone.beecp.springboot.statement.StatementTraceContext;
+import org.stone.beecp.springboot.util.LatencyHistogram;
+
+import static org.stone.beecp.springboot.util.LatencyHistogram.toMillis;
+
+/**
+ * Jmx bean of a datasource,pool attributes are read from cached pool snapshot
+ *
+ * @author Chris Liao
+ */
+final class DataSourceMonitorJmxBean implements DataSourceMonitorMXBean {
+    private final SpringBootDataSource ds;
+
+    DataSourceMonitorJmxBean(SpringBootDataSource ds) {
+        this.ds = ds;
+    }
+
+    public String getDsId() {
+        return ds.getDsId();
+    }
+
+    //***************************************************************************************************************//
+    //                                1: pool attributes(8)                                                          //
+    //***************************************************************************************************************//
+    public String getPoolName() {
+        BeeConnectionPoolMonitorVo vo = ds.getCachedPoolMonitorVo();
+        return vo != null ? vo.getPoolName() : null;
+    }
+
+    public String getPoolMode() {
+        BeeConnectionPoolMonitorVo vo = ds.getCachedPoolMonitorVo();
+        return vo != null ? vo.getPoolMode() : null;
+    }
+
+    public int getPoolState() {
+        BeeConnectionPoolMonitorVo vo = ds.getCachedPoolMonitorVo();
+        return vo != null ? vo.getPoolState() : -1;
+    }
+
+    public int getPoolMaxSize() {
+        BeeConnectionPoolMonitorVo vo = ds.getCachedPoolMonitorVo();
+        return vo != null ? vo.getPoolMaxSize() : -1;
+    }
+
+    public int getIdleSize() {
+        BeeConnectionPoolMonitorVo vo = ds.getCachedPoolMonitorVo();
+        return vo != null ? vo.getIdleSize() : -1;
+    }
+
+    public int getUsingSize() {
+        BeeConnectionPoolMonitorVo vo = ds.getCachedPoolMonitorVo();
+        return vo != null ? vo.getUsingSize() : -1;
+    }
+
+    public int getWaitingSize() {
+        BeeConnectionPoolMonitorVo vo = ds.getCachedPoolMonitorVo();
+        return vo != null ? vo.getSemaphoreWaitingSize() + vo.getTransferWaitingSize() : -1;
+    }
+
+    //***************************************************************************************************************//
+    //                                2: borrow attributes(5)                                                        //
+    //***************************************************************************************************************//
+    public long getBorrowCount() {
+        return ds.getBorrowHistogram().getCount();
+    }
+
+    public double getBorrowAvgTimeMs() {
+        return toMillis(ds.getBorrowHistogram().getMeanNanos());
+    }
+
+    public double getBorrowP99TimeMs() {
+        return toMillis(ds.getBorrowHistogram().getPercentileNanos(99));
+    }
+
+    public double getBorrowMaxTimeMs() {
+        return toMillis(ds.getBorrowHistogram().getMaxNanos());
+    }
+
+    public long getBorrowTimeoutCount() {
+        return ds.getBorrowTimeoutCount();
+    }
+
+    //***************************************************************************************************************//
+    //                                3: sql execution attributes(10)                                                //
+    //***************************************************************************************************************//
+    private LatencyHistogram execHistogram() {
+        StatementTraceContext context = ds.getTraceContext();
+        return context != null ? context.getExecWindowHistogram() : null;
+    }
+
+    public long getExecCount() {
+        LatencyHistogram histogram = execHistogram();
+        return histogram != null ? histogram.getCount() : 0L;
+    }
+
+    public long getExecErrorCount() {
+        StatementTraceContext context = ds.getTraceContext();
+        return context != null ? context.getExecErrorCount() : 0L;
+    }
+
+    public double getExecAvgTimeMs() {
+        LatencyHistogram histogram = execHistogram();
+        return histogram != null ? toMillis(histogram.getMeanNanos()) : 0D;
+    }
+
+    public double getExecP50TimeMs() {
+        LatencyHistogram histogram = execHistogram();
+        return histogram != null ? toMillis(histogram.getPercentileNanos(50)) : 0D;
+    }
+
+    public double getExecP99TimeMs() {
+        LatencyHistogram histogram = execHistogram();
+        return histogram != null ? toMillis(histogram.getPercentileNanos(99)) : 0D;
+    }
+
+    public double getExecP999TimeMs() {
+        LatencyHistogram histogram = execHistogram();
+        return histogram != null ? toMillis(histogram.getPercentileNanos(99.9)) : 0D;
+    }
+
+    public double getExecMaxTimeMs() {
+        LatencyHistogram histogram = execHistogram();
+        return histogram != null ? toMillis(histogram.getMaxNanos()) : 0D;
+    }
+
+    public long getTxCount() {
+        StatementTraceContext context = ds.getTraceContext();
+        return context != null ? context.getTransactionStat().getDurationHistogram().getCount() : 0L;
+    }
+
+    public long getTxRollbackCount() {
+        StatementTraceContext context = ds.getTraceContext();
+        return context != null ? context.getTransactionStat().getRollbackCount() : 0L;
+    }
+
+    public int getSqlStatCount() {
+        StatementTraceContext context = ds.getTraceContext();
+        return context != null ? context.getStatementStatList().size() : 0;
+    }
+
+    //***************************************************************************************************************//
+    //                                4: runtime control(5)                                                          //
+    //***************************************************************************************************************//
+    public boolean isSqlTraceEnabled() {
+        return ds.isSqlTraceEnabled();
+    }
+
+    public void setSqlTraceEnabled(boolean enabled) {
+        ds.setSqlTraceEnabled(enabled);
+    }
+
+    public double getSqlTraceSampleRate() {
+        StatementTraceContext context = ds.getTraceContext();
+        return context != null ? context.getSampler().getSampleRate() : 0D;
+    }
+
+    public void setSqlTraceSampleRate(double sampleRate) {
+        StatementTraceContext context = ds.getTraceContext();
+        if (context == null) throw new IllegalStateException("Sql trace is off in monitor config");
+        context.getSampler().setSampleRate(sampleRate);
+    }
+
+    public void restartPool() {
+        ds.restartPool();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+/**
+ * Jmx view of a datasource,registered with name:org.stone.beecp.springboot:type=DataSource,dsId=xxx
+ *
+ * @author Chris Liao
+ */
+public interface DataSourceMonitorMXBean {
+
+    String getDsId();
+
+    //pool(-1 when pool snapshot not available)
+    String getPoolName();
+
+    String getPoolMode();
+
+    int getPoolState();
+
+    int getPoolMaxSize();
+
+    int getIdleSize();
+
+    int getUsingSize();
+
+    int getWaitingSize();
+
+    //connection borrow
+    long getBorrowCount();
+
+    double getBorrowAvgTimeMs();
+
+    double getBorrowP99TimeMs();
+
+    double getBorrowMaxTimeMs();
+
+    long getBorrowTimeoutCount();
+
+    //sql execution(zero when sql trace off)
+    long getExecCount();
+
+    long getExecErrorCount();
+
+    double getExecAvgTimeMs();
+
+    double getExecP50TimeMs();
+
+    double getExecP99TimeMs();
+
+    double getExecP999TimeMs();
+
+    double getExecMaxTimeMs();
+
+    long getTxCount();
+
+    long getTxRollbackCount();
+
+    int getSqlStatCount();
+
+    //runtime control
+    boolean isSqlTraceEnabled();
+
+    void setSqlTraceEnabled(boolean enabled);
+
+    double getSqlTraceSampleRate();
+
+    //rejected in tail sample mode
+    void setSqlTraceSampleRate(double sampleRate);
+
+    void restartPool();
+}
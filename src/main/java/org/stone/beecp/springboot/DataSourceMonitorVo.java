@@ -0,0 +1,269 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import org.stone.beecp.BeeConnectionPoolMonitorVo;
+import org.stone.beecp.springboot.statement.TransactionStat;
+import org.stone.beecp.springboot.util.LatencyHistogram;
+
+import static org.stone.beecp.springboot.util.LatencyHistogram.toMillis;
+
+/**
+ * datasource monitor object,pool snapshot with connection borrow,hold,statement cache and execution latency of the datasource,
+ * pool snapshot is null for datasources of other types(not BeeCP)
+ *
+ * @author Chris Liao
+ */
+public class DataSourceMonitorVo {
+    private final String dsId;
+    private final BeeConnectionPoolMonitorVo poolVo;
+
+    //connection borrow
+    private long borrowCount;
+    private double borrowAvgTimeMs;
+    private double borrowP50TimeMs;
+    private double borrowP99TimeMs;
+    private double borrowMaxTimeMs;
+    private long borrowTimeoutCount;
+    private long borrowWaitingSize;
+
+    //circuit breaker(null when breaker off)
+    private String breakerState;
+    private Long breakerTripCount;
+    private Long breakerFastFailCount;
+    private Long breakerFailoverCount;
+
+    //connection hold(null when hold trace off)
+    private Double holdAvgTimeMs;
+    private Double holdP99TimeMs;
+    private Double holdMaxTimeMs;
+    private Long holdOverThresholdCount;
+
+    //prepared statement cache(null when no cache)
+    private Long statementCacheHitCount;
+    private Long statementCacheMissCount;
+    private Long statementCacheEvictionCount;
+
+    //sql execution latency(null when sql trace off)
+    private Long execCount;
+    private Double execAvgTimeMs;
+    private Double execP50TimeMs;
+    private Double execP99TimeMs;
+    private Double execP999TimeMs;
+    private Double execMaxTimeMs;
+
+    //transaction(null when sql trace off)
+    private Long txCount;
+    private Double txAvgTimeMs;
+    private Double txP99TimeMs;
+    private Double txMaxTimeMs;
+    private Double txCommitP99TimeMs;
+    private Long txRollbackCount;
+    private Double txAvgStatementCount;
+
+    DataSourceMonitorVo(String dsId, BeeConnectionPoolMonitorVo poolVo) {
+        this.dsId = dsId;
+        this.poolVo = poolVo;
+    }
+
+    //pool snapshot carries dsId,so it is written here only when no pool snapshot
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getDsId() {
+        return poolVo == null ? dsId : null;
+    }
+
+    @JsonUnwrapped
+    public BeeConnectionPoolMonitorVo getPoolVo() {
+        return poolVo;
+    }
+
+    void setBorrowStat(LatencyHistogram histogram, long timeoutCount, long waitingSize) {
+        this.borrowCount = histogram.getCount();
+        this.borrowAvgTimeMs = toMillis(histogram.getMeanNanos());
+        this.borrowP50TimeMs = toMillis(histogram.getPercentileNanos(50));
+        this.borrowP99TimeMs = toMillis(histogram.getPercentileNanos(99));
+        this.borrowMaxTimeMs = toMillis(histogram.getMaxNanos());
+        this.borrowTimeoutCount = timeoutCount;
+        this.borrowWaitingSize = waitingSize;
+    }
+
+    void setBreakerStat(DataSourceCircuitBreaker breaker) {
+        this.breakerState = breaker.getStateName();
+        this.breakerTripCount = breaker.getTripCount();
+        this.breakerFastFailCount = breaker.getFastFailCount();
+        this.breakerFailoverCount = breaker.getFailoverCount();
+    }
+
+    void setHoldStat(LatencyHistogram histogram, long overThresholdCount) {
+        this.holdAvgTimeMs = toMillis(histogram.getMeanNanos());
+        this.holdP99TimeMs = toMillis(histogram.getPercentileNanos(99));
+        this.holdMaxTimeMs = toMillis(histogram.getMaxNanos());
+        this.holdOverThresholdCount = overThresholdCount;
+    }
+
+    void setStatementCacheStat(long hitCount, long missCount, long evictionCount) {
+        this.statementCacheHitCount = hitCount;
+        this.statementCacheMissCount = missCount;
+        this.statementCacheEvictionCount = evictionCount;
+    }
+
+    void setExecHistogram(LatencyHistogram histogram) {
+        this.execCount = histogram.getCount();
+        this.execAvgTimeMs = toMillis(histogram.getMeanNanos());
+        this.execP50TimeMs = toMillis(histogram.getPercentileNanos(50));
+        this.execP99TimeMs = toMillis(histogram.getPercentileNanos(99));
+        this.execP999TimeMs = toMillis(histogram.getPercentileNanos(99.9));
+        this.execMaxTimeMs = toMillis(histogram.getMaxNanos());
+    }
+
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    public double getBorrowAvgTimeMs() {
+        return borrowAvgTimeMs;
+    }
+
+    public double getBorrowP50TimeMs() {
+        return borrowP50TimeMs;
+    }
+
+    public double getBorrowP99TimeMs() {
+        return borrowP99TimeMs;
+    }
+
+    public double getBorrowMaxTimeMs() {
+        return borrowMaxTimeMs;
+    }
+
+    public long getBorrowTimeoutCount() {
+        return borrowTimeoutCount;
+    }
+
+    public long getBorrowWaitingSize() {
+        return borrowWaitingSize;
+    }
+
+    public String getBreakerState() {
+        return breakerState;
+    }
+
+    public Long getBreakerTripCount() {
+        return breakerTripCount;
+    }
+
+    public Long getBreakerFastFailCount() {
+        return breakerFastFailCount;
+    }
+
+    public Long getBreakerFailoverCount() {
+        return breakerFailoverCount;
+    }
+
+    void setTransactionStat(TransactionStat stat) {
+        LatencyHistogram durationHistogram = stat.getDurationHistogram();
+        long count = durationHistogram.getCount();
+        this.txCount = count;
+        this.txAvgTimeMs = toMillis(durationHistogram.getMeanNanos());
+        this.txP99TimeMs = toMillis(durationHistogram.getPercentileNanos(99));
+        this.txMaxTimeMs = toMillis(durationHistogram.getMaxNanos());
+        this.txCommitP99TimeMs = toMillis(stat.getCommitHistogram().getPercentileNanos(99));
+        this.txRollbackCount = stat.getRollbackCount();
+        this.txAvgStatementCount = count > 0 ? Math.round(stat.getStatementCount() * 100.0D / count) / 100.0D : 0.0D;
+    }
+
+    public Double getHoldAvgTimeMs() {
+        return holdAvgTimeMs;
+    }
+
+    public Double getHoldP99TimeMs() {
+        return holdP99TimeMs;
+    }
+
+    public Double getHoldMaxTimeMs() {
+        return holdMaxTimeMs;
+    }
+
+    public Long getHoldOverThresholdCount() {
+        return holdOverThresholdCount;
+    }
+
+    public Long getStatementCacheHitCount() {
+        return statementCacheHitCount;
+    }
+
+    public Long getStatementCacheMissCount() {
+        return statementCacheMissCount;
+    }
+
+    public Long getStatementCacheEvictionCount() {
+        return statementCacheEvictionCount;
+    }
+
+    public Long getExecCount() {
+        return execCount;
+    }
+
+    public Double getExecAvgTimeMs() {
+        return execAvgTimeMs;
+    }
+
+    public Double getExecP50TimeMs() {
+        return execP50TimeMs;
+    }
+
+    public Double getExecP99TimeMs() {
+        return execP99TimeMs;
+    }
+
+    public Double getExecP999TimeMs() {
+        return execP999TimeMs;
+    }
+
+    public Double getExecMaxTimeMs() {
+        return execMaxTimeMs;
+    }
+
+    public Long getTxCount() {
+        return txCount;
+    }
+
+    public Double getTxAvgTimeMs() {
+        return txAvgTimeMs;
+    }
+
+    public Double getTxP99TimeMs() {
+        return txP99TimeMs;
+    }
+
+    public Double getTxMaxTimeMs() {
+        return txMaxTimeMs;
+    }
+
+    public Double getTxCommitP99TimeMs() {
+        return txCommitP99TimeMs;
+    }
+
+    public Long getTxRollbackCount() {
+        return txRollbackCount;
+    }
+
+    public Double getTxAvgStatementCount() {
+        return txAvgStatementCount;
+    }
+}
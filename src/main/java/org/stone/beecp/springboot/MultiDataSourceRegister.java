@@ -23,9 +23,11 @@ import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
 import org.springframework.core.env.Environment;
 import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.ClassUtils;
 import org.stone.beecp.springboot.factory.SpringBootDataSourceException;
 import org.stone.beecp.springboot.monitor.DataSourceMonitorRegister;
 
+import javax.sql.DataSource;
 import java.util.*;
 
 import static org.stone.beecp.springboot.SpringBootDataSourceUtil.*;
@@ -41,6 +43,19 @@ import static org.stone.tools.CommonUtil.isBlank;
  *  spring.datasource.ds2.primary=false
  *  spring.datasource.ds2.jndiName=DsJndi
  *
+ *  spring.datasource.groupId=rwGroup
+ *  spring.datasource.rwGroup.groupType=readWrite
+ *  spring.datasource.rwGroup.primaryId=ds1
+ *  spring.datasource.rwGroup.replicaIds=ds2,ds3
+ *  spring.datasource.rwGroup.balanceStrategy=weighted
+ *  spring.datasource.rwGroup.replicaWeights=2,1
+ *  spring.datasource.rwGroup.lagProbeSql=select lag_ms from replica_lag
+ *
+ *  spring.datasource.groupId=userShards
+ *  spring.datasource.userShards.groupType=sharding
+ *  spring.datasource.userShards.shardIds=ds1,ds2
+ *  spring.datasource.userShards.shardStrategy=consistentHash
+ *
  *   @author Chris Liao
  */
 public class MultiDataSourceRegister implements EnvironmentAware, ImportBeanDefinitionRegistrar {
@@ -78,11 +93,15 @@ public class MultiDataSourceRegister implements EnvironmentAware, ImportBeanDefi
         //4:create dataSources by id list
         Map<String, SpringBootDataSource> dsMap = createDataSources(dsIdList, environment);
 
+        //4.1:create group dataSources over created dataSources
+        Map<String, DataSource> groupMap = createGroupDataSources(dsMap, combineProperties, registry);
+
         //5:read sql statement config
         SpringBootDataSourceManager.getInstance().setupMonitorConfig(dataSourceMonitorConfig);
 
         //6:assembly datasource to spring container
         this.registerDataSources(dsMap, combineProperties, registry);
+        this.registerGroupDataSources(groupMap, registry);
 
         //7:register datasource monitor
         DataSourceMonitorRegister monitorRegister = new DataSourceMonitorRegister();
@@ -167,6 +186,11 @@ public class MultiDataSourceRegister implements EnvironmentAware, ImportBeanDefi
                 String dsPrefix = Config_DS_Prefix + "." + dsId;
                 dsMap.put(dsId, createSpringBootDataSource(dsPrefix, dsId, environment));//create datasource instance
             }
+            for (SpringBootDataSource ds : dsMap.values()) {
+                String failoverDsId = ds.getFailoverDsId();
+                if (failoverDsId != null && (failoverDsId.equals(ds.getDsId()) || !dsMap.containsKey(failoverDsId)))
+                    throw new SpringBootDataSourceException("DataSource(" + ds.getDsId() + ")-failoverDsId(" + failoverDsId + ") must be another id in ds-id list");
+            }
             return dsMap;
         } catch (Throwable e) {//failed then close all created dataSource
             for (SpringBootDataSource ds : dsMap.values())
@@ -175,6 +199,36 @@ public class MultiDataSourceRegister implements EnvironmentAware, ImportBeanDefi
         }
     }
 
+    /**
+     * 3.1: create group dataSources by config
+     *
+     * @param dsMap             created dataSources
+     * @param combineProperties combine config info
+     * @param registry          springboot registry
+     * @return group dataSource map
+     */
+    private Map<String, DataSource> createGroupDataSources(Map<String, SpringBootDataSource> dsMap, Properties combineProperties, BeanDefinitionRegistry registry) {
+        List<String> groupIdList = splitIdList(getConfigValue(Config_DS_Prefix, Config_DS_GroupId, environment));
+        Map<String, DataSource> groupMap = new LinkedHashMap<>(groupIdList.size());
+        try {
+            String combineDsId = combineProperties.getProperty(Config_DS_CombineId);
+            for (String groupId : groupIdList) {
+                if (dsMap.containsKey(groupId) || groupId.equals(combineDsId) || groupMap.containsKey(groupId))
+                    throw new SpringBootDataSourceException("Group id(" + groupId + ")can't be duplicated with ds-id list,combine id or other group id");
+                if (existsBeanDefinition(groupId, registry))
+                    throw new SpringBootDataSourceException("Group id(" + groupId + ")has been registered by another bean");
+
+                groupMap.put(groupId, createGroupDataSource(Config_DS_Prefix + "." + groupId, groupId, dsMap, environment));
+            }
+            return groupMap;
+        } catch (Throwable e) {//failed then close all created dataSource
+            for (SpringBootDataSource ds : dsMap.values())
+                ds.close();
+            if (e instanceof SpringBootDataSourceException) throw (SpringBootDataSourceException) e;
+            throw new SpringBootDataSourceException("Group-DataSource created failed", e);
+        }
+    }
+
     /**
      * 4: assembly datasource to springBoot
      *
@@ -207,12 +261,55 @@ public class MultiDataSourceRegister implements EnvironmentAware, ImportBeanDefi
         }
     }
 
-    //4.1:assembly dataSource to Spring bean container
+    //4.1:assembly group dataSource to Spring bean container,route aspects are registered for read-write and sharding groups
+    private void registerGroupDataSources(Map<String, DataSource> groupMap, BeanDefinitionRegistry registry) {
+        boolean readWriteExists = false, shardingExists = false;
+        for (Map.Entry<String, DataSource> entry : groupMap.entrySet()) {
+            String groupId = entry.getKey();
+            String primaryText = getConfigValue(Config_DS_Prefix + "." + groupId, Config_DS_Primary, environment);
+
+            GenericBeanDefinition define = new GenericBeanDefinition();
+            define.setPrimary(!isBlank(primaryText) && Boolean.parseBoolean(primaryText));
+            define.setBeanClass(entry.getValue().getClass());
+            define.setInstanceSupplier(createSpringSupplier(entry.getValue()));
+            registry.registerBeanDefinition(groupId, define);
+            log.info("Registered Group-DataSource({})with id:{}", define.getBeanClassName(), groupId);
+            if (entry.getValue() instanceof ReadWriteDataSource) {
+                readWriteExists = true;
+                SpringBootDataSourceManager.getInstance().addReadWriteDataSource((ReadWriteDataSource) entry.getValue());
+            } else if (entry.getValue() instanceof ShardingDataSource) {
+                shardingExists = true;
+            }
+        }
+
+        if (readWriteExists) {
+            registerRouteBean(ReadWriteDataSourceAspect.class, new ReadWriteDataSourceAspect(), registry);
+            if (ClassUtils.isPresent(ReadOnlyTransactionAspect.Transactional_Class_Name, getClass().getClassLoader()))
+                registerRouteBean(ReadOnlyTransactionAspect.class, new ReadOnlyTransactionAspect(), registry);
+        }
+        if (shardingExists) {
+            registerRouteBean(ShardingDataSourceAspect.class, new ShardingDataSourceAspect(), registry);
+            registerRouteBean(ShardKeyExpressionScanner.class, new ShardKeyExpressionScanner(), registry);
+        }
+    }
+
+    private void registerRouteBean(Class<?> beanClass, Object bean, BeanDefinitionRegistry registry) {
+        String beanId = beanClass.getName();
+        if (existsBeanDefinition(beanId, registry)) return;
+        GenericBeanDefinition define = new GenericBeanDefinition();
+        define.setBeanClass(beanClass);
+        define.setInstanceSupplier(createSpringSupplier(bean));
+        registry.registerBeanDefinition(beanId, define);
+        log.info("Registered Group-Route bean({})with id:{}", define.getBeanClassName(), beanId);
+    }
+
+    //4.2:assembly dataSource to Spring bean container
     private void registerDataSourceBean(SpringBootDataSource springDs, BeanDefinitionRegistry registry) {
         GenericBeanDefinition define = new GenericBeanDefinition();
         define.setPrimary(springDs.isPrimary());
         define.setBeanClass(springDs.getClass());
         define.setInstanceSupplier(createSpringSupplier(springDs));
+        define.setDestroyMethodName("detach");
         registry.registerBeanDefinition(springDs.getDsId(), define);
         log.info("Registered DataSource({})with id:{}", define.getBeanClassName(), springDs.getDsId());
         SpringBootDataSourceManager.getInstance().addSpringBootDataSource(springDs);
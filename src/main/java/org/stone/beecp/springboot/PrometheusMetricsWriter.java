@@ -0,0 +1,130 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.stone.beecp.BeeConnectionPoolMonitorVo;
+import org.stone.beecp.springboot.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Writer of datasource metrics in prometheus text format(version 0.0.4),output buffer and work arrays
+ * are reused between scrapes,absent values(such as hold metrics when hold trace off) are skipped.
+ *
+ * @author Chris Liao
+ */
+final class PrometheusMetricsWriter {
+    private static final long[] Bucket_Bound_Nanos = {
+            1000000L, 5000000L, 10000000L, 25000000L, 50000000L, 100000000L,
+            250000000L, 500000000L, 1000000000L, 2500000000L, 5000000000L, 10000000000L};
+    private static final String[] Bucket_Bound_Labels = {
+            "0.001", "0.005", "0.01", "0.025", "0.05", "0.1", "0.25", "0.5", "1", "2.5", "5", "10"};
+
+    private final StringBuilder builder = new StringBuilder(16 * 1024);
+    private final long[] bucketCounts = new long[Bucket_Bound_Nanos.length];
+    private final ArrayList<SpringBootDataSource> dsList = new ArrayList<>();
+    private final ArrayList<BeeConnectionPoolMonitorVo> poolVoList = new ArrayList<>();
+    private final ArrayList<String> labelList = new ArrayList<>();//escaped dsId
+
+    synchronized String write(Collection<SpringBootDataSource> dataSources) {
+        builder.setLength(0);
+        dsList.clear();
+        poolVoList.clear();
+        labelList.clear();
+        for (SpringBootDataSource ds : dataSources) {
+            dsList.add(ds);
+            poolVoList.add(ds.getCachedPoolMonitorVo());
+            labelList.add(escape(ds.getDsId()));
+        }
+
+        //1:pool
+        writePoolGauge("beecp_pool_max_connections", "Max size of connection pool", BeeConnectionPoolMonitorVo::getPoolMaxSize);
+        writePoolGauge("beecp_pool_idle_connections", "Idle connections in pool", BeeConnectionPoolMonitorVo::getIdleSize);
+        writePoolGauge("beecp_pool_active_connections", "Borrowed connections of pool", BeeConnectionPoolMonitorVo::getUsingSize);
+        writePoolGauge("beecp_pool_waiting_threads", "Threads waiting for connections in pool", vo -> vo.getSemaphoreWaitingSize() + vo.getTransferWaitingSize());
+        writePoolGauge("beecp_pool_state", "State code of connection pool", BeeConnectionPoolMonitorVo::getPoolState);
+
+        //2:borrow and hold
+        writeHistogram("beecp_borrow_seconds", "Connection borrow wait time", SpringBootDataSource::getBorrowHistogram);
+        writeValue("beecp_borrow_timeouts_total", "counter", "Connection borrow timeouts", SpringBootDataSource::getBorrowTimeoutCount);
+        writeValue("beecp_borrow_waiting_threads", "gauge", "Threads in connection borrow", SpringBootDataSource::getBorrowWaitingSize);
+        writeHistogram("beecp_hold_seconds", "Connection hold time from borrow to close", ds -> ds.getHoldTracker() != null ? ds.getHoldTracker().getHoldHistogram() : null);
+        writeValue("beecp_hold_over_threshold_total", "counter", "Connections held over threshold", ds -> ds.getHoldTracker() != null ? ds.getHoldTracker().getOverThresholdCount() : -1L);
+
+        //3:statement cache
+        writeValue("beecp_statement_cache_hits_total", "counter", "Prepared statement cache hits", ds -> ds.getStatementCacheTracker() != null ? ds.getStatementCacheTracker().getHitCount() : -1L);
+        writeValue("beecp_statement_cache_misses_total", "counter", "Prepared statement cache misses", ds -> ds.getStatementCacheTracker() != null ? ds.getStatementCacheTracker().getMissCount() : -1L);
+        writeValue("beecp_statement_cache_evictions_total", "counter", "Prepared statement cache evictions", ds -> ds.getStatementCacheTracker() != null ? ds.getStatementCacheTracker().getEvictionCount() : -1L);
+
+        //4:sql execution and transaction
+        writeHistogram("beecp_execute_seconds", "Sql execution time", ds -> ds.getTraceContext() != null ? ds.getTraceContext().getExecHistogram() : null);
+        writeValue("beecp_execute_errors_total", "counter", "Failed sql executions", ds -> ds.getTraceContext() != null ? ds.getTraceContext().getExecErrorCount() : -1L);
+        writeHistogram("beecp_transaction_seconds", "Transaction time from first statement to commit or rollback", ds -> ds.getTraceContext() != null ? ds.getTraceContext().getTransactionStat().getDurationHistogram() : null);
+        writeHistogram("beecp_transaction_commit_seconds", "Transaction commit time", ds -> ds.getTraceContext() != null ? ds.getTraceContext().getTransactionStat().getCommitHistogram() : null);
+        writeValue("beecp_transaction_rollbacks_total", "counter", "Transaction rollbacks", ds -> ds.getTraceContext() != null ? ds.getTraceContext().getTransactionStat().getRollbackCount() : -1L);
+        return builder.toString();
+    }
+
+    private void writeHeader(String name, String type, String help) {
+        builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private void writePoolGauge(String name, String help, ToLongFunction<BeeConnectionPoolMonitorVo> getter) {
+        writeHeader(name, "gauge", help);
+        for (int i = 0, l = poolVoList.size(); i < l; i++) {
+            BeeConnectionPoolMonitorVo poolVo = poolVoList.get(i);
+            if (poolVo != null)
+                builder.append(name).append("{dsId=\"").append(labelList.get(i)).append("\"} ").append(getter.applyAsLong(poolVo)).append('\n');
+        }
+    }
+
+    //negative value means absent
+    private void writeValue(String name, String type, String help, ToLongFunction<SpringBootDataSource> getter) {
+        writeHeader(name, type, help);
+        for (int i = 0, l = dsList.size(); i < l; i++) {
+            long value = getter.applyAsLong(dsList.get(i));
+            if (value >= 0)
+                builder.append(name).append("{dsId=\"").append(labelList.get(i)).append("\"} ").append(value).append('\n');
+        }
+    }
+
+    private void writeHistogram(String name, String help, Function<SpringBootDataSource, LatencyHistogram> getter) {
+        writeHeader(name, "histogram", help);
+        for (int i = 0, l = dsList.size(); i < l; i++) {
+            LatencyHistogram histogram = getter.apply(dsList.get(i));
+            if (histogram == null) continue;
+
+            String label = labelList.get(i);
+            long count = histogram.getCumulativeCounts(Bucket_Bound_Nanos, bucketCounts);
+            for (int j = 0; j < bucketCounts.length; j++)
+                builder.append(name).append("_bucket{dsId=\"").append(label).append("\",le=\"").append(Bucket_Bound_Labels[j]).append("\"} ").append(bucketCounts[j]).append('\n');
+            builder.append(name).append("_bucket{dsId=\"").append(label).append("\",le=\"+Inf\"} ").append(count).append('\n');
+            builder.append(name).append("_sum{dsId=\"").append(label).append("\"} ").append(histogram.getSumNanos() / 1.0E9D).append('\n');
+            builder.append(name).append("_count{dsId=\"").append(label).append("\"} ").append(count).append('\n');
+        }
+    }
+
+    //label value escape:backslash,double quote and line feed
+    private static String escape(String value) {
+        if (value == null) return "";
+        if (value.indexOf('\\') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.annotation.Order;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ *  Read-write route Aspect of spring Transactional annotation,registered only when spring-tx exists in classpath.
+ *  Annotation is read by name,so no compile dependency on spring-tx.Order is ahead of transaction interceptor,
+ *  so route is set before transaction begins.
+ *
+ *  @author Chris Liao
+ */
+
+@Aspect
+@Order(1)
+public class ReadOnlyTransactionAspect {
+    static final String Transactional_Class_Name = "org.springframework.transaction.annotation.Transactional";
+    private final ConcurrentHashMap<MethodClassKey, Boolean> readOnlyCache = new ConcurrentHashMap<>(16);
+
+    //*********************************aspect methods begin **********************************************************//
+    @Pointcut("@annotation(org.springframework.transaction.annotation.Transactional) || @within(org.springframework.transaction.annotation.Transactional)")
+    public void pointcut() {
+        //do nothing
+    }
+
+    @Around("pointcut()")
+    public Object setRoute(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Object target = joinPoint.getTarget();
+        Class<?> targetClass = target != null ? target.getClass() : null;
+        MethodClassKey key = new MethodClassKey(method, targetClass);
+        Boolean readOnly = readOnlyCache.get(key);
+        if (readOnly == null) {
+            readOnly = isReadOnly(targetClass != null ? AopUtils.getMostSpecificMethod(method, targetClass) : method);
+            readOnlyCache.put(key, readOnly);
+        }
+
+        Boolean previous = ReadWriteDataSource.beginRoute(readOnly);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReadWriteDataSource.endRoute(previous);
+        }
+    }
+    //***************************************************************************************************************//
+
+    //method annotation is prior to class annotation
+    private static boolean isReadOnly(Method method) {
+        AnnotationAttributes attributes = AnnotatedElementUtils.findMergedAnnotationAttributes(method, Transactional_Class_Name, false, false);
+        if (attributes == null)
+            attributes = AnnotatedElementUtils.findMergedAnnotationAttributes(method.getDeclaringClass(), Transactional_Class_Name, false, false);
+        return attributes != null && attributes.getBoolean("readOnly");
+    }
+}
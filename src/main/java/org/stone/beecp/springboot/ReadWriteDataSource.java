@@ -0,0 +1,275 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Read-write group dataSource,connections are borrowed from replicas in read route(set by aspects on
+ * {@code @DsId(read=true)} and {@code @Transactional(readOnly=true)} methods),otherwise from primary.
+ *
+ * @author Chris Liao
+ */
+public class ReadWriteDataSource implements DataSource {
+    static final String Strategy_RoundRobin = "roundRobin";
+    static final String Strategy_Weighted = "weighted";
+    static final String Strategy_LeastActive = "leastActive";
+    //route of current thread,null when not in any routed method
+    private static final ThreadLocal<Boolean> ReadRoute = new ThreadLocal<>();
+
+    private final String groupId;
+    private final SpringBootDataSource primary;
+    private final SpringBootDataSource[] replicas;
+    private final String balanceStrategy;
+    private final int[] cumulativeWeights;//weighted strategy only
+    private final AtomicInteger roundRobinIndex = new AtomicInteger();
+    private final ReplicaLagMonitor lagMonitor;//null when lag probe not configured
+    private final ReplicaHedger hedger;//null when hedge off
+
+    ReadWriteDataSource(String groupId, SpringBootDataSource primary, SpringBootDataSource[] replicas, String balanceStrategy, int[] weights,
+                        ReplicaLagMonitor lagMonitor, ReplicaHedger hedger) {
+        this.groupId = groupId;
+        this.primary = primary;
+        this.replicas = replicas;
+        this.balanceStrategy = balanceStrategy;
+        this.lagMonitor = lagMonitor;
+        this.hedger = hedger;
+        if (lagMonitor != null) lagMonitor.init(replicas);
+        if (Strategy_LeastActive.equals(balanceStrategy)) {
+            for (SpringBootDataSource replica : replicas)
+                replica.enableActiveCount();
+        }
+        this.cumulativeWeights = new int[replicas.length];
+        int total = 0;
+        for (int i = 0; i < replicas.length; i++)
+            cumulativeWeights[i] = total += (weights != null ? weights[i] : 1);
+    }
+
+    //***************************************************************************************************************//
+    //                                1: route methods(3)                                                            //
+    //***************************************************************************************************************//
+    //a write route is not switched to read by inner read methods,so reads in a write transaction see its writes
+    static Boolean beginRoute(boolean read) {
+        Boolean previous = ReadRoute.get();
+        ReadRoute.set(read && (previous == null || previous));
+        return previous;
+    }
+
+    static void endRoute(Boolean previous) {
+        if (previous == null)
+            ReadRoute.remove();
+        else
+            ReadRoute.set(previous);
+    }
+
+    static boolean isReadRoute() {
+        return Boolean.TRUE.equals(ReadRoute.get());
+    }
+
+    //***************************************************************************************************************//
+    //                                2: replica select methods(9)                                                   //
+    //***************************************************************************************************************//
+    public String getGroupId() {
+        return groupId;
+    }
+
+    ReplicaLagMonitor getLagMonitor() {
+        return lagMonitor;
+    }
+
+    ReadWriteGroupMonitorVo getMonitorVo() {
+        ReadWriteGroupMonitorVo vo = new ReadWriteGroupMonitorVo(groupId, primary.getDsId(), balanceStrategy);
+        if (lagMonitor != null) vo.setReplicaHealths(lagMonitor.getHealths());
+        if (hedger != null) vo.setHedgeStat(hedger);
+        return vo;
+    }
+
+    SpringBootDataSource getReplica(int index) {
+        return replicas[index];
+    }
+
+    //primary is used when all replicas are ejected by lag monitor
+    SpringBootDataSource getCurrentDataSource() {
+        if (!isReadRoute() || replicas.length == 0) return primary;
+        int index = selectReplica();
+        return index >= 0 ? replicas[index] : primary;
+    }
+
+    //return index of selected replica,-1 when no available replica
+    int selectReplica() {
+        switch (balanceStrategy) {
+            case Strategy_Weighted:
+                return selectWeighted();
+            case Strategy_LeastActive:
+                return selectLeastActive();
+            default:
+                return selectRoundRobin();
+        }
+    }
+
+    //another available replica for hedged query,-1 when not found
+    int selectHedgeReplica(int excludedIndex) {
+        int start = nextRoundRobin();
+        for (int i = 0; i < replicas.length; i++) {
+            int index = (start + i) % replicas.length;
+            if (index != excludedIndex && isAvailable(index)) return index;
+        }
+        return -1;
+    }
+
+    private boolean isAvailable(int index) {
+        return lagMonitor == null || lagMonitor.isAvailable(index);
+    }
+
+    private int nextRoundRobin() {
+        return (roundRobinIndex.getAndIncrement() & Integer.MAX_VALUE) % replicas.length;
+    }
+
+    private int selectRoundRobin() {
+        int start = nextRoundRobin();
+        for (int i = 0; i < replicas.length; i++) {
+            int index = (start + i) % replicas.length;
+            if (isAvailable(index)) return index;
+        }
+        return -1;
+    }
+
+    //weights of ejected replicas are excluded from random range
+    private int selectWeighted() {
+        if (lagMonitor == null) {
+            int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            int index = 0;
+            while (cumulativeWeights[index] <= value) index++;
+            return index;
+        }
+
+        int totalWeight = 0;
+        for (int i = 0; i < replicas.length; i++)
+            if (isAvailable(i)) totalWeight += getWeight(i);
+        if (totalWeight == 0) return -1;
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < replicas.length; i++) {
+            if (!isAvailable(i)) continue;
+            value -= getWeight(i);
+            if (value < 0) return i;
+        }
+        return -1;//availability changed during selection
+    }
+
+    private int getWeight(int index) {
+        return index == 0 ? cumulativeWeights[0] : cumulativeWeights[index] - cumulativeWeights[index - 1];
+    }
+
+    //active is counted by replica on borrow and close,search starts at a rotating index to spread ties
+    private int selectLeastActive() {
+        int start = nextRoundRobin();
+        int selected = -1;
+        long minActive = Long.MAX_VALUE;
+        for (int i = 0; i < replicas.length; i++) {
+            int index = (start + i) % replicas.length;
+            if (!isAvailable(index)) continue;
+            long active = replicas[index].getActiveCount();
+            if (active < minActive) {
+                minActive = active;
+                selected = index;
+            }
+        }
+        return selected;
+    }
+
+    //***************************************************************************************************************//
+    //                                3: hedged query method(1)                                                      //
+    //***************************************************************************************************************//
+
+    /**
+     * execute a read query on replicas,hedged on a second replica when hedge enabled and query is slow.
+     * Connections are borrowed for the query only,so it is not in any transaction of caller.
+     *
+     * @param sql        query sql
+     * @param parameters parameters of sql,set by setObject
+     * @param reader     reader of result set
+     * @param <T>        type of read result
+     * @return result of first completed query
+     * @throws SQLException when all issued queries failed
+     */
+    public <T> T hedgedQuery(String sql, Object[] parameters, ResultSetReader<T> reader) throws SQLException {
+        int index = replicas.length > 0 ? selectReplica() : -1;
+        if (index >= 0 && hedger != null)
+            return hedger.query(this, index, sql, parameters, reader);
+
+        SpringBootDataSource ds = index >= 0 ? replicas[index] : primary;
+        try (Connection con = ds.getConnection(); PreparedStatement ps = con.prepareStatement(sql)) {
+            if (parameters != null) {
+                for (int i = 0; i < parameters.length; i++)
+                    ps.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                return reader.read(rs);
+            }
+        }
+    }
+
+    //***************************************************************************************************************//
+    //                                4: dataSource methods                                                          //
+    //***************************************************************************************************************//
+    public Connection getConnection() throws SQLException {
+        return getCurrentDataSource().getConnection();
+    }
+
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getCurrentDataSource().getConnection(username, password);
+    }
+
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    public <T> T unwrap(Class<T> face) throws SQLException {
+        if (face != null && face.isInstance(this))
+            return face.cast(this);
+        else
+            throw new SQLException("Wrapped object was not an instance of " + face);
+    }
+
+    public boolean isWrapperFor(Class<?> face) {
+        return face != null && face.isInstance(this);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.stone.beecp.springboot.ReplicaLagMonitor.ReplicaHealth;
+
+/**
+ * monitor object of read-write group,replica health(null when lag probe off) and hedge counters(null when hedge off)
+ *
+ * @author Chris Liao
+ */
+public class ReadWriteGroupMonitorVo {
+    private final String groupId;
+    private final String primaryId;
+    private final String balanceStrategy;
+    private ReplicaHealth[] replicaHealths;
+
+    private Double hedgeDelayMs;
+    private Long hedgeQueryCount;
+    private Long hedgeCount;
+    private Long hedgeWinCount;
+    private Long hedgeBudgetRejectCount;
+
+    ReadWriteGroupMonitorVo(String groupId, String primaryId, String balanceStrategy) {
+        this.groupId = groupId;
+        this.primaryId = primaryId;
+        this.balanceStrategy = balanceStrategy;
+    }
+
+    void setReplicaHealths(ReplicaHealth[] replicaHealths) {
+        this.replicaHealths = replicaHealths;
+    }
+
+    void setHedgeStat(ReplicaHedger hedger) {
+        this.hedgeDelayMs = hedger.getDelayMs();
+        this.hedgeQueryCount = hedger.getQueryCount();
+        this.hedgeCount = hedger.getHedgeCount();
+        this.hedgeWinCount = hedger.getHedgeWinCount();
+        this.hedgeBudgetRejectCount = hedger.getBudgetRejectCount();
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public String getPrimaryId() {
+        return primaryId;
+    }
+
+    public String getBalanceStrategy() {
+        return balanceStrategy;
+    }
+
+    public ReplicaHealth[] getReplicaHealths() {
+        return replicaHealths;
+    }
+
+    public Double getHedgeDelayMs() {
+        return hedgeDelayMs;
+    }
+
+    public Long getHedgeQueryCount() {
+        return hedgeQueryCount;
+    }
+
+    public Long getHedgeCount() {
+        return hedgeCount;
+    }
+
+    public Long getHedgeWinCount() {
+        return hedgeWinCount;
+    }
+
+    public Long getHedgeBudgetRejectCount() {
+        return hedgeBudgetRejectCount;
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.stone.beecp.springboot.util.LatencyHistogram;
+
+import java.sql.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hedger of read-write group queries,a query not completed on its replica within a percentile delay is issued
+ * on a second replica,first result wins and the loser statement is cancelled.Extra load is capped by a token
+ * budget,every query earns a ratio of token and every hedge costs one token.Original query runs in caller thread,
+ * hedge is launched by a timer and runs in a bounded hedge thread pool without queue,a hedge is skipped when
+ * no hedge thread is free,so hedging never delays or limits original queries.
+ *
+ * @author Chris Liao
+ */
+final class ReplicaHedger {
+    private static final long Token_Unit = 1000L;
+    private static final long Max_Budget_Tokens = 10L * Token_Unit;//burst of hedges
+    private static final int Min_Delay_Samples = 100;
+    private static final int Delay_Refresh_Interval = 100;
+    private static final long Histogram_Reset_Count = 10000L;
+
+    private final double delayPercentile;
+    private final long minDelayNanos;
+    private final long tokensPerQuery;
+    private final ScheduledThreadPoolExecutor hedgeTimer;
+    private final ThreadPoolExecutor hedgeExecutor;
+    private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+    private final AtomicLong budgetTokens = new AtomicLong(Max_Budget_Tokens);
+    private volatile long delayNanos;
+
+    private final LongAdder queryCount = new LongAdder();
+    private final LongAdder hedgeCount = new LongAdder();
+    private final LongAdder hedgeWinCount = new LongAdder();
+    private final LongAdder budgetRejectCount = new LongAdder();
+
+    ReplicaHedger(String groupId, double delayPercentile, long minDelayMs, double budgetRatio, int hedgeThreads) {
+        this.delayPercentile = delayPercentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMs);
+        this.tokensPerQuery = (long) (budgetRatio * Token_Unit);
+        this.delayNanos = minDelayNanos;
+        this.hedgeTimer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread th = new Thread(r, "ReplicaHedgeTimer-" + groupId);
+            th.setDaemon(true);
+            return th;
+        });
+        this.hedgeTimer.setRemoveOnCancelPolicy(true);
+        this.hedgeExecutor = new ThreadPoolExecutor(0, hedgeThreads, 15, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread th = new Thread(r, "ReplicaHedger-" + groupId);
+            th.setDaemon(true);
+            return th;
+        });
+    }
+
+    //***************************************************************************************************************//
+    //                                1: query methods(4)                                                            //
+    //***************************************************************************************************************//
+    <T> T query(ReadWriteDataSource group, int replicaIndex, String sql, Object[] parameters, ResultSetReader<T> reader) throws SQLException {
+        queryCount.increment();
+        earnTokens();
+        HedgedCall<T> call = new HedgedCall<>();
+        long startTime = System.nanoTime();
+        ScheduledFuture<?> hedgeFuture = hedgeTimer.schedule(() -> launchHedge(call, group, replicaIndex, sql, parameters, reader), delayNanos, TimeUnit.NANOSECONDS);
+
+        //original query in caller thread,latency is recorded when it wins or loses(a cancelled loser took at least its elapsed time)
+        try {
+            T result = execute(call, 0, group.getReplica(replicaIndex), sql, parameters, reader);
+            recordLatency(System.nanoTime() - startTime);
+            call.complete(0, result);
+        } catch (Throwable e) {
+            if (call.isCompletedBy(1)) recordLatency(System.nanoTime() - startTime);
+            call.fail(0, e);
+        } finally {
+            hedgeFuture.cancel(false);
+        }
+
+        T result = call.await();//wait a running hedge only when original failed
+        if (call.isCompletedBy(1)) hedgeWinCount.increment();
+        return result;
+    }
+
+    //run in timer thread
+    private <T> void launchHedge(HedgedCall<T> call, ReadWriteDataSource group, int excludedIndex, String sql, Object[] parameters, ResultSetReader<T> reader) {
+        int hedgeIndex = group.selectHedgeReplica(excludedIndex);
+        if (hedgeIndex < 0) return;
+        if (!acquireToken()) {
+            budgetRejectCount.increment();
+            return;
+        }
+        if (!call.launchHedge()) {
+            budgetTokens.addAndGet(Token_Unit);//refund,query completed
+            return;
+        }
+
+        try {
+            hedgeExecutor.execute(() -> hedge(call, group.getReplica(hedgeIndex), sql, parameters, reader));
+        } catch (RejectedExecutionException e) {//no free hedge thread
+            budgetTokens.addAndGet(Token_Unit);
+            budgetRejectCount.increment();
+            call.abortHedge();
+        }
+    }
+
+    private <T> void hedge(HedgedCall<T> call, SpringBootDataSource ds, String sql, Object[] parameters, ResultSetReader<T> reader) {
+        hedgeCount.increment();
+        try {
+            T result = execute(call, 1, ds, sql, parameters, reader);
+            call.complete(1, result);
+        } catch (Throwable e) {
+            call.fail(1, e);
+        }
+    }
+
+    private static <T> T execute(HedgedCall<T> call, int index, SpringBootDataSource ds, String sql, Object[] parameters, ResultSetReader<T> reader) throws SQLException {
+        try (Connection con = ds.getConnection(); PreparedStatement ps = con.prepareStatement(sql)) {
+            if (!call.setStatement(index, ps)) throw new SQLException("Hedged query has been completed");
+            if (parameters != null) {
+                for (int i = 0; i < parameters.length; i++)
+                    ps.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                return reader.read(rs);
+            }
+        }
+    }
+
+    //***************************************************************************************************************//
+    //                                2: delay and budget methods(3)                                                 //
+    //***************************************************************************************************************//
+    //delay is refreshed from latency percentile periodically,histogram is reset after many samples to follow changes
+    private void recordLatency(long nanos) {
+        latencyHistogram.record(nanos);
+        long count = latencyHistogram.getCount();
+        if (count >= Min_Delay_Samples && count % Delay_Refresh_Interval == 0)
+            delayNanos = Math.max(minDelayNanos, latencyHistogram.getPercentileNanos(delayPercentile));
+        if (count >= Histogram_Reset_Count) latencyHistogram.reset();
+    }
+
+    private void earnTokens() {
+        long tokens;
+        do {
+            tokens = budgetTokens.get();
+            if (tokens >= Max_Budget_Tokens) return;
+        } while (!budgetTokens.compareAndSet(tokens, Math.min(Max_Budget_Tokens, tokens + tokensPerQuery)));
+    }
+
+    private boolean acquireToken() {
+        long tokens;
+        do {
+            tokens = budgetTokens.get();
+            if (tokens < Token_Unit) return false;
+        } while (!budgetTokens.compareAndSet(tokens, tokens - Token_Unit));
+        return true;
+    }
+
+    //***************************************************************************************************************//
+    //                                3: statistics methods(5)                                                       //
+    //***************************************************************************************************************//
+    double getDelayMs() {
+        return LatencyHistogram.toMillis(delayNanos);
+    }
+
+    long getQueryCount() {
+        return queryCount.sum();
+    }
+
+    long getHedgeCount() {
+        return hedgeCount.sum();
+    }
+
+    long getHedgeWinCount() {
+        return hedgeWinCount.sum();
+    }
+
+    long getBudgetRejectCount() {
+        return budgetRejectCount.sum();
+    }
+
+    //race of original query and hedged query
+    private static final class HedgedCall<T> {
+        private final Statement[] statements = new Statement[2];
+        private int launchedCount = 1;
+        private int failedCount;
+        private boolean done;
+        private boolean succeeded;
+        private int winnerIndex = -1;
+        private T result;
+        private Throwable failCause;
+
+        synchronized boolean setStatement(int index, Statement statement) {
+            if (done) return false;
+            statements[index] = statement;
+            return true;
+        }
+
+        synchronized boolean launchHedge() {
+            if (done) return false;
+            launchedCount = 2;
+            return true;
+        }
+
+        //hedge launched but not run
+        synchronized void abortHedge() {
+            launchedCount = 1;
+            if (!done && failedCount > 0) {
+                done = true;
+                notifyAll();
+            }
+        }
+
+        boolean complete(int index, T value) {
+            Statement loser;
+            synchronized (this) {
+                if (done) return false;
+                done = true;
+                succeeded = true;
+                winnerIndex = index;
+                result = value;
+                loser = statements[1 - index];
+                notifyAll();
+            }
+            if (loser != null) {
+                try {
+                    loser.cancel();
+                } catch (Throwable e) {
+                    //do nothing
+                }
+            }
+            return true;
+        }
+
+        synchronized boolean isCompletedBy(int index) {
+            return winnerIndex == index;
+        }
+
+        synchronized void fail(int index, Throwable e) {
+            if (done) return;
+            if (failCause == null) failCause = e;
+            if (++failedCount == launchedCount) {
+                done = true;
+                notifyAll();
+            }
+        }
+
+        synchronized T await() throws SQLException {
+            try {
+                while (!done) wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting hedged query", e);
+            }
+            if (succeeded) return result;
+            if (failCause instanceof SQLException) throw (SQLException) failCause;
+            if (failCause instanceof RuntimeException) throw (RuntimeException) failCause;
+            if (failCause instanceof Error) throw (Error) failCause;
+            throw new SQLException(failCause);
+        }
+    }
+}
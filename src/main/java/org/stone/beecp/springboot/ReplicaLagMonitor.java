@@ -0,0 +1,183 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.util.concurrent.*;
+
+/**
+ * Lag monitor of read-write group replicas,a replica is ejected from read routing when its lag or probe time
+ * is over max value(or probe failed),and re-admitted after consecutive probes under recover values(hysteresis).
+ * Probes are scheduled by own thread and run in parallel on probe threads,a probe not completed in max probe time
+ * ejects its replica without waiting,so a blocked borrow or query stalls neither other replicas nor shared timers.
+ *
+ * @author Chris Liao
+ */
+final class ReplicaLagMonitor implements Runnable {
+    private static final Logger Log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final String groupId;
+    private final ReplicaLagProbe probe;
+    private final long probeInterval;
+    private final long maxLag;
+    private final long recoverLag;
+    private final long maxProbeTime;
+    private final int recoverProbes;
+    private SpringBootDataSource[] replicas;
+    private ReplicaHealth[] healths;
+    private ThreadPoolExecutor probeExecutor;
+
+    ReplicaLagMonitor(String groupId, ReplicaLagProbe probe, long probeInterval, long maxLag, long recoverLag, long maxProbeTime, int recoverProbes) {
+        this.groupId = groupId;
+        this.probe = probe;
+        this.probeInterval = probeInterval;
+        this.maxLag = maxLag;
+        this.recoverLag = recoverLag;
+        this.maxProbeTime = maxProbeTime;
+        this.recoverProbes = recoverProbes;
+    }
+
+    //called once by group dataSource
+    void init(SpringBootDataSource[] replicas) {
+        this.replicas = replicas;
+        this.healths = new ReplicaHealth[replicas.length];
+        for (int i = 0; i < replicas.length; i++)
+            healths[i] = new ReplicaHealth(replicas[i].getDsId());
+    }
+
+    //start probes with fixed delay,called once after group registered
+    void start() {
+        ThreadFactory threadFactory = r -> {
+            Thread th = new Thread(r, "ReplicaLagMonitor-" + groupId);
+            th.setDaemon(true);
+            return th;
+        };
+        probeExecutor = new ThreadPoolExecutor(replicas.length, replicas.length, 15, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        probeExecutor.allowCoreThreadTimeOut(true);
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+        scheduler.scheduleWithFixedDelay(this, 0, probeInterval, TimeUnit.MILLISECONDS);
+    }
+
+    boolean isAvailable(int index) {
+        return healths[index].available;
+    }
+
+    ReplicaHealth[] getHealths() {
+        return healths;
+    }
+
+    //a replica is not probed again while its last probe is running
+    public void run() {
+        long now = System.nanoTime();
+        for (int i = 0; i < replicas.length; i++) {
+            ReplicaHealth health = healths[i];
+            if (!health.probing) {
+                health.probing = true;
+                health.probeStartTime = now;
+                int index = i;
+                probeExecutor.execute(() -> probe(index));
+            } else {
+                long probeTime = TimeUnit.NANOSECONDS.toMillis(now - health.probeStartTime);
+                if (probeTime > maxProbeTime)
+                    update(replicas[i], health, -1, probeTime, "probe not completed in " + maxProbeTime + "ms");
+            }
+        }
+    }
+
+    void probe(int index) {
+        SpringBootDataSource replica = replicas[index];
+        ReplicaHealth health = healths[index];
+        long lag = -1;
+        String failCause = null;
+        long startTime = health.probing ? health.probeStartTime : System.nanoTime();
+        try (Connection con = replica.getRawConnection()) {
+            lag = probe.probe(replica.getDsId(), con);
+        } catch (Throwable e) {
+            failCause = e.toString();
+        } finally {
+            health.probing = false;
+        }
+        update(replica, health, lag, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), failCause);
+    }
+
+    //updated by probe thread at end of probe and by schedule thread when probe timeout
+    private synchronized void update(SpringBootDataSource replica, ReplicaHealth health, long lag, long probeTime, String failCause) {
+        health.lagMs = lag;
+        health.probeTimeMs = probeTime;
+        health.probeFailCause = failCause;
+        health.lastProbeTimeMs = System.currentTimeMillis();
+
+        if (failCause != null || lag > maxLag || probeTime > maxProbeTime) {
+            health.recoverCount = 0;
+            if (health.available) {
+                health.available = false;
+                Log.warn("Group({})-replica({}) ejected from read routing,lag:{}ms,probe time:{}ms,cause:{}", groupId, replica.getDsId(), lag, probeTime, failCause);
+            }
+        } else if (!health.available) {
+            if (lag <= recoverLag && probeTime <= maxProbeTime && ++health.recoverCount >= recoverProbes) {
+                health.recoverCount = 0;
+                health.available = true;
+                Log.info("Group({})-replica({}) re-admitted to read routing,lag:{}ms,probe time:{}ms", groupId, replica.getDsId(), lag, probeTime);
+            } else if (lag > recoverLag) {
+                health.recoverCount = 0;
+            }
+        }
+    }
+
+    //health state of a replica,updated under lock of monitor
+    public static final class ReplicaHealth {
+        private final String dsId;
+        private volatile boolean available = true;
+        private volatile long lagMs = -1;//-1 means not probed or failed
+        private volatile long probeTimeMs;
+        private volatile long lastProbeTimeMs;
+        private volatile String probeFailCause;
+        private int recoverCount;
+        private volatile boolean probing;
+        private volatile long probeStartTime;//nanoseconds
+
+        ReplicaHealth(String dsId) {
+            this.dsId = dsId;
+        }
+
+        public String getDsId() {
+            return dsId;
+        }
+
+        public boolean isAvailable() {
+            return available;
+        }
+
+        public long getLagMs() {
+            return lagMs;
+        }
+
+        public long getProbeTimeMs() {
+            return probeTimeMs;
+        }
+
+        public long getLastProbeTimeMs() {
+            return lastProbeTimeMs;
+        }
+
+        public String getProbeFailCause() {
+            return probeFailCause;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Replication lag probe of read-write group replicas,called on a connection of replica periodically,
+ * connection is not traced and closed after call.
+ *
+ * @author Chris Liao
+ */
+public interface ReplicaLagProbe {
+
+    //return replication lag of replica in milliseconds
+    long probe(String dsId, Connection con) throws SQLException;
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.stone.beecp.springboot.factory.SpringBootDataSourceException;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluator of shard key expression on {@code @DsId},parsed once per method and cached.
+ * Parameter references(#userId,#p0,#a0) are resolved to argument index without SpEL,
+ * other expressions are evaluated by SpEL in mixed compiler mode.
+ *
+ * @author Chris Liao
+ */
+final class ShardKeyEvaluator {
+    private static final Pattern Parameter_Pattern = Pattern.compile("#([ap](\\d+)|[A-Za-z_$][\\w$]*)");
+    private static final ConcurrentHashMap<Method, ShardKeyEvaluator> EvaluatorMap = new ConcurrentHashMap<>(16);
+    private static final ParameterNameDiscoverer NameDiscoverer = new DefaultParameterNameDiscoverer();
+    private static final SpelExpressionParser Parser = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, ShardKeyEvaluator.class.getClassLoader()));
+
+    private final Method method;
+    private final int parameterIndex;//-1 when evaluated by SpEL
+    private final Expression expression;
+
+    private ShardKeyEvaluator(Method method, String shardKey) {
+        this.method = method;
+        int index = -1;
+        Matcher matcher = Parameter_Pattern.matcher(shardKey.trim());
+        if (matcher.matches()) {
+            if (matcher.group(2) != null) {
+                index = Integer.parseInt(matcher.group(2));
+            } else {
+                String[] names = NameDiscoverer.getParameterNames(method);
+                if (names != null) {
+                    for (int i = 0; i < names.length; i++)
+                        if (names[i].equals(matcher.group(1))) index = i;
+                }
+            }
+            if (index >= method.getParameterCount()) index = -1;
+        }
+        this.parameterIndex = index;
+
+        try {
+            this.expression = index >= 0 ? null : Parser.parseExpression(shardKey);
+        } catch (Exception e) {
+            throw new SpringBootDataSourceException("Invalid shardKey(" + shardKey + ") on method:" + method, e);
+        }
+    }
+
+    static ShardKeyEvaluator get(Method method, String shardKey) {
+        ShardKeyEvaluator evaluator = EvaluatorMap.get(method);
+        return evaluator != null ? evaluator : EvaluatorMap.computeIfAbsent(method, m -> new ShardKeyEvaluator(m, shardKey));
+    }
+
+    Object evaluate(Object target, Object[] args) {
+        if (parameterIndex >= 0) return args[parameterIndex];
+        return expression.getValue(new MethodBasedEvaluationContext(target, method, args, NameDiscoverer));
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.util.ReflectionUtils;
+import org.stone.beecp.springboot.annotation.DsId;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.stone.tools.CommonUtil.isBlank;
+
+/*
+ *  Scanner of bean methods at startup,shard key expressions on DsId are parsed and cached before calls,
+ *  so invalid expressions fail at startup.
+ *
+ *  @author Chris Liao
+ */
+public class ShardKeyExpressionScanner implements BeanPostProcessor {
+    private final Set<Class<?>> scannedClassSet = ConcurrentHashMap.newKeySet();
+
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> targetClass = AopUtils.getTargetClass(bean);
+        if (scannedClassSet.add(targetClass)) {
+            ReflectionUtils.doWithMethods(targetClass, method -> {
+                DsId annotation = method.getAnnotation(DsId.class);
+                if (annotation != null && !isBlank(annotation.shardKey()))
+                    ShardKeyEvaluator.get(method, annotation.shardKey());
+            }, ReflectionUtils.USER_DECLARED_METHODS);
+        }
+        return bean;
+    }
+}
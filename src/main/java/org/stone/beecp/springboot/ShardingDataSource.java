@@ -0,0 +1,202 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Sharding group dataSource,connections are borrowed from the shard mapped from shard key of current thread,
+ * shard key is set by aspect on {@code @DsId(shardKey="#userId")} methods.Shard key is mapped by one of strategies:
+ * hashMod(key modulo shard size),range(ascending upper bounds of shards) and consistentHash(ring with virtual nodes).
+ *
+ * @author Chris Liao
+ */
+public class ShardingDataSource implements DataSource {
+    static final String Strategy_HashMod = "hashMod";
+    static final String Strategy_Range = "range";
+    static final String Strategy_ConsistentHash = "consistentHash";
+    //shard key of current thread,null when not in any sharding method
+    private static final ThreadLocal<Object> ShardKey = new ThreadLocal<>();
+
+    private final String groupId;
+    private final SpringBootDataSource[] shards;
+    private final String strategy;
+    private final long[] rangeBounds;//exclusive upper bounds of shards except last one(range strategy)
+    private final long[] ringHashes;//sorted hashes of virtual nodes(consistentHash strategy)
+    private final int[] ringShards;//shard index of virtual nodes
+
+    ShardingDataSource(String groupId, SpringBootDataSource[] shards, String strategy, long[] rangeBounds, int virtualNodes) {
+        this.groupId = groupId;
+        this.shards = shards;
+        this.strategy = strategy;
+        this.rangeBounds = rangeBounds;
+
+        if (Strategy_ConsistentHash.equals(strategy)) {
+            int size = shards.length * virtualNodes;
+            long[][] nodes = new long[size][];
+            for (int i = 0; i < shards.length; i++)
+                for (int j = 0; j < virtualNodes; j++)
+                    nodes[i * virtualNodes + j] = new long[]{hash(shards[i].getDsId() + "#" + j), i};
+            Arrays.sort(nodes, (n1, n2) -> Long.compare(n1[0], n2[0]));
+            this.ringHashes = new long[size];
+            this.ringShards = new int[size];
+            for (int i = 0; i < size; i++) {
+                ringHashes[i] = nodes[i][0];
+                ringShards[i] = (int) nodes[i][1];
+            }
+        } else {
+            this.ringHashes = null;
+            this.ringShards = null;
+        }
+    }
+
+    //***************************************************************************************************************//
+    //                                1: shard key methods(2)                                                        //
+    //***************************************************************************************************************//
+    static Object beginShard(Object key) {
+        Object previous = ShardKey.get();
+        ShardKey.set(key);
+        return previous;
+    }
+
+    static void endShard(Object previous) {
+        if (previous == null)
+            ShardKey.remove();
+        else
+            ShardKey.set(previous);
+    }
+
+    //***************************************************************************************************************//
+    //                                2: shard map methods(6)                                                        //
+    //***************************************************************************************************************//
+    public String getGroupId() {
+        return groupId;
+    }
+
+    //shard of a key,usable for routing in code
+    public SpringBootDataSource getShard(Object key) {
+        return shards[getShardIndex(key)];
+    }
+
+    int getShardIndex(Object key) {
+        switch (strategy) {
+            case Strategy_Range: {
+                long value = toLong(key);
+                int low = 0, high = rangeBounds.length;//first bound greater than value
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (rangeBounds[mid] > value) high = mid;
+                    else low = mid + 1;
+                }
+                return low;
+            }
+            case Strategy_ConsistentHash: {
+                int index = Arrays.binarySearch(ringHashes, hash(key.toString()));
+                if (index < 0) index = -index - 1;//insertion point is next node on ring
+                return ringShards[index == ringHashes.length ? 0 : index];
+            }
+            default: {
+                long value = isIntegral(key) ? ((Number) key).longValue() : hash(key.toString());
+                return (int) Math.floorMod(value, (long) shards.length);
+            }
+        }
+    }
+
+    private SpringBootDataSource getCurrentDataSource() throws SQLException {
+        Object key = ShardKey.get();
+        if (key == null)
+            throw new SQLException("DataSource(" + groupId + ")-Not found shard key,set it by @DsId(shardKey=...) on method");
+        return shards[getShardIndex(key)];
+    }
+
+    private static boolean isIntegral(Object key) {
+        return key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte;
+    }
+
+    private static long toLong(Object key) {
+        if (key instanceof Number) return ((Number) key).longValue();
+        try {
+            return Long.parseLong(key.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Shard key(" + key + ") is not a number for range strategy");
+        }
+    }
+
+    //fnv-1a with murmur3 finalizer,stable across jvm
+    static long hash(String text) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, len = text.length(); i < len; i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    //***************************************************************************************************************//
+    //                                3: dataSource methods                                                          //
+    //***************************************************************************************************************//
+    public Connection getConnection() throws SQLException {
+        return getCurrentDataSource().getConnection();
+    }
+
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getCurrentDataSource().getConnection(username, password);
+    }
+
+    public PrintWriter getLogWriter() throws SQLException {
+        return shards[0].getLogWriter();
+    }
+
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        for (SpringBootDataSource shard : shards)
+            shard.setLogWriter(out);
+    }
+
+    public int getLoginTimeout() throws SQLException {
+        return shards[0].getLoginTimeout();
+    }
+
+    public void setLoginTimeout(int seconds) throws SQLException {
+        for (SpringBootDataSource shard : shards)
+            shard.setLoginTimeout(seconds);
+    }
+
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return shards[0].getParentLogger();
+    }
+
+    public <T> T unwrap(Class<T> face) throws SQLException {
+        if (face != null && face.isInstance(this))
+            return face.cast(this);
+        else
+            throw new SQLException("Wrapped object was not an instance of " + face);
+    }
+
+    public boolean isWrapperFor(Class<?> face) {
+        return face != null && face.isInstance(this);
+    }
+}
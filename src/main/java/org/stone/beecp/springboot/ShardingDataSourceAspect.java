@@ -0,0 +1,63 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.annotation.Order;
+import org.stone.beecp.springboot.annotation.DsId;
+
+import java.lang.reflect.Method;
+
+import static org.stone.tools.CommonUtil.isBlank;
+
+/*
+ *  Shard key Aspect of DsId annotation
+ *
+ *  @author Chris Liao
+ */
+
+@Aspect
+@Order(1)
+public class ShardingDataSourceAspect {
+
+    //*********************************aspect methods begin **********************************************************//
+    @Pointcut("@annotation(org.stone.beecp.springboot.annotation.DsId)")
+    public void pointcut() {
+        //do nothing
+    }
+
+    @Around("pointcut()")
+    public Object setShardKey(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        DsId annotation = method.getAnnotation(DsId.class);
+        if (isBlank(annotation.shardKey())) return joinPoint.proceed();
+
+        Object key = ShardKeyEvaluator.get(method, annotation.shardKey()).evaluate(joinPoint.getTarget(), joinPoint.getArgs());
+        if (key == null)
+            throw new IllegalArgumentException("Shard key(" + annotation.shardKey() + ") of method(" + method.getName() + ") is null");
+        Object previous = ShardingDataSource.beginShard(key);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ShardingDataSource.endShard(previous);
+        }
+    }
+    //***************************************************************************************************************//
+}
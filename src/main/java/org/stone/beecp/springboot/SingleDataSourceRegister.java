@@ -47,7 +47,7 @@ import static org.stone.tools.CommonUtil.isBlank;
 @ConditionalOnProperty(name = "spring.datasource.type", havingValue = "org.stone.beecp.BeeDataSource")
 @AutoConfigureBefore(DataSourceAutoConfiguration.class)
 public class SingleDataSourceRegister {
-    @Bean
+    @Bean(destroyMethod = "detach")
     public DataSource beeDataSource(Environment environment) throws Exception {
         //1:read ds Id
         String dsId = SpringBootDataSourceUtil.getConfigValue(SpringBootDataSourceUtil.Config_DS_Prefix, SpringBootDataSourceUtil.Config_DS_Id, environment);
@@ -21,7 +21,11 @@ import org.stone.beecp.BeeConnectionPoolMonitorVo;
 import org.stone.beecp.BeeDataSource;
 import org.stone.beecp.jta.BeeJtaDataSource;
 import org.stone.beecp.pool.FastConnectionPoolMonitorVo;
+import org.stone.beecp.springboot.jfr.JfrEvents;
+import org.stone.beecp.springboot.request.RequestTrace;
+import org.stone.beecp.springboot.statement.StatementTraceContext;
 import org.stone.beecp.springboot.statement.StatementTraceUtil;
+import org.stone.beecp.springboot.util.LatencyHistogram;
 
 import javax.sql.DataSource;
 import java.io.PrintWriter;
@@ -30,7 +34,11 @@ import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * statement datasource
@@ -39,6 +47,7 @@ import java.util.UUID;
  */
 public class SpringBootDataSource implements DataSource {
     private final static Logger Log = LoggerFactory.getLogger(SpringBootDataSource.class);
+    private final static long Pool_Vo_Cache_Nanos = TimeUnit.SECONDS.toNanos(1);
     private final String dsId;
     private final String dsUUID;
     private final DataSource ds;
@@ -46,7 +55,24 @@ public class SpringBootDataSource implements DataSource {
     private final boolean isBeeDs;
 
     private boolean primary;
-    private boolean traceSql;
+    private double sqlTraceSampleRate = -1;//not set,global rate used
+    private StatementTraceContext traceContext;//null when sql trace off
+    private volatile boolean sqlTraceEnabled = true;//runtime switch of sql trace(jmx)
+
+    private ConnectionHoldTracker holdTracker;//null when hold trace off
+    private volatile BeeConnectionPoolMonitorVo cachedPoolVo;
+    private volatile long poolVoCachedTime;
+    private volatile boolean poolVoCached;
+    private int statementCacheSize;//zero means no cache
+    private Class<?> statementCacheUnwrapClass;//physical connection type unwrapped for statement cache,null for Connection
+    private StatementCacheTracker statementCacheTracker;//null when no cache
+    private DataSourceCircuitBreaker circuitBreaker;//null when breaker off
+
+    //connection borrow statistics(always on)
+    private final LatencyHistogram borrowHistogram = new LatencyHistogram();
+    private final LongAdder borrowTimeoutCount = new LongAdder();
+    private final LongAdder borrowWaitingSize = new LongAdder();
+    private LongAdder activeCount;//borrowed and not closed connections,null when not counted
     private Method poolMonitorVoMethod;
     private Method poolRestartPoolMethod;
     private boolean notSetBeeDsId = true;
@@ -73,18 +99,182 @@ public class SpringBootDataSource implements DataSource {
         this.primary = primary;
     }
 
-    void setTraceSql(boolean traceSql) {
-        this.traceSql = traceSql;
+    String getDsUUID() {
+        return dsUUID;
+    }
+
+    double getSqlTraceSampleRate() {
+        return sqlTraceSampleRate;
+    }
+
+    void setSqlTraceSampleRate(double sqlTraceSampleRate) {
+        this.sqlTraceSampleRate = sqlTraceSampleRate;
+    }
+
+    StatementTraceContext getTraceContext() {
+        return traceContext;
+    }
+
+    void setTraceContext(StatementTraceContext traceContext) {
+        this.traceContext = traceContext;
+    }
+
+    boolean isSqlTraceEnabled() {
+        return traceContext != null && sqlTraceEnabled;
+    }
+
+    //new borrowed connections are traced or not,borrowed ones are not changed
+    void setSqlTraceEnabled(boolean sqlTraceEnabled) {
+        if (traceContext == null) throw new IllegalStateException("Sql trace is off in monitor config");
+        this.sqlTraceEnabled = sqlTraceEnabled;
+    }
+
+    ConnectionHoldTracker getHoldTracker() {
+        return holdTracker;
+    }
+
+    void setHoldTracker(ConnectionHoldTracker holdTracker) {
+        this.holdTracker = holdTracker;
+    }
+
+    int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    Class<?> getStatementCacheUnwrapClass() {
+        return statementCacheUnwrapClass;
+    }
+
+    void setStatementCacheUnwrapClass(Class<?> statementCacheUnwrapClass) {
+        this.statementCacheUnwrapClass = statementCacheUnwrapClass;
+    }
+
+    StatementCacheTracker getStatementCacheTracker() {
+        return statementCacheTracker;
+    }
+
+    void setStatementCacheTracker(StatementCacheTracker statementCacheTracker) {
+        this.statementCacheTracker = statementCacheTracker;
+    }
+
+    LatencyHistogram getBorrowHistogram() {
+        return borrowHistogram;
+    }
+
+    long getBorrowTimeoutCount() {
+        return borrowTimeoutCount.sum();
+    }
+
+    long getBorrowWaitingSize() {
+        return borrowWaitingSize.sum();
+    }
+
+    //counted for leastActive balance of read-write groups
+    void enableActiveCount() {
+        if (activeCount == null) activeCount = new LongAdder();
+    }
+
+    //active connections and waiting borrowers,zero when not counted
+    long getActiveCount() {
+        return activeCount != null ? activeCount.sum() + borrowWaitingSize.sum() : 0L;
+    }
+
+    DataSourceCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    void setCircuitBreaker(DataSourceCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    String getFailoverDsId() {
+        return circuitBreaker != null ? circuitBreaker.getFailoverDsId() : null;
     }
 
     public Connection getConnection() throws SQLException {
-        Connection con = ds.getConnection();
-        return traceSql ? StatementTraceUtil.createConnection(con, dsId, dsUUID) : con;
+        return getConnection(false, null, null, true);
     }
 
     public Connection getConnection(String username, String password) throws SQLException {
-        Connection con = ds.getConnection(username, password);
-        return traceSql ? StatementTraceUtil.createConnection(con, dsId, dsUUID) : con;
+        return getConnection(true, username, password, true);
+    }
+
+    private Connection getConnection(boolean withUser, String username, String password, boolean allowFailover) throws SQLException {
+        int acquired = circuitBreaker != null ? circuitBreaker.tryAcquire() : DataSourceCircuitBreaker.Acquire_Passed;
+        if (acquired == DataSourceCircuitBreaker.Acquire_Rejected)
+            return getConnectionOnBreakerOpen(withUser, username, password, allowFailover);
+
+        Connection con = borrowConnection(withUser, username, password, acquired == DataSourceCircuitBreaker.Acquire_Probe);
+        try {
+            if (activeCount != null) con = new ActiveCountedConnection(con, activeCount);
+            if (statementCacheTracker != null) con = statementCacheTracker.wrap(con);
+            if (holdTracker != null) con = holdTracker.track(con);
+            return traceContext != null && sqlTraceEnabled ? StatementTraceUtil.createConnection(con, traceContext) : con;
+        } catch (Throwable e) {//failed to wrap then return borrowed connection to pool
+            try {
+                con.close();
+            } catch (Throwable ce) {
+                Log.debug("Failed to close connection after wrap failure", ce);
+            }
+            throw e;
+        }
+    }
+
+    //fail over to backup datasource when configured,backup datasource does not fail over further
+    private Connection getConnectionOnBreakerOpen(boolean withUser, String username, String password, boolean allowFailover) throws SQLException {
+        String failoverDsId = circuitBreaker.getFailoverDsId();
+        SpringBootDataSource failoverDs = allowFailover && failoverDsId != null ? SpringBootDataSourceManager.getInstance().getSpringBootDataSource(failoverDsId) : null;
+        if (failoverDs == null) {
+            circuitBreaker.recordFastFail();
+            throw circuitBreaker.createOpenException();
+        }
+        circuitBreaker.recordFailover();
+        return failoverDs.getConnection(withUser, username, password, false);
+    }
+
+    //connection for internal probes,not traced and not recorded to borrow statistics
+    Connection getRawConnection() throws SQLException {
+        return ds.getConnection();
+    }
+
+    //borrow from pool with wait time recorded,failed borrows are recorded too
+    private Connection borrowConnection(boolean withUser, String username, String password, boolean probe) throws SQLException {
+        borrowWaitingSize.increment();
+        Object jfrEvent = JfrEvents.beginConnectionBorrow();
+        long startTime = System.nanoTime();
+        boolean success = false, timeout = false;
+        SQLException failCause = null;
+        try {
+            Connection con = withUser ? ds.getConnection(username, password) : ds.getConnection();
+            success = true;
+            return con;
+        } catch (SQLException e) {
+            if (timeout = isBorrowTimeout(e)) borrowTimeoutCount.increment();
+            failCause = e;
+            throw e;
+        } finally {
+            //non fatal exceptions are answers of database,so they close breaker too
+            if (circuitBreaker != null) {
+                if (success || (failCause != null && !timeout && !circuitBreaker.isFatal(failCause)))
+                    circuitBreaker.onSuccess(probe);
+                else
+                    circuitBreaker.onFailure(failCause, probe);
+            }
+            long borrowTime = System.nanoTime() - startTime;
+            borrowHistogram.record(borrowTime);
+            borrowWaitingSize.decrement();
+            RequestTrace.recordBorrow(borrowTime);
+            JfrEvents.commitConnectionBorrow(jfrEvent, dsId, success, timeout);
+        }
+    }
+
+    private static boolean isBorrowTimeout(SQLException e) {
+        return e instanceof SQLTimeoutException || e instanceof SQLTransientConnectionException
+                || e.getClass().getSimpleName().contains("Timeout");
     }
 
     public PrintWriter getLogWriter() throws SQLException {
@@ -122,12 +312,22 @@ public class SpringBootDataSource implements DataSource {
         if (!jndiDs) SpringBootDataSourceUtil.tryToCloseDataSource(ds);
     }
 
+    //destroy method of bean,remove from manager(jmx bean unregistered),pool is not closed here
+    void detach() {
+        SpringBootDataSourceManager.getInstance().removeSpringBootDataSource(this);
+    }
+
     void restartPool() {
         if (poolRestartPoolMethod != null) {
+            Object jfrEvent = JfrEvents.beginPoolRestart();
+            boolean success = false;
             try {
                 poolRestartPoolMethod.invoke(ds, false);
+                success = true;
             } catch (Throwable e) {
                 Log.warn("Failed to execute dataSource 'restartPool' method", e);
+            } finally {
+                JfrEvents.commitPoolRestart(jfrEvent, dsId, success);
             }
         }
     }
@@ -145,6 +345,17 @@ public class SpringBootDataSource implements DataSource {
         return null;
     }
 
+    //pool snapshot reused within cache time,so frequent metric reads don't call pool every time
+    BeeConnectionPoolMonitorVo getCachedPoolMonitorVo() {
+        long currentTime = System.nanoTime();
+        if (!poolVoCached || currentTime - poolVoCachedTime >= Pool_Vo_Cache_Nanos) {
+            cachedPoolVo = getPoolMonitorVo();
+            poolVoCachedTime = currentTime;
+            poolVoCached = true;
+        }
+        return cachedPoolVo;
+    }
+
     private synchronized void setBeeDsIdToMonitorSingletonVo(BeeConnectionPoolMonitorVo vo) {
         setValueToField(vo, "dsId", dsId);
         setValueToField(vo, "dsUUID", dsUUID);
@@ -19,17 +19,32 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.stone.beecp.BeeConnectionPoolMonitorVo;
 import org.stone.beecp.springboot.monitor.redis.RedisPushTask;
+import org.stone.beecp.springboot.request.RequestStat;
+import org.stone.beecp.springboot.request.RequestStatCollector;
+import org.stone.beecp.springboot.request.RequestTrace;
+import org.stone.beecp.springboot.statement.StatementStat;
 import org.stone.beecp.springboot.statement.StatementTrace;
+import org.stone.beecp.springboot.statement.StatementJournal;
+import org.stone.beecp.springboot.statement.StatementJournalRecord;
+import org.stone.beecp.springboot.statement.StatementParameterCapture;
+import org.stone.beecp.springboot.statement.StatementParameters;
 import org.stone.beecp.springboot.statement.StatementTraceAlert;
+import org.stone.beecp.springboot.statement.StatementTraceBuffer;
+import org.stone.beecp.springboot.statement.StatementTraceContext;
+import org.stone.beecp.springboot.statement.StatementTraceSampler;
+import org.stone.beecp.springboot.statement.StatementTopList;
+import org.stone.beecp.springboot.statement.StatementTopSketch;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.sql.Statement;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.stone.tools.CommonUtil.isBlank;
@@ -41,19 +56,41 @@ import static org.stone.tools.CommonUtil.isBlank;
  */
 public class SpringBootDataSourceManager {
     private static final int POOL_CLOSED = 3;
+    private static final int Max_Journal_Read_Size = 1000;
+    private static final long Statement_Cache_Scan_Period = TimeUnit.MINUTES.toMillis(1);
+    private static final String Jmx_Domain = "org.stone.beecp.springboot";
     private final static SpringBootDataSourceManager instance = new SpringBootDataSourceManager();
     private final Map<String, SpringBootDataSource> dsMap;
+    private final Map<String, ReadWriteDataSource> groupMap = new ConcurrentHashMap<>(1);
     private final ScheduledThreadPoolExecutor timerExecutor;
     private final Logger Log = LoggerFactory.getLogger(SpringBootDataSourceManager.class);
 
     private boolean sqlShow;
     private boolean sqlTrace;
-    private long sqlExecSlowTime;
+    private long sqlExecSlowNanos;
     private long sqlTraceTimeout;
-    private int sqlTraceMaxSize;
     private StatementTraceAlert sqlTraceAlert;
-    private AtomicInteger sqlTracedSize;
-    private ConcurrentLinkedDeque<StatementTrace> sqlTraceQueue;
+    private StatementTraceBuffer sqlTraceBuffer;
+    private String sqlTraceSampleMode;
+    private double sqlTraceSampleRate;
+    private int sqlTraceTailSampleInterval;
+    private int sqlStatMaxSize;
+    private int sqlTopSize;//zero means top sql off
+    private long sqlTopWindowTime;
+    private int sqlTopWindowCount;
+    private boolean sqlTraceResultSet;
+    private boolean sqlExecHistogramWindowed;//window histogram reset periodically
+    private StatementParameterCapture sqlTraceParameterCapture;
+    private StatementJournal sqlJournal;//null when journal off
+    private boolean connectionHoldTrace;
+    private long connectionHoldThresholdNanos;
+    private int connectionHoldStackSampleInterval;
+    private boolean statementCacheScanScheduled;
+    private boolean monitorJmx;
+    private boolean jmxListenerAdded;//manager is shared by refreshed contexts
+    private RequestStatCollector requestStatCollector;//null when request trace off
+    private final PrometheusMetricsWriter metricsWriter = new PrometheusMetricsWriter();
+    private final List<Consumer<SpringBootDataSource>> dsListenerList = new CopyOnWriteArrayList<>();
 
     private SpringBootDataSourceManager() {
         this.dsMap = new ConcurrentHashMap<>(1);
@@ -70,23 +107,82 @@ public class SpringBootDataSourceManager {
         return dsMap.get(dsId);
     }
 
-    void addSpringBootDataSource(SpringBootDataSource ds) {
+    //listener is called with existing datasources and added ones later
+    synchronized void addDataSourceListener(Consumer<SpringBootDataSource> listener) {
+        dsListenerList.add(listener);
+        for (SpringBootDataSource ds : dsMap.values())
+            listener.accept(ds);
+    }
+
+    //lag probes of replicas run on own threads of group,isolated from timer thread
+    void addReadWriteDataSource(ReadWriteDataSource ds) {
+        groupMap.put(ds.getGroupId(), ds);
+        ReplicaLagMonitor lagMonitor = ds.getLagMonitor();
+        if (lagMonitor != null) lagMonitor.start();
+    }
+
+    synchronized void addSpringBootDataSource(SpringBootDataSource ds) {
         dsMap.put(ds.getDsId(), ds);
-        ds.setTraceSql(sqlTrace);
+        if (sqlTrace) {
+            double sampleRate = ds.getSqlTraceSampleRate() >= 0 ? ds.getSqlTraceSampleRate() : sqlTraceSampleRate;
+            StatementTraceSampler sampler = new StatementTraceSampler(sqlTraceSampleMode, sampleRate, sqlTraceTailSampleInterval);
+            StatementTopSketch topSketch = sqlTopSize > 0 ? new StatementTopSketch(ds.getDsId(), sqlTopSize, sqlTopWindowTime, sqlTopWindowCount) : null;
+            ds.setTraceContext(new StatementTraceContext(ds.getDsId(), ds.getDsUUID(), sampler, sqlTraceResultSet, sqlTraceParameterCapture, sqlStatMaxSize, topSketch, sqlExecHistogramWindowed));
+        }
+        if (connectionHoldTrace)
+            ds.setHoldTracker(new ConnectionHoldTracker(ds.getDsId(), connectionHoldThresholdNanos, connectionHoldStackSampleInterval));
+        if (ds.getStatementCacheSize() > 0) {
+            ds.setStatementCacheTracker(new StatementCacheTracker(ds.getDsId(), ds.getStatementCacheSize(), ds.getStatementCacheUnwrapClass()));
+            scheduleStatementCacheScan();
+        }
+        for (Consumer<SpringBootDataSource> listener : dsListenerList)
+            listener.accept(ds);
+    }
+
+    //called at bean destroy,a datasource replaced by a refreshed context with same id is skipped
+    synchronized void removeSpringBootDataSource(SpringBootDataSource ds) {
+        if (dsMap.remove(ds.getDsId(), ds) && monitorJmx) unregisterJmxBean(ds);
     }
 
     //create sql statement pool
     void setupMonitorConfig(DataSourceMonitorConfig config) {
+        if (connectionHoldTrace = config.isConnectionHoldTrace()) {
+            long threshold = config.getConnectionHoldTimeThreshold();
+            this.connectionHoldThresholdNanos = MILLISECONDS.toNanos(threshold);
+            this.connectionHoldStackSampleInterval = config.getConnectionHoldStackSampleInterval();
+            //scan connections still held over threshold
+            timerExecutor.scheduleAtFixedRate(new ConnectionHoldScanTask(), threshold, threshold, MILLISECONDS);
+        }
+
         if (sqlTrace = config.isSqlTrace()) {
             this.sqlShow = config.isSqlShow();
-            this.sqlExecSlowTime = config.getSqlExecSlowTime();
-            this.sqlTraceMaxSize = config.getSqlTraceMaxSize();
+            this.sqlExecSlowNanos = MILLISECONDS.toNanos(config.getSqlExecSlowTime());
             this.sqlTraceTimeout = config.getSqlTraceTimeout();
             this.sqlTraceAlert = config.getSqlExecAlertAction();
-            this.sqlTracedSize = new AtomicInteger(0);
-            this.sqlTraceQueue = new ConcurrentLinkedDeque<>();
+            this.sqlTraceBuffer = new StatementTraceBuffer(config.getSqlTraceMaxSize());
+            this.sqlTraceSampleMode = config.getSqlTraceSampleMode();
+            this.sqlTraceSampleRate = config.getSqlTraceSampleRate();
+            this.sqlTraceTailSampleInterval = config.getSqlTraceTailSampleInterval();
+            this.sqlStatMaxSize = config.getSqlStatMaxSize();
+            this.sqlTopSize = config.getSqlTopSize();
+            this.sqlTopWindowTime = config.getSqlTopWindowTime();
+            this.sqlTopWindowCount = config.getSqlTopWindowCount();
+            this.sqlTraceResultSet = config.isSqlTraceResultSet();
+            if (config.isSqlTraceParameterCapture())
+                this.sqlTraceParameterCapture = new StatementParameterCapture(config.getSqlTraceParameterMaxLength(),
+                        config.getSqlTraceParameterMaxBytes(), config.getSqlTraceParameterRedactNames());
+            if (!isBlank(config.getSqlJournalDir())) {
+                this.sqlJournal = new StatementJournal(config.getSqlJournalDir(), config.getSqlJournalFileSize(),
+                        config.getSqlJournalMaxFiles(), config.getSqlJournalQueueSize());
+                sqlJournal.start();
+            }
             //sql trace timeout scan
             timerExecutor.scheduleAtFixedRate(new SqlTraceTimeoutTask(), 0, config.getSqlTraceTimeoutScanPeriod(), MILLISECONDS);
+            //execution histogram reset
+            long histogramResetPeriod = config.getSqlExecHistogramResetPeriod();
+            this.sqlExecHistogramWindowed = histogramResetPeriod > 0;
+            if (sqlExecHistogramWindowed)
+                timerExecutor.scheduleAtFixedRate(new ExecHistogramResetTask(), histogramResetPeriod, histogramResetPeriod, MILLISECONDS);
 
             String redisHost = config.getRedisHost();
             if (!isBlank(redisHost)) {//send datasource info to redis
@@ -99,6 +195,44 @@ public class SpringBootDataSourceManager {
                 timerExecutor.scheduleAtFixedRate(new RedisPushTask(pool, expireSeconds), 0, config.getRedisSendPeriod(), MILLISECONDS);
             }
         }
+
+        if (config.isRequestTrace())
+            this.requestStatCollector = new RequestStatCollector(config.getRequestStatMaxSize(), config.getRequestRepeatThreshold());
+
+        //register a jmx bean per datasource
+        if ((monitorJmx = config.isMonitorJmx()) && !jmxListenerAdded) {
+            jmxListenerAdded = true;
+            addDataSourceListener(this::registerJmxBean);
+        }
+    }
+
+    private static ObjectName createJmxName(SpringBootDataSource ds) throws JMException {
+        return new ObjectName(Jmx_Domain + ":type=DataSource,dsId=" + ObjectName.quote(ds.getDsId()));
+    }
+
+    //a registered bean with same name is left by a previous context(refreshed),replace it
+    private void registerJmxBean(SpringBootDataSource ds) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = createJmxName(ds);
+            if (server.isRegistered(name)) {
+                Log.warn("Jmx bean has been registered with name:{},replace it", name);
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new DataSourceMonitorJmxBean(ds), name);
+        } catch (JMException e) {
+            Log.warn("Failed to register jmx bean of datasource:{}", ds.getDsId(), e);
+        }
+    }
+
+    private void unregisterJmxBean(SpringBootDataSource ds) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = createJmxName(ds);
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+        } catch (JMException e) {
+            Log.warn("Failed to unregister jmx bean of datasource:{}", ds.getDsId(), e);
+        }
     }
 
     //clear pool
@@ -107,9 +241,102 @@ public class SpringBootDataSourceManager {
         if (ds != null) ds.restartPool();
     }
 
-    //get sql statement list
+    //get sql statement list(snapshot,newest first)
     public Collection<StatementTrace> getSqlExecutionList() {
-        return sqlTraceQueue;
+        return sqlTraceBuffer != null ? sqlTraceBuffer.snapshot() : Collections.<StatementTrace>emptyList();
+    }
+
+    //get sql fingerprint statistics of all datasources,order by total time desc
+    public List<StatementStat> getSqlStatList() {
+        List<StatementStat> statList = new ArrayList<>();
+        for (SpringBootDataSource ds : dsMap.values()) {
+            StatementTraceContext context = ds.getTraceContext();
+            if (context != null) statList.addAll(context.getStatementStatList());
+        }
+        statList.sort((s1, s2) -> Long.compare(s2.getTotalTimeNanos(), s1.getTotalTimeNanos()));
+        return statList;
+    }
+
+    //end request trace,database time of request is attributed to its endpoint
+    public void endRequestTrace(String endpoint, RequestTrace trace, long elapsedNanos) {
+        if (requestStatCollector != null) requestStatCollector.record(endpoint, trace, elapsedNanos);
+    }
+
+    //endpoint statistics order by database time desc
+    public List<RequestStat> getRequestStatList() {
+        return requestStatCollector != null ? requestStatCollector.getStatList() : Collections.<RequestStat>emptyList();
+    }
+
+    //top sql fingerprints by count and by total time over rolling windows,all datasources when dsId is blank
+    public StatementTopList getTopSqlList(String dsId) {
+        StatementTopList topList = new StatementTopList();
+        for (SpringBootDataSource ds : dsMap.values()) {
+            if (!isBlank(dsId) && !dsId.equals(ds.getDsId())) continue;
+            StatementTraceContext context = ds.getTraceContext();
+            if (context != null && context.getTopSketch() != null)
+                context.getTopSketch().collect(topList.getFrequentList(), topList.getTotalTimeList());
+        }
+        topList.sort();
+        return topList;
+    }
+
+    //metrics of all datasources in prometheus text format
+    public String getPrometheusMetrics() {
+        return metricsWriter.write(dsMap.values());
+    }
+
+    //slow and failed sql from journal files,newest first
+    public List<StatementJournalRecord> getSqlJournalList(String dsId, long startTimeMs, long endTimeMs) throws IOException {
+        if (sqlJournal == null) return Collections.emptyList();
+        return sqlJournal.read(dsId, startTimeMs, endTimeMs, Max_Journal_Read_Size);
+    }
+
+    //get datasource monitor(pool snapshot,borrow and execution latency),datasources of other types have no pool snapshot
+    public List<DataSourceMonitorVo> getDataSourceMonitorVoList() {
+        List<DataSourceMonitorVo> monitorVoList = new ArrayList<>(dsMap.size());
+        Iterator<SpringBootDataSource> iterator = dsMap.values().iterator();
+        while (iterator.hasNext()) {
+            SpringBootDataSource ds = iterator.next();
+            BeeConnectionPoolMonitorVo poolVo = ds.getPoolMonitorVo();//null for datasources of other types
+            if (poolVo != null && poolVo.getPoolState() == POOL_CLOSED) {//POOL_CLOSED
+                iterator.remove();
+            } else {
+                DataSourceMonitorVo vo = new DataSourceMonitorVo(ds.getDsId(), poolVo);
+                vo.setBorrowStat(ds.getBorrowHistogram(), ds.getBorrowTimeoutCount(), ds.getBorrowWaitingSize());
+                DataSourceCircuitBreaker breaker = ds.getCircuitBreaker();
+                if (breaker != null) vo.setBreakerStat(breaker);
+                ConnectionHoldTracker holdTracker = ds.getHoldTracker();
+                if (holdTracker != null) vo.setHoldStat(holdTracker.getHoldHistogram(), holdTracker.getOverThresholdCount());
+                StatementCacheTracker cacheTracker = ds.getStatementCacheTracker();
+                if (cacheTracker != null)
+                    vo.setStatementCacheStat(cacheTracker.getHitCount(), cacheTracker.getMissCount(), cacheTracker.getEvictionCount());
+                StatementTraceContext context = ds.getTraceContext();
+                if (context != null) {
+                    vo.setExecHistogram(context.getExecWindowHistogram());
+                    vo.setTransactionStat(context.getTransactionStat());
+                }
+                monitorVoList.add(vo);
+            }
+        }
+        return monitorVoList;
+    }
+
+    public List<ReadWriteGroupMonitorVo> getGroupMonitorVoList() {
+        List<ReadWriteGroupMonitorVo> monitorVoList = new ArrayList<>(groupMap.size());
+        for (ReadWriteDataSource ds : groupMap.values())
+            monitorVoList.add(ds.getMonitorVo());
+        return monitorVoList;
+    }
+
+    //get borrow call stacks holding connections over threshold,order by count desc
+    public List<ConnectionHoldHotspot> getConnectionHoldHotspotList() {
+        List<ConnectionHoldHotspot> hotspotList = new ArrayList<>();
+        for (SpringBootDataSource ds : dsMap.values()) {
+            ConnectionHoldTracker holdTracker = ds.getHoldTracker();
+            if (holdTracker != null) hotspotList.addAll(holdTracker.getHotspotList());
+        }
+        hotspotList.sort((h1, h2) -> Long.compare(h2.getCount(), h1.getCount()));
+        return hotspotList;
     }
 
     //get pool connection monitor
@@ -129,55 +356,50 @@ public class SpringBootDataSourceManager {
         return poolMonitorVoList;
     }
 
-    //add statement sql
-    public Object traceSqlExecution(StatementTrace vo, Statement statement, Method method, Object[] args) throws Throwable {
-        vo.setMethodName(method.getName());
-        sqlTraceQueue.offerFirst(vo);
-        if (sqlTracedSize.incrementAndGet() > sqlTraceMaxSize) {
-            sqlTraceQueue.pollLast();
-            sqlTracedSize.decrementAndGet();
-        }
+    //begin sql trace,traces of tail sampling are stored at end
+    public void beginSqlTrace(StatementTrace vo, String methodName) {
+        vo.setMethodName(methodName);
+        if (vo.isSampled() && !vo.getContext().getSampler().isTailMode()) sqlTraceBuffer.offer(vo);
+        if (sqlShow) Log.info("Executing sql:{}", vo.getSql());
+    }
 
-        try {
-            if (sqlShow) Log.info("Executing sql:{}", vo.getSql());
-            Object re = method.invoke(statement, args);
+    //end sql trace,failCause is null when execution success
+    public void endSqlTrace(StatementTrace vo, Throwable failCause) {
+        endSqlTrace(vo, failCause, null);
+    }
+
+    //parameters are rendered to trace only when execution failed or slow
+    public void endSqlTrace(StatementTrace vo, Throwable failCause, StatementParameters parameters) {
+        vo.setEndNanoTime(System.nanoTime());
+        if (failCause == null) {
             vo.setSuccessInd(true);
-            return re;
-        } catch (InvocationTargetException e) {
-            vo.setSuccessInd(false);
-            Throwable failedCause = e.getCause();
-            if (failedCause == null) failedCause = e;
-            vo.setFailCause(failedCause);
-            throw failedCause;
-        } catch (Throwable e) {
+            if (vo.getTookTimeNanos() >= sqlExecSlowNanos) vo.setSlowInd(true);//alert
+        } else {
             vo.setSuccessInd(false);
-            vo.setFailCause(e);
-            throw e;
-        } finally {
-            Date endDate = new Date();
-            vo.setEndTimeMs(endDate.getTime());
-            vo.setEndTime(SpringBootDataSourceUtil.formatDate(endDate));
-            vo.setTookTimeMs(vo.getEndTimeMs() - vo.getStartTimeMs());
-            if (vo.isSuccessInd() && vo.getTookTimeMs() >= sqlExecSlowTime)//alert
-                vo.setSlowInd(true);
+            vo.setFailCause(failCause);
+        }
+        if (!vo.isSuccessInd() || vo.isSlowInd()) {
+            if (parameters != null) vo.setParameters(parameters.render());
+            if (sqlJournal != null) sqlJournal.offer(vo);
         }
+
+        StatementTraceContext context = vo.getContext();
+        context.recordExecution(vo);
+        StatementTraceSampler sampler = context.getSampler();
+        if (vo.isSampled() && sampler.isTailMode() && (!vo.isSuccessInd() || vo.isSlowInd() || sampler.sampleOnEnd()))
+            sqlTraceBuffer.offer(vo);
     }
 
     private void removeTimeoutTrace(LinkedList<StatementTrace> sqlAlertTempList) {
-        Iterator<StatementTrace> iterator = sqlTraceQueue.descendingIterator();
-        while (iterator.hasNext()) {
-            StatementTrace vo = iterator.next();
+        for (StatementTrace vo : sqlTraceBuffer.snapshot()) {
             if (vo.getEndTimeMs() > 0 && (!vo.isSuccessInd() || vo.isSlowInd()) && !vo.isAlertedInd()) {//failed or slow
                 vo.setAlertedInd(true);
                 sqlAlertTempList.add(vo);
-                if (sqlShow) Log.info("{} sql:{}", vo.isSlowInd() ? "Slow" : "Error", vo.getSql());
-            }
-
-            if (System.currentTimeMillis() - vo.getStartTimeMs() >= sqlTraceTimeout) {
-                iterator.remove();
-                sqlTracedSize.decrementAndGet();
+                if (sqlShow)
+                    Log.info("{} sql:{}{}", vo.isSlowInd() ? "Slow" : "Error", vo.getSql(), vo.getParameters() != null ? ",parameters:" + vo.getParameters() : "");
             }
         }
+        sqlTraceBuffer.expire(sqlTraceTimeout);
 
         if (!sqlAlertTempList.isEmpty()) { //should be in short time
             try {
@@ -196,6 +418,53 @@ public class SpringBootDataSourceManager {
         }
     }
 
+    private void resetExecHistograms() {
+        for (SpringBootDataSource ds : dsMap.values()) {
+            StatementTraceContext context = ds.getTraceContext();
+            if (context != null) context.resetExecWindowHistogram();
+        }
+    }
+
+    //remove statement caches of closed physical connections
+    private synchronized void scheduleStatementCacheScan() {
+        if (!statementCacheScanScheduled) {
+            statementCacheScanScheduled = true;
+            timerExecutor.scheduleAtFixedRate(new StatementCacheScanTask(), Statement_Cache_Scan_Period, Statement_Cache_Scan_Period, MILLISECONDS);
+        }
+    }
+
+    private void scanStatementCaches() {
+        for (SpringBootDataSource ds : dsMap.values()) {
+            StatementCacheTracker cacheTracker = ds.getStatementCacheTracker();
+            if (cacheTracker != null) cacheTracker.scan();
+        }
+    }
+
+    private void scanConnectionHold() {
+        for (SpringBootDataSource ds : dsMap.values()) {
+            ConnectionHoldTracker holdTracker = ds.getHoldTracker();
+            if (holdTracker != null) holdTracker.scan();
+        }
+    }
+
+    private static final class ConnectionHoldScanTask implements Runnable {
+        public void run() {
+            instance.scanConnectionHold();
+        }
+    }
+
+    private static final class StatementCacheScanTask implements Runnable {
+        public void run() {
+            instance.scanStatementCaches();
+        }
+    }
+
+    private static final class ExecHistogramResetTask implements Runnable {
+        public void run() {
+            instance.resetExecHistograms();
+        }
+    }
+
     private static final class SqlTraceTimeoutTask implements Runnable {
         private LinkedList<StatementTrace> sqlAlertTempList = new LinkedList<>();
 
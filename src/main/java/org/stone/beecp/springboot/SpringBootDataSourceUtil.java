@@ -31,14 +31,11 @@ import javax.naming.InitialContext;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
 import java.io.IOException;
-import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Locale;
-import java.util.Map;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
 import java.util.function.Supplier;
 
 import static org.stone.beecp.pool.ConnectionPoolStatics.*;
@@ -58,16 +55,48 @@ public class SpringBootDataSourceUtil {
     static final String Config_DS_CombineId = "combineId";
     //combineDefaultDs
     static final String Config_DS_Combine_PrimaryDs = "combinePrimaryId";
+    //group dataSource id list on springboot
+    static final String Config_DS_GroupId = "groupId";
 
     //indicator:Spring dataSource assembly as primary datasource
-    private static final String Config_DS_Primary = "primary";
+    static final String Config_DS_Primary = "primary";
     //Datasource class name
     private static final String Config_DS_Type = "type";
     //Spring jndi dataSource configuration key name
     private static final String Config_DS_Jndi = "jndiName";
+    private static final String Config_DS_SqlTraceSampleRate = "sqlTraceSampleRate";
+    private static final String Config_DS_StatementCacheSize = "statementCacheSize";
+    private static final String Config_DS_StatementCacheUnwrapClass = "statementCacheUnwrapClass";
+    private static final String Config_DS_BreakerFailureThreshold = "circuitBreakerFailureThreshold";
+    private static final String Config_DS_BreakerOpenTime = "circuitBreakerOpenTime";
+    private static final String Config_DS_FailoverDsId = "failoverDsId";
+    //group config
+    private static final String Config_Group_Type = "groupType";
+    private static final String Config_Group_PrimaryId = "primaryId";
+    private static final String Config_Group_ReplicaIds = "replicaIds";
+    private static final String Config_Group_BalanceStrategy = "balanceStrategy";
+    private static final String Config_Group_ReplicaWeights = "replicaWeights";
+    private static final String Config_Group_LagProbeSql = "lagProbeSql";
+    private static final String Config_Group_LagProbeClassName = "lagProbeClassName";
+    private static final String Config_Group_LagProbeInterval = "lagProbeInterval";
+    private static final String Config_Group_MaxReplicaLag = "maxReplicaLag";
+    private static final String Config_Group_ReplicaRecoverLag = "replicaRecoverLag";
+    private static final String Config_Group_MaxLagProbeTime = "maxLagProbeTime";
+    private static final String Config_Group_ReplicaRecoverProbes = "replicaRecoverProbes";
+    private static final String Config_Group_Hedge = "hedge";
+    private static final String Config_Group_HedgeDelayPercentile = "hedgeDelayPercentile";
+    private static final String Config_Group_HedgeMinDelay = "hedgeMinDelay";
+    private static final String Config_Group_HedgeBudgetRatio = "hedgeBudgetRatio";
+    private static final String Config_Group_HedgeThreads = "hedgeThreads";
+    private static final String Group_Type_ReadWrite = "readWrite";
+    private static final String Group_Type_Sharding = "sharding";
+    private static final String Config_Group_ShardIds = "shardIds";
+    private static final String Config_Group_ShardStrategy = "shardStrategy";
+    private static final String Config_Group_ShardRanges = "shardRanges";
+    private static final String Config_Group_VirtualNodes = "virtualNodes";
     //BeeCP DataSource class name
     private static final String BeeCP_DS_Class_Name = BeeDataSource.class.getName();
-    private static final ThreadLocal<WeakReference<DateFormat>> DateFormatThreadLocal = new ThreadLocal<WeakReference<DateFormat>>();
+    private static final DateTimeFormatter TraceTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss SSS").withZone(ZoneId.systemDefault());
     private static final Map<Class, SpringBootDataSourceFactory> DataSourceFactoryMap = new HashMap<>(1);
     private static final Logger log = LoggerFactory.getLogger(SpringBootDataSourceUtil.class);
     private static SpringBootJsonTool jsonTool;
@@ -109,13 +138,11 @@ public class SpringBootDataSourceUtil {
 
 
     public static String formatDate(Date date) {
-        WeakReference<DateFormat> reference = DateFormatThreadLocal.get();
-        DateFormat dateFormat = reference != null ? reference.get() : null;
-        if (dateFormat == null) {
-            dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss SSS");
-            DateFormatThreadLocal.set(new WeakReference<>(dateFormat));
-        }
-        return dateFormat.format(date);
+        return formatTime(date.getTime());
+    }
+
+    public static String formatTime(long timeMs) {
+        return TraceTimeFormatter.format(Instant.ofEpochMilli(timeMs));
     }
 
     public static Supplier createSpringSupplier(Object bean) {
@@ -157,9 +184,68 @@ public class SpringBootDataSourceUtil {
 
         String primaryText = getConfigValue(dsPrefix, Config_DS_Primary, environment);
         ds.setPrimary(isBlank(primaryText) ? false : Boolean.valueOf(primaryText));
+
+        String sampleRateText = getConfigValue(dsPrefix, Config_DS_SqlTraceSampleRate, environment);
+        if (!isBlank(sampleRateText)) {
+            double sampleRate;
+            try {
+                sampleRate = Double.parseDouble(sampleRateText.trim());
+            } catch (NumberFormatException e) {
+                sampleRate = -1;
+            }
+            if (sampleRate < 0 || sampleRate > 1)
+                throw new SpringBootDataSourceException("DataSource(" + dsId + ")-Invalid sqlTraceSampleRate:" + sampleRateText + ",valid range:[0,1]");
+            ds.setSqlTraceSampleRate(sampleRate);
+        }
+
+        String cacheSizeText = getConfigValue(dsPrefix, Config_DS_StatementCacheSize, environment);
+        if (!isBlank(cacheSizeText)) {
+            int cacheSize;
+            try {
+                cacheSize = Integer.parseInt(cacheSizeText.trim());
+            } catch (NumberFormatException e) {
+                cacheSize = -1;
+            }
+            if (cacheSize < 0)
+                throw new SpringBootDataSourceException("DataSource(" + dsId + ")-Invalid statementCacheSize:" + cacheSizeText + ",must be not less than zero");
+            ds.setStatementCacheSize(cacheSize);
+        }
+
+        String unwrapClassName = getConfigValue(dsPrefix, Config_DS_StatementCacheUnwrapClass, environment);
+        if (!isBlank(unwrapClassName)) {
+            try {
+                ds.setStatementCacheUnwrapClass(Class.forName(unwrapClassName.trim()));
+            } catch (ClassNotFoundException e) {
+                throw new SpringBootDataSourceException("DataSource(" + dsId + ")-not found statement cache unwrap class:" + unwrapClassName);
+            }
+        }
+
+        String thresholdText = getConfigValue(dsPrefix, Config_DS_BreakerFailureThreshold, environment);
+        if (!isBlank(thresholdText)) {
+            int threshold = parseDsIntValue(dsId, Config_DS_BreakerFailureThreshold, thresholdText);
+            if (threshold > 0) {
+                String openTimeText = getConfigValue(dsPrefix, Config_DS_BreakerOpenTime, environment);
+                int openTime = isBlank(openTimeText) ? 10000 : parseDsIntValue(dsId, Config_DS_BreakerOpenTime, openTimeText);
+                if (openTime <= 0)
+                    throw new SpringBootDataSourceException("DataSource(" + dsId + ")-Invalid circuitBreakerOpenTime:" + openTimeText + ",must be greater than zero");
+                String failoverDsId = getConfigValue(dsPrefix, Config_DS_FailoverDsId, environment);
+                ds.setCircuitBreaker(new DataSourceCircuitBreaker(dsId, threshold, openTime,
+                        BeeDataSourceFactory.readSqlExceptionFatalCodes(dsPrefix, environment),
+                        BeeDataSourceFactory.readSqlExceptionFatalStates(dsPrefix, environment),
+                        isBlank(failoverDsId) ? null : failoverDsId.trim()));
+            }
+        }
         return ds;
     }
 
+    private static int parseDsIntValue(String dsId, String key, String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new SpringBootDataSourceException("DataSource(" + dsId + ")-Invalid " + key + ":" + value);
+        }
+    }
+
     private static SpringBootDataSource lookupJndiDataSource(String dsId, String jndiName) {
         try {
             Object namingObj = new InitialContext().lookup(jndiName);
@@ -209,6 +295,196 @@ public class SpringBootDataSourceUtil {
         return new SpringBootDataSource(dsId, ds, false);
     }
 
+    //create group dataSource over created dataSources
+    static DataSource createGroupDataSource(String groupPrefix, String groupId, Map<String, SpringBootDataSource> dsMap, Environment environment) {
+        String groupType = getConfigValue(groupPrefix, Config_Group_Type, environment);
+        if (Group_Type_ReadWrite.equals(groupType))
+            return createReadWriteDataSource(groupPrefix, groupId, dsMap, environment);
+        if (Group_Type_Sharding.equals(groupType))
+            return createShardingDataSource(groupPrefix, groupId, dsMap, environment);
+        throw new SpringBootDataSourceException("Group(" + groupId + ")-Invalid groupType:" + groupType + ",valid types:" + Group_Type_ReadWrite + "," + Group_Type_Sharding);
+    }
+
+    private static ShardingDataSource createShardingDataSource(String groupPrefix, String groupId, Map<String, SpringBootDataSource> dsMap, Environment environment) {
+        //1:shards
+        List<String> shardIdList = splitIdList(getConfigValue(groupPrefix, Config_Group_ShardIds, environment));
+        if (shardIdList.isEmpty())
+            throw new SpringBootDataSourceException("Group(" + groupId + ")-Missed or not found config item:" + groupPrefix + "." + Config_Group_ShardIds);
+        SpringBootDataSource[] shards = new SpringBootDataSource[shardIdList.size()];
+        for (int i = 0; i < shards.length; i++) {
+            String shardId = shardIdList.get(i);
+            if (shardIdList.indexOf(shardId) != i)
+                throw new SpringBootDataSourceException("Group(" + groupId + ")-Duplicated shard id:" + shardId);
+            shards[i] = getGroupMember(groupId, shardId, dsMap);
+        }
+
+        //2:shard strategy
+        String strategy = getConfigValue(groupPrefix, Config_Group_ShardStrategy, environment);
+        if (isBlank(strategy)) strategy = ShardingDataSource.Strategy_HashMod;
+        if (!ShardingDataSource.Strategy_HashMod.equals(strategy) && !ShardingDataSource.Strategy_Range.equals(strategy)
+                && !ShardingDataSource.Strategy_ConsistentHash.equals(strategy))
+            throw new SpringBootDataSourceException("Group(" + groupId + ")-Invalid shardStrategy:" + strategy + ",valid strategies:"
+                    + ShardingDataSource.Strategy_HashMod + "," + ShardingDataSource.Strategy_Range + "," + ShardingDataSource.Strategy_ConsistentHash);
+
+        long[] rangeBounds = null;
+        if (ShardingDataSource.Strategy_Range.equals(strategy)) {
+            String rangesText = getConfigValue(groupPrefix, Config_Group_ShardRanges, environment);
+            List<String> boundList = splitIdList(rangesText);
+            if (boundList.size() != shards.length - 1)
+                throw new SpringBootDataSourceException("Group(" + groupId + ")-Size of shardRanges must be size of shardIds minus one:" + rangesText);
+            rangeBounds = new long[boundList.size()];
+            for (int i = 0; i < rangeBounds.length; i++) {
+                try {
+                    rangeBounds[i] = Long.parseLong(boundList.get(i));
+                } catch (NumberFormatException e) {
+                    throw new SpringBootDataSourceException("Group(" + groupId + ")-Invalid shardRanges:" + rangesText);
+                }
+                if (i > 0 && rangeBounds[i] <= rangeBounds[i - 1])
+                    throw new SpringBootDataSourceException("Group(" + groupId + ")-shardRanges must be ascending:" + rangesText);
+            }
+        }
+
+        long virtualNodes = getGroupLongValue(groupPrefix, groupId, Config_Group_VirtualNodes, 160L, environment);
+        if (virtualNodes <= 0 || virtualNodes * shards.length > 1000000L)
+            throw new SpringBootDataSourceException("Group(" + groupId + ")-Invalid virtualNodes:" + virtualNodes + ",must be greater than zero");
+        return new ShardingDataSource(groupId, shards, strategy, rangeBounds, (int) virtualNodes);
+    }
+
+    private static ReadWriteDataSource createReadWriteDataSource(String groupPrefix, String groupId, Map<String, SpringBootDataSource> dsMap, Environment environment) {
+        //1:primary and replicas
+        String primaryId = getConfigValue(groupPrefix, Config_Group_PrimaryId, environment);
+        if (isBlank(primaryId))
+            throw new SpringBootDataSourceException("Group(" + groupId + ")-Missed or not found config item:" + groupPrefix + "." + Config_Group_PrimaryId);
+        SpringBootDataSource primary = getGroupMember(groupId, primaryId, dsMap);
+
+        List<String> replicaIdList = splitIdList(getConfigValue(groupPrefix, Config_Group_ReplicaIds, environment));
+        if (replicaIdList.isEmpty())
+            throw new SpringBootDataSourceException("Group(" + groupId + ")-Missed or not found config item:" + groupPrefix + "." + Config_Group_ReplicaIds);
+        SpringBootDataSource[] replicas = new SpringBootDataSource[replicaIdList.size()];
+        for (int i = 0; i < replicas.length; i++) {
+            String replicaId = replicaIdList.get(i);
+            if (replicaId.equals(primary.getDsId()) || replicaIdList.indexOf(replicaId) != i)
+                throw new SpringBootDataSourceException("Group(" + groupId + ")-Duplicated replica id:" + replicaId);
+            replicas[i] = getGroupMember(groupId, replicaId, dsMap);
+        }
+
+        //2:balance strategy
+        String strategy = getConfigValue(groupPrefix, Config_Group_BalanceStrategy, environment);
+        if (isBlank(strategy)) strategy = ReadWriteDataSource.Strategy_RoundRobin;
+        if (!ReadWriteDataSource.Strategy_RoundRobin.equals(strategy) && !ReadWriteDataSource.Strategy_Weighted.equals(strategy)
+                && !ReadWriteDataSource.Strategy_LeastActive.equals(strategy))
+            throw new SpringBootDataSourceException("Group(" + groupId + ")-Invalid balanceStrategy:" + strategy + ",valid strategies:"
+                    + ReadWriteDataSource.Strategy_RoundRobin + "," + ReadWriteDataSource.Strategy_Weighted + "," + ReadWriteDataSource.Strategy_LeastActive);
+
+        int[] weights = null;
+        if (ReadWriteDataSource.Strategy_Weighted.equals(strategy)) {
+            String weightsText = getConfigValue(groupPrefix, Config_Group_ReplicaWeights, environment);
+            List<String> weightList = splitIdList(weightsText);
+            if (weightList.size() != replicas.length)
+                throw new SpringBootDataSourceException("Group(" + groupId + ")-Size of replicaWeights must be equal to replicaIds:" + weightsText);
+            weights = new int[replicas.length];
+            for (int i = 0; i < weights.length; i++) {
+                try {
+                    weights[i] = Integer.parseInt(weightList.get(i));
+                } catch (NumberFormatException e) {
+                    weights[i] = -1;
+                }
+                if (weights[i] <= 0)
+                    throw new SpringBootDataSourceException("Group(" + groupId + ")-Invalid replicaWeights:" + weightsText + ",weight must be greater than zero");
+            }
+        }
+        return new ReadWriteDataSource(groupId, primary, replicas, strategy, weights,
+                createReplicaLagMonitor(groupPrefix, groupId, environment), createReplicaHedger(groupPrefix, groupId, replicas.length, environment));
+    }
+
+    //hedger is created when hedge enabled on group with two replicas at least
+    private static ReplicaHedger createReplicaHedger(String groupPrefix, String groupId, int replicaSize, Environment environment) {
+        String hedgeText = getConfigValue(groupPrefix, Config_Group_Hedge, environment);
+        if (isBlank(hedgeText) || !Boolean.parseBoolean(hedgeText.trim())) return null;
+        if (replicaSize < 2)
+            throw new SpringBootDataSourceException("Group(" + groupId + ")-hedge requires two replicas at least");
+
+        double percentile = getGroupDoubleValue(groupPrefix, groupId, Config_Group_HedgeDelayPercentile, 95D, environment);
+        long minDelay = getGroupLongValue(groupPrefix, groupId, Config_Group_HedgeMinDelay, 5L, environment);
+        double budgetRatio = getGroupDoubleValue(groupPrefix, groupId, Config_Group_HedgeBudgetRatio, 0.1D, environment);
+        long hedgeThreads = getGroupLongValue(groupPrefix, groupId, Config_Group_HedgeThreads, 16L, environment);
+        if (percentile <= 0 || percentile >= 100)
+            throw new SpringBootDataSourceException("Group(" + groupId + ")-hedgeDelayPercentile must be in range (0,100)");
+        if (minDelay < 0 || budgetRatio <= 0 || budgetRatio > 1 || hedgeThreads <= 0 || hedgeThreads > Short.MAX_VALUE)
+            throw new SpringBootDataSourceException("Group(" + groupId + ")-Invalid hedge config,hedgeMinDelay:" + minDelay
+                    + ",hedgeBudgetRatio(0,1]:" + budgetRatio + ",hedgeThreads:" + hedgeThreads);
+        return new ReplicaHedger(groupId, percentile, minDelay, budgetRatio, (int) hedgeThreads);
+    }
+
+    private static double getGroupDoubleValue(String groupPrefix, String groupId, String key, double defaultValue, Environment environment) {
+        String value = getConfigValue(groupPrefix, key, environment);
+        if (isBlank(value)) return defaultValue;
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new SpringBootDataSourceException("Group(" + groupId + ")-Invalid " + key + ":" + value);
+        }
+    }
+
+    //lag monitor is created when probe sql or probe class configured
+    private static ReplicaLagMonitor createReplicaLagMonitor(String groupPrefix, String groupId, Environment environment) {
+        String probeSql = getConfigValue(groupPrefix, Config_Group_LagProbeSql, environment);
+        String probeClassName = getConfigValue(groupPrefix, Config_Group_LagProbeClassName, environment);
+        if (isBlank(probeSql) && isBlank(probeClassName)) return null;
+
+        long probeInterval = getGroupLongValue(groupPrefix, groupId, Config_Group_LagProbeInterval, 5000L, environment);
+        long maxLag = getGroupLongValue(groupPrefix, groupId, Config_Group_MaxReplicaLag, 10000L, environment);
+        long recoverLag = getGroupLongValue(groupPrefix, groupId, Config_Group_ReplicaRecoverLag, maxLag / 2, environment);
+        long maxProbeTime = getGroupLongValue(groupPrefix, groupId, Config_Group_MaxLagProbeTime, 3000L, environment);
+        long recoverProbes = getGroupLongValue(groupPrefix, groupId, Config_Group_ReplicaRecoverProbes, 3L, environment);
+        if (probeInterval <= 0 || maxLag <= 0 || maxProbeTime <= 0 || recoverProbes <= 0 || recoverProbes > Integer.MAX_VALUE)
+            throw new SpringBootDataSourceException("Group(" + groupId + ")-lagProbeInterval,maxReplicaLag,maxLagProbeTime and replicaRecoverProbes must be greater than zero");
+        if (recoverLag < 0 || recoverLag > maxLag)
+            throw new SpringBootDataSourceException("Group(" + groupId + ")-replicaRecoverLag must be in range [0," + maxLag + "]");
+
+        ReplicaLagProbe probe;
+        if (!isBlank(probeClassName)) {
+            try {
+                Class<?> probeClass = Class.forName(probeClassName.trim());
+                if (!ReplicaLagProbe.class.isAssignableFrom(probeClass))
+                    throw new SpringBootDataSourceException("Group(" + groupId + ")-lagProbeClassName must implement " + ReplicaLagProbe.class.getName());
+                probe = (ReplicaLagProbe) createInstanceByClassName(groupId, probeClass);
+            } catch (ClassNotFoundException e) {
+                throw new SpringBootDataSourceException("Group(" + groupId + ")-not found lag probe class:" + probeClassName);
+            }
+        } else {
+            probe = new SqlReplicaLagProbe(probeSql.trim(), (int) ((maxProbeTime + 999) / 1000));
+        }
+        return new ReplicaLagMonitor(groupId, probe, probeInterval, maxLag, recoverLag, maxProbeTime, (int) recoverProbes);
+    }
+
+    private static long getGroupLongValue(String groupPrefix, String groupId, String key, long defaultValue, Environment environment) {
+        String value = getConfigValue(groupPrefix, key, environment);
+        if (isBlank(value)) return defaultValue;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new SpringBootDataSourceException("Group(" + groupId + ")-Invalid " + key + ":" + value);
+        }
+    }
+
+    private static SpringBootDataSource getGroupMember(String groupId, String dsId, Map<String, SpringBootDataSource> dsMap) {
+        SpringBootDataSource ds = dsMap.get(dsId.trim());
+        if (ds == null)
+            throw new SpringBootDataSourceException("Group(" + groupId + ")-DataSource(" + dsId + ") not found in ds-id list");
+        return ds;
+    }
+
+    static List<String> splitIdList(String text) {
+        List<String> idList = new ArrayList<>();
+        if (!isBlank(text)) {
+            for (String id : text.split(",")) {
+                if (!isBlank(id)) idList.add(id.trim());
+            }
+        }
+        return idList;
+    }
+
     private static Object createInstanceByClassName(String dsId, Class objClass) {
         try {
             return objClass.newInstance();
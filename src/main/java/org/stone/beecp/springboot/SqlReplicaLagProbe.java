@@ -0,0 +1,48 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Replication lag probe with a sql,first column of first row is lag in milliseconds,null or no row means no lag.
+ * For example on PostgreSQL:select coalesce(extract(epoch from now()-pg_last_xact_replay_timestamp()),0)*1000
+ *
+ * @author Chris Liao
+ */
+public class SqlReplicaLagProbe implements ReplicaLagProbe {
+    private final String sql;
+    private final int queryTimeout;//seconds
+
+    public SqlReplicaLagProbe(String sql, int queryTimeout) {
+        this.sql = sql;
+        this.queryTimeout = queryTimeout;
+    }
+
+    public long probe(String dsId, Connection con) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            if (queryTimeout > 0) st.setQueryTimeout(queryTimeout);
+            try (ResultSet rs = st.executeQuery(sql)) {
+                if (!rs.next()) return 0L;
+                double lag = rs.getDouble(1);
+                return rs.wasNull() ? 0L : (long) lag;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LRU cache of idle prepared statements of a physical connection,a statement is removed
+ * from cache while it is in use and put back at its logical close.
+ *
+ * @author Chris Liao
+ */
+final class StatementCache {
+    private final int capacity;
+    private final LinkedHashMap<StatementCacheKey, PreparedStatement> statementMap;
+
+    StatementCache(int capacity) {
+        this.capacity = capacity;
+        this.statementMap = new LinkedHashMap<>(16, 0.75F);
+    }
+
+    synchronized PreparedStatement take(StatementCacheKey key) {
+        return statementMap.remove(key);
+    }
+
+    //put an idle statement,return evicted one(replaced or eldest) or null
+    synchronized PreparedStatement put(StatementCacheKey key, PreparedStatement statement) {
+        PreparedStatement old = statementMap.put(key, statement);
+        if (old != null) return old;
+        if (statementMap.size() > capacity) {
+            Iterator<Map.Entry<StatementCacheKey, PreparedStatement>> iterator = statementMap.entrySet().iterator();
+            PreparedStatement eldest = iterator.next().getValue();
+            iterator.remove();
+            return eldest;
+        }
+        return null;
+    }
+
+    synchronized List<PreparedStatement> clear() {
+        List<PreparedStatement> statementList = new ArrayList<>(statementMap.values());
+        statementMap.clear();
+        return statementList;
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * Connection wrapper to reuse prepared statements from cache of its physical connection,statements are
+ * prepared on physical connection and returned to cache at logical close,work of cached statements
+ * not committed is rolled back at connection close(pool can't see it).
+ *
+ * @author Chris Liao
+ */
+final class StatementCacheConnection implements Connection {
+    private final Connection connection;
+    private final Connection physicalConnection;
+    private final StatementCache cache;
+    private final StatementCacheTracker tracker;
+    private final ArrayList<CachedPreparedStatement> openStatements = new ArrayList<>(4);
+    private boolean dirty;//cached statements executed since last commit or rollback
+
+    StatementCacheConnection(Connection connection, Connection physicalConnection, StatementCache cache, StatementCacheTracker tracker) {
+        this.connection = connection;
+        this.physicalConnection = physicalConnection;
+        this.cache = cache;
+        this.tracker = tracker;
+    }
+
+    private PreparedStatement prepare(StatementCacheKey key) throws SQLException {
+        PreparedStatement statement = tracker.take(cache, key);
+        if (statement == null) statement = key.prepare(physicalConnection);
+
+        CachedPreparedStatement cachedStatement = key.isCallable() ?
+                new CachedCallableStatement((CallableStatement) statement, this, key) : new CachedPreparedStatement(statement, this, key);
+        openStatements.add(cachedStatement);
+        return cachedStatement;
+    }
+
+    //logical close of a statement
+    void release(CachedPreparedStatement cachedStatement) {
+        openStatements.remove(cachedStatement);
+        tracker.giveBack(cache, cachedStatement);
+    }
+
+    void markDirty() {
+        dirty = true;
+    }
+
+    public void close() throws SQLException {
+        try {
+            for (int i = openStatements.size() - 1; i >= 0; i--)
+                openStatements.get(i).close();
+            if (dirty && !connection.getAutoCommit()) connection.rollback();
+        } finally {
+            connection.close();
+        }
+    }
+
+    //***************************************************************************************************************//
+    //                                1: prepare methods(9)                                                          //
+    //***************************************************************************************************************//
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return prepare(new StatementCacheKey(sql, false, -1, -1, -1, -1, null, null));
+    }
+
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return prepare(new StatementCacheKey(sql, false, resultSetType, resultSetConcurrency, -1, -1, null, null));
+    }
+
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return prepare(new StatementCacheKey(sql, false, resultSetType, resultSetConcurrency, resultSetHoldability, -1, null, null));
+    }
+
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        return prepare(new StatementCacheKey(sql, false, -1, -1, -1, autoGeneratedKeys, null, null));
+    }
+
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        return prepare(new StatementCacheKey(sql, false, -1, -1, -1, -1, columnIndexes, null));
+    }
+
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        return prepare(new StatementCacheKey(sql, false, -1, -1, -1, -1, null, columnNames));
+    }
+
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        return (CallableStatement) prepare(new StatementCacheKey(sql, true, -1, -1, -1, -1, null, null));
+    }
+
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return (CallableStatement) prepare(new StatementCacheKey(sql, true, resultSetType, resultSetConcurrency, -1, -1, null, null));
+    }
+
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return (CallableStatement) prepare(new StatementCacheKey(sql, true, resultSetType, resultSetConcurrency, resultSetHoldability, -1, null, null));
+    }
+
+    //***************************************************************************************************************//
+    //                                2: delegated methods                                                           //
+    //***************************************************************************************************************//
+    public Statement createStatement() throws SQLException {
+        return connection.createStatement();
+    }
+
+    public String nativeSQL(String sql) throws SQLException {
+        return connection.nativeSQL(sql);
+    }
+
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        connection.setAutoCommit(autoCommit);
+        if (autoCommit) dirty = false;//committed by driver
+    }
+
+    public boolean getAutoCommit() throws SQLException {
+        return connection.getAutoCommit();
+    }
+
+    public void commit() throws SQLException {
+        connection.commit();
+        dirty = false;
+    }
+
+    public void rollback() throws SQLException {
+        connection.rollback();
+        dirty = false;
+    }
+
+    public boolean isClosed() throws SQLException {
+        return connection.isClosed();
+    }
+
+    public DatabaseMetaData getMetaData() throws SQLException {
+        return connection.getMetaData();
+    }
+
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        connection.setReadOnly(readOnly);
+    }
+
+    public boolean isReadOnly() throws SQLException {
+        return connection.isReadOnly();
+    }
+
+    public void setCatalog(String catalog) throws SQLException {
+        connection.setCatalog(catalog);
+    }
+
+    public String getCatalog() throws SQLException {
+        return connection.getCatalog();
+    }
+
+    public void setTransactionIsolation(int level) throws SQLException {
+        connection.setTransactionIsolation(level);
+    }
+
+    public int getTransactionIsolation() throws SQLException {
+        return connection.getTransactionIsolation();
+    }
+
+    public SQLWarning getWarnings() throws SQLException {
+        return connection.getWarnings();
+    }
+
+    public void clearWarnings() throws SQLException {
+        connection.clearWarnings();
+    }
+
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        return connection.createStatement(resultSetType, resultSetConcurrency);
+    }
+
+    public Map<String, Class<?>> getTypeMap() throws SQLException {
+        return connection.getTypeMap();
+    }
+
+    public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+        connection.setTypeMap(map);
+    }
+
+    public void setHoldability(int holdability) throws SQLException {
+        connection.setHoldability(holdability);
+    }
+
+    public int getHoldability() throws SQLException {
+        return connection.getHoldability();
+    }
+
+    public Savepoint setSavepoint() throws SQLException {
+        return connection.setSavepoint();
+    }
+
+    public Savepoint setSavepoint(String name) throws SQLException {
+        return connection.setSavepoint(name);
+    }
+
+    public void rollback(Savepoint savepoint) throws SQLException {
+        connection.rollback(savepoint);
+    }
+
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        connection.releaseSavepoint(savepoint);
+    }
+
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return connection.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    public Clob createClob() throws SQLException {
+        return connection.createClob();
+    }
+
+    public Blob createBlob() throws SQLException {
+        return connection.createBlob();
+    }
+
+    public NClob createNClob() throws SQLException {
+        return connection.createNClob();
+    }
+
+    public SQLXML createSQLXML() throws SQLException {
+        return connection.createSQLXML();
+    }
+
+    public boolean isValid(int timeout) throws SQLException {
+        return connection.isValid(timeout);
+    }
+
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+        connection.setClientInfo(name, value);
+    }
+
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+        connection.setClientInfo(properties);
+    }
+
+    public String getClientInfo(String name) throws SQLException {
+        return connection.getClientInfo(name);
+    }
+
+    public Properties getClientInfo() throws SQLException {
+        return connection.getClientInfo();
+    }
+
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        return connection.createArrayOf(typeName, elements);
+    }
+
+    public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+        return connection.createStruct(typeName, attributes);
+    }
+
+    public void setSchema(String schema) throws SQLException {
+        connection.setSchema(schema);
+    }
+
+    public String getSchema() throws SQLException {
+        return connection.getSchema();
+    }
+
+    public void abort(Executor executor) throws SQLException {
+        connection.abort(executor);
+    }
+
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+        connection.setNetworkTimeout(executor, milliseconds);
+    }
+
+    public int getNetworkTimeout() throws SQLException {
+        return connection.getNetworkTimeout();
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return connection.unwrap(iface);
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return connection.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Cache key of a prepared statement,composed of sql and its prepare options(-1 or null for unset)
+ *
+ * @author Chris Liao
+ */
+final class StatementCacheKey {
+    private final String sql;
+    private final boolean callable;
+    private final int resultSetType;
+    private final int resultSetConcurrency;
+    private final int resultSetHoldability;
+    private final int autoGeneratedKeys;
+    private final int[] columnIndexes;
+    private final String[] columnNames;
+    private final int hashCode;
+
+    StatementCacheKey(String sql, boolean callable, int resultSetType, int resultSetConcurrency, int resultSetHoldability,
+                      int autoGeneratedKeys, int[] columnIndexes, String[] columnNames) {
+        this.sql = sql;
+        this.callable = callable;
+        this.resultSetType = resultSetType;
+        this.resultSetConcurrency = resultSetConcurrency;
+        this.resultSetHoldability = resultSetHoldability;
+        this.autoGeneratedKeys = autoGeneratedKeys;
+        this.columnIndexes = columnIndexes;
+        this.columnNames = columnNames;
+
+        int h = sql.hashCode();
+        h = 31 * h + (callable ? 1 : 0);
+        h = 31 * h + resultSetType;
+        h = 31 * h + resultSetConcurrency;
+        h = 31 * h + resultSetHoldability;
+        h = 31 * h + autoGeneratedKeys;
+        h = 31 * h + Arrays.hashCode(columnIndexes);
+        this.hashCode = 31 * h + Arrays.hashCode(columnNames);
+    }
+
+    boolean isCallable() {
+        return callable;
+    }
+
+    //prepare a physical statement with options of this key
+    PreparedStatement prepare(Connection con) throws SQLException {
+        if (callable) {
+            if (resultSetHoldability != -1)
+                return con.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+            if (resultSetType != -1) return con.prepareCall(sql, resultSetType, resultSetConcurrency);
+            return con.prepareCall(sql);
+        }
+
+        if (resultSetHoldability != -1)
+            return con.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+        if (resultSetType != -1) return con.prepareStatement(sql, resultSetType, resultSetConcurrency);
+        if (autoGeneratedKeys != -1) return con.prepareStatement(sql, autoGeneratedKeys);
+        if (columnIndexes != null) return con.prepareStatement(sql, columnIndexes);
+        if (columnNames != null) return con.prepareStatement(sql, columnNames);
+        return con.prepareStatement(sql);
+    }
+
+    public int hashCode() {
+        return hashCode;
+    }
+
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StatementCacheKey)) return false;
+        StatementCacheKey that = (StatementCacheKey) o;
+        return hashCode == that.hashCode
+                && callable == that.callable
+                && resultSetType == that.resultSetType
+                && resultSetConcurrency == that.resultSetConcurrency
+                && resultSetHoldability == that.resultSetHoldability
+                && autoGeneratedKeys == that.autoGeneratedKeys
+                && sql.equals(that.sql)
+                && Arrays.equals(columnIndexes, that.columnIndexes)
+                && Arrays.equals(columnNames, that.columnNames);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prepared statement cache of a datasource,one LRU cache per physical connection(unwrapped from pooled connection),
+ * so cached statements survive logical close of borrowed connections. Statements are prepared on physical connection,
+ * pool is not aware of them,so uncommitted work of cached statements is rolled back at logical close.
+ * If physical connection can't be unwrapped,statements are not cached. Caches of closed physical connections are removed by scan.
+ *
+ * @author Chris Liao
+ */
+final class StatementCacheTracker {
+    private static final Logger Log = LoggerFactory.getLogger(StatementCacheTracker.class);
+    private final String dsId;
+    private final int cacheSize;
+    private final Class<?> unwrapClass;//type of physical connection to unwrap
+    private final ConcurrentHashMap<Connection, StatementCache> cacheMap = new ConcurrentHashMap<>(16);
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private volatile boolean unwrapFailureLogged;
+
+    StatementCacheTracker(String dsId, int cacheSize, Class<?> unwrapClass) {
+        this.dsId = dsId;
+        this.cacheSize = cacheSize;
+        this.unwrapClass = unwrapClass != null ? unwrapClass : Connection.class;
+    }
+
+    long getHitCount() {
+        return hitCount.sum();
+    }
+
+    long getMissCount() {
+        return missCount.sum();
+    }
+
+    long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    Connection wrap(Connection con) {
+        Connection physicalCon = unwrapPhysical(con);
+        if (physicalCon == null) return con;
+        StatementCache cache = cacheMap.computeIfAbsent(physicalCon, k -> new StatementCache(cacheSize));
+        return new StatementCacheConnection(con, physicalCon, cache, this);
+    }
+
+    //physical connection under pooled connection,null if not unwrapped(pool proxy unwrapped to itself)
+    private Connection unwrapPhysical(Connection con) {
+        Object physicalCon = null;
+        try {
+            if (con.isWrapperFor(unwrapClass)) physicalCon = con.unwrap(unwrapClass);
+        } catch (SQLException e) {
+            //not unwrapped
+        }
+        if (physicalCon instanceof Connection && physicalCon != con) return (Connection) physicalCon;
+
+        if (!unwrapFailureLogged) {
+            unwrapFailureLogged = true;
+            Log.warn("DataSource({})-statement cache is off,pooled connection can't be unwrapped to physical connection({}),set statementCacheUnwrapClass to driver connection type", dsId, unwrapClass.getName());
+        }
+        return null;
+    }
+
+    //take an idle statement from cache,null if missed
+    PreparedStatement take(StatementCache cache, StatementCacheKey key) {
+        PreparedStatement statement = cache.take(key);
+        try {
+            if (statement != null && !statement.isClosed()) {
+                hitCount.increment();
+                return statement;
+            }
+        } catch (SQLException e) {
+            //treated as closed
+        }
+        missCount.increment();
+        return null;
+    }
+
+    //put back a statement after its state cleared,statement failed to clear or not reusable is closed
+    void giveBack(StatementCache cache, CachedPreparedStatement cachedStatement) {
+        PreparedStatement statement = cachedStatement.statement;
+        try {
+            if (statement.isClosed()) return;
+            if (!cachedStatement.clearState()) {
+                closeQuietly(statement);
+                return;
+            }
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            return;
+        }
+
+        PreparedStatement evicted = cache.put(cachedStatement.key, statement);
+        if (evicted != null) {
+            evictionCount.increment();
+            closeQuietly(evicted);
+        }
+    }
+
+    //remove caches of closed physical connections
+    void scan() {
+        Iterator<Map.Entry<Connection, StatementCache>> iterator = cacheMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Connection, StatementCache> entry = iterator.next();
+            if (isClosed(entry.getKey())) {
+                iterator.remove();
+                for (PreparedStatement statement : entry.getValue().clear())
+                    closeQuietly(statement);
+            }
+        }
+    }
+
+    private static boolean isClosed(Connection con) {
+        try {
+            return con.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (Throwable e) {
+            Log.debug("Failed to close cached statement", e);
+        }
+    }
+}
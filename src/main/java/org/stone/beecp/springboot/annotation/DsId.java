@@ -27,4 +27,10 @@ import java.lang.annotation.*;
 @Target(ElementType.METHOD)
 public @interface DsId {
     String value() default "";
+
+    //route connections of read-write groups to replicas in method
+    boolean read() default false;
+
+    //expression of shard key for sharding groups,such as '#userId','#p0' or '#user.id'
+    String shardKey() default "";
 }
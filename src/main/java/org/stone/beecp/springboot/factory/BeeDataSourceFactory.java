@@ -26,6 +26,9 @@ import javax.naming.Context;
 import javax.naming.InitialContext;
 import javax.sql.DataSource;
 import javax.transaction.TransactionManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.stone.beecp.pool.ConnectionPoolStatics.*;
 import static org.stone.tools.CommonUtil.isBlank;
@@ -54,24 +57,36 @@ public class BeeDataSourceFactory implements SpringBootDataSourceFactory {
     }
 
     private void setSqlExceptionFatalConfig(BeeDataSourceConfig config, String dsPrefix, Environment environment) {
-        String sqlExceptionCode = SpringBootDataSourceUtil.getConfigValue(dsPrefix, CONFIG_SQL_EXCEPTION_CODE, environment);
-        String sqlExceptionState = SpringBootDataSourceUtil.getConfigValue(dsPrefix, CONFIG_SQL_EXCEPTION_STATE, environment);
+        for (Integer code : readSqlExceptionFatalCodes(dsPrefix, environment))
+            config.addSqlExceptionCode(code);
+        for (String state : readSqlExceptionFatalStates(dsPrefix, environment))
+            config.addSqlExceptionState(state);
+    }
 
+    //fatal error codes of SQLException,also used by datasource circuit breaker
+    public static List<Integer> readSqlExceptionFatalCodes(String dsPrefix, Environment environment) {
+        String sqlExceptionCode = SpringBootDataSourceUtil.getConfigValue(dsPrefix, CONFIG_SQL_EXCEPTION_CODE, environment);
+        List<Integer> codeList = new ArrayList<>();
         if (!isBlank(sqlExceptionCode)) {
             for (String code : sqlExceptionCode.trim().split(",")) {
                 try {
-                    config.addSqlExceptionCode(Integer.parseInt(code));
+                    codeList.add(Integer.parseInt(code));
                 } catch (NumberFormatException e) {
                     throw new BeeDataSourceConfigException(code + " is not a valid SQLException error code");
                 }
             }
         }
+        return codeList;
+    }
 
+    //fatal sql states of SQLException,also used by datasource circuit breaker
+    public static List<String> readSqlExceptionFatalStates(String dsPrefix, Environment environment) {
+        String sqlExceptionState = SpringBootDataSourceUtil.getConfigValue(dsPrefix, CONFIG_SQL_EXCEPTION_STATE, environment);
+        List<String> stateList = new ArrayList<>();
         if (!isBlank(sqlExceptionState)) {
-            for (String state : sqlExceptionState.trim().split(",")) {
-                config.addSqlExceptionState(state);
-            }
+            stateList.addAll(Arrays.asList(sqlExceptionState.trim().split(",")));
         }
+        return stateList;
     }
 
     private void setConfigPrintExclusionList(BeeDataSourceConfig config, String dsPrefix, Environment environment) {
@@ -0,0 +1,47 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of a connection hold(borrowed to closed)
+ *
+ * @author Chris Liao
+ */
+@Name("org.stone.beecp.ConnectionHold")
+@Label("Connection Hold")
+@Category({"BeeCP", "Connection"})
+@Description("Time of a borrowed connection held by application,recorded when connection hold trace is on")
+@StackTrace(false)
+final class ConnectionHoldEvent extends Event {
+    @Label("DataSource Id")
+    String dsId;
+
+    static ConnectionHoldEvent start() {
+        ConnectionHoldEvent event = new ConnectionHoldEvent();
+        event.begin();
+        return event;
+    }
+
+    void finish(String dsId) {
+        end();
+        if (shouldCommit()) {
+            this.dsId = dsId;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.jfr;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Cached event types,enabled state of a type is a volatile read updated by recordings
+ *
+ * @author Chris Liao
+ */
+final class JfrEventTypes {
+    private static final EventType SqlExecute = EventType.getEventType(SqlExecuteEvent.class);
+    private static final EventType ConnectionBorrow = EventType.getEventType(ConnectionBorrowEvent.class);
+    private static final EventType ConnectionHold = EventType.getEventType(ConnectionHoldEvent.class);
+    private static final EventType PoolRestart = EventType.getEventType(PoolRestartEvent.class);
+
+    private JfrEventTypes() {
+    }
+
+    static boolean isRecorderAvailable() {
+        return FlightRecorder.isAvailable();
+    }
+
+    static boolean isSqlExecuteEnabled() {
+        return SqlExecute.isEnabled();
+    }
+
+    static boolean isConnectionBorrowEnabled() {
+        return ConnectionBorrow.isEnabled();
+    }
+
+    static boolean isConnectionHoldEnabled() {
+        return ConnectionHold.isEnabled();
+    }
+
+    static boolean isPoolRestartEnabled() {
+        return PoolRestart.isEnabled();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.jfr;
+
+/**
+ * Flight recorder event entry,event classes are loaded only when jdk.jfr exists in runtime(jdk8u262+ or jdk11+).
+ * A begin method returns null when its event type is not enabled by any recording,so nothing is allocated,
+ * and a commit method ignores null event.
+ *
+ * @author Chris Liao
+ */
+public final class JfrEvents {
+    private static final boolean Available = isJfrAvailable();
+
+    private JfrEvents() {
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder", false, JfrEvents.class.getClassLoader());
+            return JfrEventTypes.isRecorderAvailable();
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    public static boolean isAvailable() {
+        return Available;
+    }
+
+    //***************************************************************************************************************//
+    //                                1: sql execution(2)                                                            //
+    //***************************************************************************************************************//
+    public static Object beginSqlExecute() {
+        return Available && JfrEventTypes.isSqlExecuteEnabled() ? SqlExecuteEvent.start() : null;
+    }
+
+    public static void commitSqlExecute(Object event, String dsId, String fingerprint, String statementType,
+                                        String methodName, int batchSize, boolean success, boolean slow) {
+        if (event != null)
+            ((SqlExecuteEvent) event).finish(dsId, fingerprint, statementType, methodName, batchSize, success, slow);
+    }
+
+    //***************************************************************************************************************//
+    //                                2: connection borrow and hold(4)                                               //
+    //***************************************************************************************************************//
+    public static Object beginConnectionBorrow() {
+        return Available && JfrEventTypes.isConnectionBorrowEnabled() ? ConnectionBorrowEvent.start() : null;
+    }
+
+    public static void commitConnectionBorrow(Object event, String dsId, boolean success, boolean timeout) {
+        if (event != null) ((ConnectionBorrowEvent) event).finish(dsId, success, timeout);
+    }
+
+    public static Object beginConnectionHold() {
+        return Available && JfrEventTypes.isConnectionHoldEnabled() ? ConnectionHoldEvent.start() : null;
+    }
+
+    public static void commitConnectionHold(Object event, String dsId) {
+        if (event != null) ((ConnectionHoldEvent) event).finish(dsId);
+    }
+
+    //***************************************************************************************************************//
+    //                                3: pool restart(2)                                                             //
+    //***************************************************************************************************************//
+    public static Object beginPoolRestart() {
+        return Available && JfrEventTypes.isPoolRestartEnabled() ? PoolRestartEvent.start() : null;
+    }
+
+    public static void commitPoolRestart(Object event, String dsId, boolean success) {
+        if (event != null) ((PoolRestartEvent) event).finish(dsId, success);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of a pool restart
+ *
+ * @author Chris Liao
+ */
+@Name("org.stone.beecp.PoolRestart")
+@Label("Pool Restart")
+@Category({"BeeCP", "Pool"})
+@Description("Restart of a datasource pool")
+final class PoolRestartEvent extends Event {
+    @Label("DataSource Id")
+    String dsId;
+    @Label("Success")
+    boolean success;
+
+    static PoolRestartEvent start() {
+        PoolRestartEvent event = new PoolRestartEvent();
+        event.begin();
+        return event;
+    }
+
+    void finish(String dsId, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.dsId = dsId;
+            this.success = success;
+            commit();
+        }
+    }
+}
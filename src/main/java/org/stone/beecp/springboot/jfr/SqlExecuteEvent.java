@@ -0,0 +1,64 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of a traced sql execution
+ *
+ * @author Chris Liao
+ */
+@Name("org.stone.beecp.SqlExecute")
+@Label("SQL Execute")
+@Category({"BeeCP", "SQL"})
+@Description("Sql execution traced by datasource,sql is recorded as fingerprint")
+final class SqlExecuteEvent extends Event {
+    @Label("DataSource Id")
+    String dsId;
+    @Label("Fingerprint")
+    String fingerprint;
+    @Label("Statement Type")
+    String statementType;
+    @Label("Method")
+    String methodName;
+    @Label("Batch Size")
+    int batchSize;
+    @Label("Success")
+    boolean success;
+    @Label("Slow")
+    boolean slow;
+
+    static SqlExecuteEvent start() {
+        SqlExecuteEvent event = new SqlExecuteEvent();
+        event.begin();
+        return event;
+    }
+
+    void finish(String dsId, String fingerprint, String statementType, String methodName, int batchSize, boolean success, boolean slow) {
+        end();
+        if (shouldCommit()) {//duration over threshold of recording
+            this.dsId = dsId;
+            this.fingerprint = fingerprint;
+            this.statementType = statementType;
+            this.methodName = methodName;
+            this.batchSize = batchSize;
+            this.success = success;
+            this.slow = slow;
+            commit();
+        }
+    }
+}
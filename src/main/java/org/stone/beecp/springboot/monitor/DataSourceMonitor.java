@@ -112,7 +112,7 @@ public class DataSourceMonitor {
     @PostMapping("/beecp/getDataSourceList")
     public SpringBootRestResponse getDataSourceList() {
         try {
-            return new SpringBootRestResponse(SpringBootRestResponse.CODE_SUCCESS, dsManager.getPoolMonitorVoList(), "OK");
+            return new SpringBootRestResponse(SpringBootRestResponse.CODE_SUCCESS, dsManager.getDataSourceMonitorVoList(), "OK");
         } catch (Throwable e) {
             return new SpringBootRestResponse(SpringBootRestResponse.CODE_FAILED, e, "Failed to 'getDataSourceList'");
         }
@@ -128,6 +128,81 @@ public class DataSourceMonitor {
         }
     }
 
+    @ResponseBody
+    @PostMapping("/beecp/getSqlStatList")
+    public SpringBootRestResponse getSqlStatList() {
+        try {
+            return new SpringBootRestResponse(SpringBootRestResponse.CODE_SUCCESS, dsManager.getSqlStatList(), "OK");
+        } catch (Throwable e) {
+            return new SpringBootRestResponse(SpringBootRestResponse.CODE_FAILED, e, "Failed to 'getSqlStatList'");
+        }
+    }
+
+    @ResponseBody
+    @PostMapping("/beecp/getTopSql")
+    public SpringBootRestResponse getTopSql(@RequestBody(required = false) Map<String, String> parameterMap) {
+        try {
+            String dsId = parameterMap != null ? parameterMap.get("dsId") : null;
+            return new SpringBootRestResponse(SpringBootRestResponse.CODE_SUCCESS, dsManager.getTopSqlList(dsId), "OK");
+        } catch (Throwable e) {
+            return new SpringBootRestResponse(SpringBootRestResponse.CODE_FAILED, e, "Failed to 'getTopSql'");
+        }
+    }
+
+    @ResponseBody
+    @PostMapping("/beecp/getRequestStatList")
+    public SpringBootRestResponse getRequestStatList() {
+        try {
+            return new SpringBootRestResponse(SpringBootRestResponse.CODE_SUCCESS, dsManager.getRequestStatList(), "OK");
+        } catch (Throwable e) {
+            return new SpringBootRestResponse(SpringBootRestResponse.CODE_FAILED, e, "Failed to 'getRequestStatList'");
+        }
+    }
+
+    @ResponseBody
+    @PostMapping("/beecp/getGroupList")
+    public SpringBootRestResponse getGroupList() {
+        try {
+            return new SpringBootRestResponse(SpringBootRestResponse.CODE_SUCCESS, dsManager.getGroupMonitorVoList(), "OK");
+        } catch (Throwable e) {
+            return new SpringBootRestResponse(SpringBootRestResponse.CODE_FAILED, e, "Failed to 'getGroupList'");
+        }
+    }
+
+    @ResponseBody
+    @PostMapping("/beecp/getConnectionHoldHotspotList")
+    public SpringBootRestResponse getConnectionHoldHotspotList() {
+        try {
+            return new SpringBootRestResponse(SpringBootRestResponse.CODE_SUCCESS, dsManager.getConnectionHoldHotspotList(), "OK");
+        } catch (Throwable e) {
+            return new SpringBootRestResponse(SpringBootRestResponse.CODE_FAILED, e, "Failed to 'getConnectionHoldHotspotList'");
+        }
+    }
+
+    @ResponseBody
+    @PostMapping("/beecp/getSqlJournalList")
+    public SpringBootRestResponse getSqlJournalList(@RequestBody(required = false) Map<String, String> parameterMap) {
+        try {
+            String dsId = null, startTime = null, endTime = null;
+            if (parameterMap != null) {
+                dsId = parameterMap.get("dsId");
+                startTime = parameterMap.get("startTime");
+                endTime = parameterMap.get("endTime");
+            }
+            long startTimeMs = isBlank(startTime) ? 0L : Long.parseLong(startTime.trim());
+            long endTimeMs = isBlank(endTime) ? Long.MAX_VALUE : Long.parseLong(endTime.trim());
+            return new SpringBootRestResponse(SpringBootRestResponse.CODE_SUCCESS, dsManager.getSqlJournalList(dsId, startTimeMs, endTimeMs), "OK");
+        } catch (Throwable e) {
+            return new SpringBootRestResponse(SpringBootRestResponse.CODE_FAILED, e, "Failed to 'getSqlJournalList'");
+        }
+    }
+
+    @ResponseBody
+    @GetMapping(value = "/beecp/metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String getMetrics() {
+        return dsManager.getPrometheusMetrics();
+    }
+
     @ResponseBody
     @PostMapping("/beecp/restartPool")
     public SpringBootRestResponse clearDsConnections(@RequestBody Map<String, String> parameterMap) {
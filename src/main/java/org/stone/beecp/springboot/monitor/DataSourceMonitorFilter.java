@@ -34,13 +34,16 @@ import static org.stone.tools.CommonUtil.isBlank;
 public class DataSourceMonitorFilter implements Filter {
     private final String userId;
     private final String loggedInTagName;
+    private final boolean metricsAnonymous;//metrics url accessible without login
 
+    private static final String Metrics_Url = "/beecp/metrics";
     private final String[] excludeUrls = {"/login", "/json", ".js", ".css", ".ico", ".jpg", ".png"};
-    private final String[] restUrls = {"/beecp/login", "/beecp/getSqlTraceList", "/beecp/getDataSourceList", "/beecp/clearDataSource"};
+    private final String[] restUrls = {"/beecp/login", "/beecp/getSqlTraceList", "/beecp/getDataSourceList", "/beecp/getSqlStatList", "/beecp/getTopSql", "/beecp/getRequestStatList", "/beecp/getGroupList", "/beecp/getConnectionHoldHotspotList", "/beecp/getSqlJournalList", "/beecp/metrics", "/beecp/clearDataSource"};
 
-    DataSourceMonitorFilter(String userId, String loggedInTagName) {
+    DataSourceMonitorFilter(String userId, String loggedInTagName, boolean metricsAnonymous) {
         this.userId = userId;
         this.loggedInTagName = loggedInTagName;
+        this.metricsAnonymous = metricsAnonymous;
     }
 
     public void destroy() {
@@ -58,7 +61,8 @@ public class DataSourceMonitorFilter implements Filter {
             HttpServletRequest httpReq = (HttpServletRequest) req;
             String requestPath = httpReq.getServletPath();
 
-            if ("Y".equals(httpReq.getSession().getAttribute(loggedInTagName)) || isExcludeUrl(requestPath)) {
+            if ((metricsAnonymous && requestPath.endsWith(Metrics_Url)) || isExcludeUrl(requestPath)
+                    || "Y".equals(httpReq.getSession().getAttribute(loggedInTagName))) {
                 chain.doFilter(req, res);
             } else if (isRestUrl(requestPath)) {
                 res.setContentType("application/json");
@@ -22,6 +22,7 @@ import org.springframework.beans.factory.support.GenericBeanDefinition;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.core.Ordered;
 import org.springframework.core.env.Environment;
 import org.springframework.core.type.AnnotationMetadata;
 import org.stone.beecp.springboot.DataSourceMonitorConfig;
@@ -68,7 +69,7 @@ public class DataSourceMonitorRegister implements EnvironmentAware, ImportBeanDe
         String resetControllerFilterRegName = DataSourceMonitorFilter.class.getName();
         if (!SpringBootDataSourceUtil.existsBeanDefinition(resetControllerFilterRegName, registry)) {
 
-            DataSourceMonitorFilter dsFilter = new DataSourceMonitorFilter(config.getConsoleUserId(), config.getMonitorLoggedInTagName());
+            DataSourceMonitorFilter dsFilter = new DataSourceMonitorFilter(config.getConsoleUserId(), config.getMonitorLoggedInTagName(), config.isMonitorMetricsAnonymous());
             FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>(dsFilter);
             registration.setName("beecpMonitorFilter");
             registration.addUrlPatterns("/beecp/*");
@@ -82,5 +83,24 @@ public class DataSourceMonitorRegister implements EnvironmentAware, ImportBeanDe
         } else {
             log.error("BeanDefinition id {} already exists in spring context", resetControllerFilterRegName);
         }
+
+        //4: assembly request trace filter(optional)
+        String requestTraceFilterRegName = RequestTraceFilter.class.getName();
+        if (config.isRequestTrace()) {
+            if (!SpringBootDataSourceUtil.existsBeanDefinition(requestTraceFilterRegName, registry)) {
+                FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>(new RequestTraceFilter());
+                registration.setName("beecpRequestTraceFilter");
+                registration.addUrlPatterns("/*");
+                registration.setOrder(Ordered.HIGHEST_PRECEDENCE);//cover time of other filters
+
+                GenericBeanDefinition define = new GenericBeanDefinition();
+                define.setBeanClass(FilterRegistrationBean.class);
+                define.setInstanceSupplier(SpringBootDataSourceUtil.createSpringSupplier(registration));
+                registry.registerBeanDefinition(requestTraceFilterRegName, define);
+                log.info("Register DataSource-request-trace-Filter({}) with id:{}", define.getBeanClassName(), requestTraceFilterRegName);
+            } else {
+                log.error("BeanDefinition id {} already exists in spring context", requestTraceFilterRegName);
+            }
+        }
     }
 }
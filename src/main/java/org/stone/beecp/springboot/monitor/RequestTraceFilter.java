@@ -0,0 +1,70 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.monitor;
+
+import org.springframework.web.servlet.HandlerMapping;
+import org.stone.beecp.springboot.SpringBootDataSourceManager;
+import org.stone.beecp.springboot.request.RequestTrace;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+/**
+ * Request filter to attribute database time to endpoints,an endpoint is http method with matched mapping pattern
+ * (servlet path when no mapping matched). Requests of monitor are not traced.
+ *
+ * @author Chris Liao
+ */
+public class RequestTraceFilter implements Filter {
+    private static final String Monitor_Path = "/beecp";
+    private final SpringBootDataSourceManager dsManager = SpringBootDataSourceManager.getInstance();
+
+    RequestTraceFilter() {
+        RequestTrace.enable();
+    }
+
+    public void destroy() {
+        //do nothing
+    }
+
+    public void init(FilterConfig var1) {
+        //do nothing
+    }
+
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest httpReq = (HttpServletRequest) req;
+        if (RequestTrace.current() != null || httpReq.getServletPath().startsWith(Monitor_Path)) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        RequestTrace trace = RequestTrace.begin();
+        try {
+            chain.doFilter(req, res);
+        } finally {
+            RequestTrace.end();
+            dsManager.endRequestTrace(getEndpoint(httpReq), trace, trace.getElapsedNanos());
+        }
+    }
+
+    private static String getEndpoint(HttpServletRequest req) {
+        Object pattern = req.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern != null) return req.getMethod() + " " + pattern;
+        String pathInfo = req.getPathInfo();
+        return req.getMethod() + " " + (pathInfo != null ? req.getServletPath() + pathInfo : req.getServletPath());
+    }
+}
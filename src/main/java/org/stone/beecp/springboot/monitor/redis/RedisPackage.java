@@ -15,7 +15,7 @@
  */
 package org.stone.beecp.springboot.monitor.redis;
 
-import org.stone.beecp.BeeConnectionPoolMonitorVo;
+import org.stone.beecp.springboot.DataSourceMonitorVo;
 import org.stone.beecp.springboot.statement.StatementTrace;
 
 import java.util.Collection;
@@ -29,7 +29,7 @@ import java.util.List;
 
 public class RedisPackage {
     private String packageUUID;
-    private List<BeeConnectionPoolMonitorVo> dsList;
+    private List<DataSourceMonitorVo> dsList;
     private Collection<StatementTrace> sqlList;
 
     RedisPackage() {
@@ -47,11 +47,11 @@ public class RedisPackage {
         this.packageUUID = packageUUID;
     }
 
-    public List<BeeConnectionPoolMonitorVo> getDsList() {
+    public List<DataSourceMonitorVo> getDsList() {
         return dsList;
     }
 
-    public void setDsList(List<BeeConnectionPoolMonitorVo> dsList) {
+    public void setDsList(List<DataSourceMonitorVo> dsList) {
         this.dsList = dsList;
     }
 
@@ -42,7 +42,7 @@ public class RedisPushTask extends RedisBaseTask {
     public void run() {
         Jedis jedis = null;
         try {
-            dataPackage.setDsList(dsManager.getPoolMonitorVoList());
+            dataPackage.setDsList(dsManager.getDataSourceMonitorVoList());
             dataPackage.setSqlList(dsManager.getSqlExecutionList());
             String jsonPackage = SpringBootDataSourceUtil.object2String(dataPackage);
             jedis = pool.getResource();
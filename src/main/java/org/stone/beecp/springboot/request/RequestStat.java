@@ -0,0 +1,148 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.stone.beecp.springboot.util.LatencyHistogram.toMillis;
+
+/*
+ *  Aggregated database time of an endpoint,a request is flagged as N+1 when a fingerprint repeats
+ *  over threshold in it
+ *
+ *  @author Chris Liao
+ */
+public class RequestStat {
+    private static final int[] Count_Bounds = {0, 1, 2, 5, 10, 20, 50, 100};//upper bounds of statement count buckets
+
+    private final String endpoint;
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder requestTimeNanos = new LongAdder();
+    private final LongAdder statementCount = new LongAdder();
+    private final LongAdder statementTimeNanos = new LongAdder();
+    private final LongAdder borrowTimeNanos = new LongAdder();
+    private final AtomicLong maxStatementCount = new AtomicLong();
+    private final LongAdder[] statementCountBuckets = new LongAdder[Count_Bounds.length + 1];
+    //N+1
+    private final LongAdder repeatRequestCount = new LongAdder();
+    private String repeatSql;//fingerprint of max repeat
+    private int repeatCount;
+
+    RequestStat(String endpoint) {
+        this.endpoint = endpoint;
+        for (int i = 0; i < statementCountBuckets.length; i++)
+            statementCountBuckets[i] = new LongAdder();
+    }
+
+    void record(RequestTrace trace, long elapsedNanos, int repeatThreshold) {
+        requestCount.increment();
+        requestTimeNanos.add(elapsedNanos);
+        int count = trace.getStatementCount();
+        statementCount.add(count);
+        statementTimeNanos.add(trace.getStatementTimeNanos());
+        borrowTimeNanos.add(trace.getBorrowTimeNanos());
+        long cur;
+        while (count > (cur = maxStatementCount.get()) && !maxStatementCount.compareAndSet(cur, count)) ;
+
+        int bucket = 0;
+        while (bucket < Count_Bounds.length && count > Count_Bounds[bucket]) bucket++;
+        statementCountBuckets[bucket].increment();
+
+        if (trace.getMaxRepeatCount() >= repeatThreshold) {
+            repeatRequestCount.increment();
+            synchronized (this) {
+                if (trace.getMaxRepeatCount() > repeatCount) {
+                    repeatCount = trace.getMaxRepeatCount();
+                    repeatSql = trace.getMaxRepeatSql();
+                }
+            }
+        }
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    public double getAvgTimeMs() {
+        long count = requestCount.sum();
+        return count > 0 ? toMillis(requestTimeNanos.sum() / count) : 0D;
+    }
+
+    //statement and borrow time
+    @JsonIgnore
+    public long getDbTimeNanos() {
+        return statementTimeNanos.sum() + borrowTimeNanos.sum();
+    }
+
+    public double getAvgDbTimeMs() {
+        long count = requestCount.sum();
+        return count > 0 ? toMillis(getDbTimeNanos() / count) : 0D;
+    }
+
+    public double getAvgBorrowTimeMs() {
+        long count = requestCount.sum();
+        return count > 0 ? toMillis(borrowTimeNanos.sum() / count) : 0D;
+    }
+
+    //percent of request time spent in database,statements on other threads may exceed 100
+    public double getDbTimeShare() {
+        long requestTime = requestTimeNanos.sum();
+        return requestTime > 0 ? Math.round(getDbTimeNanos() * 1000D / requestTime) / 10.0D : 0D;
+    }
+
+    public double getAvgStatementCount() {
+        long count = requestCount.sum();
+        return count > 0 ? Math.round(statementCount.sum() * 100D / count) / 100.0D : 0D;
+    }
+
+    public long getMaxStatementCount() {
+        return maxStatementCount.get();
+    }
+
+    //request count by statement count range
+    public Map<String, Long> getStatementCountHistogram() {
+        Map<String, Long> histogram = new LinkedHashMap<>(statementCountBuckets.length);
+        int lower = 0;
+        for (int i = 0; i < Count_Bounds.length; i++) {
+            int upper = Count_Bounds[i];
+            histogram.put(lower == upper ? String.valueOf(upper) : lower + "-" + upper, statementCountBuckets[i].sum());
+            lower = upper + 1;
+        }
+        histogram.put(">" + Count_Bounds[Count_Bounds.length - 1], statementCountBuckets[Count_Bounds.length].sum());
+        return histogram;
+    }
+
+    public long getRepeatRequestCount() {
+        return repeatRequestCount.sum();
+    }
+
+    public synchronized String getRepeatSql() {
+        return repeatSql;
+    }
+
+    public synchronized int getRepeatCount() {
+        return repeatCount;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.request;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Endpoint statistics of traced requests,endpoints beyond max size are aggregated to a shared entry
+ *
+ * @author Chris Liao
+ */
+public final class RequestStatCollector {
+    private final int maxSize;
+    private final int repeatThreshold;
+    private final RequestStat otherStat = new RequestStat("<others>");
+    private final ConcurrentHashMap<String, RequestStat> statMap = new ConcurrentHashMap<>(16);
+
+    public RequestStatCollector(int maxSize, int repeatThreshold) {
+        this.maxSize = maxSize;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    public void record(String endpoint, RequestTrace trace, long elapsedNanos) {
+        RequestStat stat = statMap.get(endpoint);
+        if (stat == null)
+            stat = statMap.size() < maxSize ? statMap.computeIfAbsent(endpoint, RequestStat::new) : otherStat;
+        stat.record(trace, elapsedNanos, repeatThreshold);
+    }
+
+    //order by database time desc
+    public List<RequestStat> getStatList() {
+        List<RequestStat> statList = new ArrayList<>(statMap.values());
+        if (otherStat.getRequestCount() > 0) statList.add(otherStat);
+        statList.sort((s1, s2) -> Long.compare(s2.getDbTimeNanos(), s1.getDbTimeNanos()));
+        return statList;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.request;
+
+import java.util.HashMap;
+
+/**
+ * Database time accumulator of a http request,bound to request thread by request trace filter.
+ * Traced statements and connection borrows on the thread add their time and count to it.
+ *
+ * @author Chris Liao
+ */
+public final class RequestTrace {
+    private static final ThreadLocal<RequestTrace> Current = new ThreadLocal<>();
+    private static final int Max_Fingerprint_Size = 256;//distinct fingerprints counted per request
+    private static volatile boolean enabled;//skip thread local lookup when no filter installed
+
+    private final long startNanoTime = System.nanoTime();
+    private int statementCount;
+    private long statementTimeNanos;
+    private int borrowCount;
+    private long borrowTimeNanos;
+    private HashMap<String, int[]> fingerprintCountMap;//created at first statement
+    private String maxRepeatSql;
+    private int maxRepeatCount;
+
+    public static void enable() {
+        enabled = true;
+    }
+
+    public static RequestTrace begin() {
+        RequestTrace trace = new RequestTrace();
+        Current.set(trace);
+        return trace;
+    }
+
+    public static void end() {
+        Current.remove();
+    }
+
+    public static RequestTrace current() {
+        return enabled ? Current.get() : null;
+    }
+
+    public static void recordStatement(String fingerprint, long tookTimeNanos) {
+        RequestTrace trace = current();
+        if (trace != null) trace.addStatement(fingerprint, tookTimeNanos);
+    }
+
+    public static void recordBorrow(long borrowTimeNanos) {
+        RequestTrace trace = current();
+        if (trace != null) {
+            trace.borrowCount++;
+            trace.borrowTimeNanos += borrowTimeNanos;
+        }
+    }
+
+    private void addStatement(String fingerprint, long tookTimeNanos) {
+        statementCount++;
+        statementTimeNanos += tookTimeNanos;
+
+        if (fingerprintCountMap == null) fingerprintCountMap = new HashMap<>(16);
+        int[] count = fingerprintCountMap.get(fingerprint);
+        if (count == null) {
+            if (fingerprintCountMap.size() >= Max_Fingerprint_Size) return;
+            fingerprintCountMap.put(fingerprint, count = new int[1]);
+        }
+        if (++count[0] > maxRepeatCount) {
+            maxRepeatCount = count[0];
+            maxRepeatSql = fingerprint;
+        }
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanoTime;
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public long getStatementTimeNanos() {
+        return statementTimeNanos;
+    }
+
+    public int getBorrowCount() {
+        return borrowCount;
+    }
+
+    public long getBorrowTimeNanos() {
+        return borrowTimeNanos;
+    }
+
+    //fingerprint executed most times in the request
+    public String getMaxRepeatSql() {
+        return maxRepeatSql;
+    }
+
+    public int getMaxRepeatCount() {
+        return maxRepeatCount;
+    }
+}
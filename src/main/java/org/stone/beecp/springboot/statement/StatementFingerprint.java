@@ -0,0 +1,148 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+/**
+ * Sql fingerprint: literals are replaced with '?',IN-lists collapsed to one placeholder,
+ * comments removed and whitespaces compacted,so executions of same statement shape share one fingerprint.
+ *
+ * @author Chris Liao
+ */
+public final class StatementFingerprint {
+
+    private StatementFingerprint() {
+    }
+
+    public static String fingerprint(String sql) {
+        if (sql == null) return null;
+        int len = sql.length();
+        StringBuilder buf = new StringBuilder(len);
+        int inListDepth = -1;//paren depth of current IN-list
+        int depth = 0;
+
+        for (int i = 0; i < len; i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {//string literal,'' is escaped quote
+                i = skipQuoted(sql, i, c);
+                appendPlaceholder(buf, inListDepth == depth);
+            } else if (c == '-' && i + 1 < len && sql.charAt(i + 1) == '-') {//line comment
+                while (i + 1 < len && sql.charAt(i + 1) != '\n') i++;
+                appendSpace(buf);
+            } else if (c == '/' && i + 1 < len && sql.charAt(i + 1) == '*') {//block comment
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? len : end + 1;
+                appendSpace(buf);
+            } else if (Character.isWhitespace(c)) {
+                appendSpace(buf);
+            } else if (isNumberStart(sql, i, buf)) {
+                while (i + 1 < len && isNumberPart(sql.charAt(i + 1))) i++;
+                appendPlaceholder(buf, inListDepth == depth);
+            } else if (c == '?') {
+                appendPlaceholder(buf, inListDepth == depth);
+            } else if (c == '(') {
+                if (endsWithKeywordIn(buf)) inListDepth = depth + 1;
+                depth++;
+                buf.append(c);
+            } else if (c == ')') {
+                if (inListDepth == depth) inListDepth = -1;
+                depth--;
+                trimTailSpace(buf);
+                buf.append(c);
+            } else if (c == ',') {
+                trimTailSpace(buf);
+                buf.append(c);
+            } else {
+                buf.append(c);
+            }
+        }
+        trimTailSpace(buf);
+        return buf.toString();
+    }
+
+    private static int skipQuoted(String sql, int begin, char quote) {
+        int len = sql.length();
+        for (int i = begin + 1; i < len; i++) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < len && sql.charAt(i + 1) == quote)
+                    i++;
+                else
+                    return i;
+            }
+        }
+        return len;
+    }
+
+    //digit not part of an identifier,or a negative sign right after an operator
+    private static boolean isNumberStart(String sql, int i, StringBuilder buf) {
+        char c = sql.charAt(i);
+        if (c == '-' || c == '.') {
+            if (i + 1 >= sql.length() || !Character.isDigit(sql.charAt(i + 1))) return false;
+            if (c == '-' && !isOperatorTail(buf)) return false;
+        } else if (!Character.isDigit(c)) {
+            return false;
+        }
+        int n = buf.length();
+        if (n == 0) return true;
+        char prev = buf.charAt(n - 1);
+        return !(Character.isLetterOrDigit(prev) || prev == '_' || prev == '$' || prev == '.' || prev == '`');
+    }
+
+    private static boolean isNumberPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '.';//decimals,exponents and hex
+    }
+
+    private static boolean isOperatorTail(StringBuilder buf) {
+        for (int i = buf.length() - 1; i >= 0; i--) {
+            char c = buf.charAt(i);
+            if (c != ' ') return c == '=' || c == '<' || c == '>' || c == '(' || c == ',';
+        }
+        return true;
+    }
+
+    //add a placeholder,subsequent placeholders of an IN-list are dropped
+    private static void appendPlaceholder(StringBuilder buf, boolean inList) {
+        if (inList) {
+            int n = buf.length();
+            if (n > 0 && buf.charAt(n - 1) == ' ') n--;
+            if (n >= 2 && buf.charAt(n - 1) == ',' && buf.charAt(n - 2) == '?') {
+                buf.setLength(n - 1);
+                return;
+            }
+        }
+        buf.append('?');
+    }
+
+    private static void appendSpace(StringBuilder buf) {
+        int n = buf.length();
+        if (n == 0) return;
+        char prev = buf.charAt(n - 1);
+        if (prev != ' ' && prev != '(' && prev != ',') buf.append(' ');
+    }
+
+    private static void trimTailSpace(StringBuilder buf) {
+        int n = buf.length();
+        if (n > 0 && buf.charAt(n - 1) == ' ') buf.setLength(n - 1);
+    }
+
+    private static boolean endsWithKeywordIn(StringBuilder buf) {
+        int n = buf.length();
+        if (n > 0 && buf.charAt(n - 1) == ' ') n--;
+        if (n < 2) return false;
+        char c1 = buf.charAt(n - 2), c2 = buf.charAt(n - 1);
+        if ((c1 != 'i' && c1 != 'I') || (c2 != 'n' && c2 != 'N')) return false;
+        return n == 2 || !Character.isLetterOrDigit(buf.charAt(n - 3)) && buf.charAt(n - 3) != '_';
+    }
+}
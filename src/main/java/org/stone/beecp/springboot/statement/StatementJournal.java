@@ -0,0 +1,241 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.stone.beecp.springboot.factory.SpringBootDataSourceException;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Append-only binary journal of slow and failed sql traces on memory mapped files,traces are
+ * offered to a bounded queue(dropped when full) and written by a daemon thread,a new file is
+ * created when current one is full and oldest files are deleted beyond max count.
+ * <p>
+ * File layout:magic(8 bytes),then records until a zero length.
+ * Record layout:length(int,written last),startTimeMs(long),tookTimeNanos(long),flags(byte),
+ * dsId,statementType,methodName,sql,parameters,failCause(utf-8 strings with int length,-1 for null)
+ *
+ * @author Chris Liao
+ */
+public final class StatementJournal {
+    public static final int Min_File_Size = 1024 * 1024;
+    private static final Logger Log = LoggerFactory.getLogger(StatementJournal.class);
+    private static final byte[] File_Magic = "BEECPSJ1".getBytes(StandardCharsets.US_ASCII);
+    private static final String File_Prefix = "sql-journal-";
+    private static final String File_Suffix = ".bin";
+    private static final int Max_Sql_Length = 4096;
+    private static final int Max_Text_Length = 2048;
+    private static final byte Flag_Success = 1;
+    private static final byte Flag_Slow = 2;
+
+    private final File dir;
+    private final int fileSize;
+    private final int maxFiles;
+    private final ArrayBlockingQueue<StatementTrace> queue;
+    private final LongAdder droppedCount = new LongAdder();
+    private MappedByteBuffer buffer;//current file(only accessed by writer thread)
+    private long lastFileTime;
+
+    public StatementJournal(String dir, int fileSize, int maxFiles, int queueSize) {
+        this.dir = new File(dir);
+        this.fileSize = fileSize;
+        this.maxFiles = maxFiles;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        if (!this.dir.isDirectory() && !this.dir.mkdirs())
+            throw new SpringBootDataSourceException("Failed to create sql journal directory:" + dir);
+    }
+
+    public void start() {
+        Thread writer = new Thread(new JournalWriter(), "SqlJournalWriter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    //non-blocking,trace is dropped when queue is full
+    public void offer(StatementTrace trace) {
+        if (!queue.offer(trace)) droppedCount.increment();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    //***************************************************************************************************************//
+    //                                1: write methods                                                               //
+    //***************************************************************************************************************//
+    private void write(StatementTrace trace) throws IOException {
+        Throwable cause = trace.getFailCause();
+        byte[][] texts = {
+                encode(trace.getDsId(), Max_Text_Length),
+                encode(trace.getStatementType(), Max_Text_Length),
+                encode(trace.getMethodName(), Max_Text_Length),
+                encode(trace.getSql(), Max_Sql_Length),
+                encode(trace.getParameters(), Max_Text_Length),
+                encode(cause != null ? cause.toString() : null, Max_Text_Length)};
+
+        int size = 21;
+        for (byte[] text : texts)
+            size += 4 + (text != null ? text.length : 0);
+        if (buffer == null || buffer.remaining() < size + 4) rotate();//keep a zero length at end
+
+        int position = buffer.position();
+        buffer.position(position + 4);
+        buffer.putLong(trace.getStartTimeMs());
+        buffer.putLong(trace.getTookTimeNanos());
+        buffer.put((byte) ((trace.isSuccessInd() ? Flag_Success : 0) | (trace.isSlowInd() ? Flag_Slow : 0)));
+        for (byte[] text : texts) {
+            if (text == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(text.length);
+                buffer.put(text);
+            }
+        }
+        buffer.putInt(position, size);//record is visible to readers after length written
+    }
+
+    private static byte[] encode(String text, int maxLength) {
+        if (text == null) return null;
+        if (text.length() > maxLength) text = text.substring(0, maxLength);
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void rotate() throws IOException {
+        if (buffer != null) buffer.force();
+        long fileTime = Math.max(System.currentTimeMillis(), lastFileTime + 1);
+        File file = new File(dir, File_Prefix + fileTime + File_Suffix);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(fileSize);
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        }
+        buffer.put(File_Magic);
+        lastFileTime = fileTime;
+
+        File[] files = listFiles();
+        for (int i = 0, l = files.length - maxFiles; i < l; i++)
+            if (!files[i].delete()) Log.warn("Failed to delete sql journal file:{}", files[i]);
+    }
+
+    //journal files sorted by creation time(in name)
+    private File[] listFiles() {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(File_Prefix) && name.endsWith(File_Suffix));
+        if (files == null) return new File[0];
+        Arrays.sort(files, (f1, f2) -> Long.compare(fileTime(f1), fileTime(f2)));
+        return files;
+    }
+
+    private static long fileTime(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(File_Prefix.length(), name.length() - File_Suffix.length()));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private final class JournalWriter implements Runnable {
+        public void run() {
+            while (true) {
+                try {
+                    write(queue.take());
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Throwable e) {
+                    Log.warn("Failed to write sql journal", e);
+                }
+            }
+        }
+    }
+
+    //***************************************************************************************************************//
+    //                                2: read methods                                                                //
+    //***************************************************************************************************************//
+    //records started in time range of a datasource(all if dsId is blank),newest first
+    public List<StatementJournalRecord> read(String dsId, long startTimeMs, long endTimeMs, int maxSize) throws IOException {
+        List<StatementJournalRecord> recordList = new ArrayList<>();
+        File[] files = listFiles();
+        for (int i = files.length - 1; i >= 0 && recordList.size() < maxSize; i--) {
+            //records of a file started before creation of next file
+            if (i < files.length - 1 && fileTime(files[i + 1]) < startTimeMs) break;
+
+            List<StatementJournalRecord> fileRecordList = readFile(files[i], dsId, startTimeMs, endTimeMs);
+            Collections.reverse(fileRecordList);
+            for (StatementJournalRecord record : fileRecordList) {
+                if (recordList.size() >= maxSize) break;
+                recordList.add(record);
+            }
+        }
+        return recordList;
+    }
+
+    private static List<StatementJournalRecord> readFile(File file, String dsId, long startTimeMs, long endTimeMs) throws IOException {
+        List<StatementJournalRecord> recordList = new ArrayList<>();
+        MappedByteBuffer fileBuffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            fileBuffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        } catch (FileNotFoundException e) {//deleted by rotation after listed
+            return recordList;
+        }
+        byte[] magic = new byte[File_Magic.length];
+        if (fileBuffer.remaining() < magic.length) return recordList;
+        fileBuffer.get(magic);
+        if (!Arrays.equals(magic, File_Magic)) return recordList;
+
+        boolean allDs = dsId == null || dsId.trim().isEmpty();
+        while (fileBuffer.remaining() >= 4) {
+            int position = fileBuffer.position();
+            int size = fileBuffer.getInt();
+            if (size <= 0 || size > fileBuffer.remaining() + 4) break;
+
+            long recordStartTimeMs = fileBuffer.getLong();
+            if (recordStartTimeMs >= startTimeMs && recordStartTimeMs <= endTimeMs) {
+                long tookTimeNanos = fileBuffer.getLong();
+                byte flags = fileBuffer.get();
+                String recordDsId = decode(fileBuffer);
+                if (allDs || dsId.equals(recordDsId)) {
+                    recordList.add(new StatementJournalRecord(recordDsId, decode(fileBuffer), decode(fileBuffer), decode(fileBuffer),
+                            decode(fileBuffer), decode(fileBuffer), recordStartTimeMs, tookTimeNanos,
+                            (flags & Flag_Success) != 0, (flags & Flag_Slow) != 0));
+                }
+            }
+            fileBuffer.position(position + size);
+        }
+        return recordList;
+    }
+
+    private static String decode(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import org.stone.beecp.springboot.SpringBootDataSourceUtil;
+
+/**
+ * Slow or failed sql trace read from journal
+ *
+ * @author Chris Liao
+ */
+public class StatementJournalRecord {
+    private final String dsId;
+    private final String statementType;
+    private final String methodName;
+    private final String sql;
+    private final String parameters;
+    private final String failCause;
+    private final long startTimeMs;
+    private final long tookTimeNanos;
+    private final boolean successInd;
+    private final boolean slowInd;
+
+    StatementJournalRecord(String dsId, String statementType, String methodName, String sql, String parameters, String failCause,
+                           long startTimeMs, long tookTimeNanos, boolean successInd, boolean slowInd) {
+        this.dsId = dsId;
+        this.statementType = statementType;
+        this.methodName = methodName;
+        this.sql = sql;
+        this.parameters = parameters;
+        this.failCause = failCause;
+        this.startTimeMs = startTimeMs;
+        this.tookTimeNanos = tookTimeNanos;
+        this.successInd = successInd;
+        this.slowInd = slowInd;
+    }
+
+    public String getDsId() {
+        return dsId;
+    }
+
+    public String getStatementType() {
+        return statementType;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public String getParameters() {
+        return parameters;
+    }
+
+    public String getFailCause() {
+        return failCause;
+    }
+
+    public long getStartTimeMs() {
+        return startTimeMs;
+    }
+
+    public String getStartTime() {
+        return SpringBootDataSourceUtil.formatTime(startTimeMs);
+    }
+
+    public double getTookTimeMs() {
+        return (tookTimeNanos / 1000L) / 1000.0D;
+    }
+
+    public boolean isSuccessInd() {
+        return successInd;
+    }
+
+    public boolean isSlowInd() {
+        return slowInd;
+    }
+}
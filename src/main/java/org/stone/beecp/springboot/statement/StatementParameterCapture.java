@@ -0,0 +1,197 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.*;
+import java.util.Locale;
+
+/**
+ * Render captured parameters of a prepared statement,values are truncated to max length,
+ * output is limited to max bytes(utf-8) and values bound to redacted names are masked.
+ * A parameter name is resolved from sql text before its placeholder(column list for insert values).
+ *
+ * @author Chris Liao
+ */
+public final class StatementParameterCapture {
+    private static final String Redacted_Value = "***";
+    private final int maxLength;
+    private final int maxBytes;
+    private final String[] redactNames;//lower case
+
+    public StatementParameterCapture(int maxLength, int maxBytes, String redactNames) {
+        this.maxLength = maxLength;
+        this.maxBytes = maxBytes;
+        this.redactNames = parseNames(redactNames);
+    }
+
+    private static String[] parseNames(String names) {
+        if (names == null) return new String[0];
+        String[] nameArray = names.toLowerCase(Locale.ROOT).split(",");
+        int count = 0;
+        for (String name : nameArray) {
+            name = name.trim();
+            if (!name.isEmpty()) nameArray[count++] = name;
+        }
+        String[] result = new String[count];
+        System.arraycopy(nameArray, 0, result, 0, count);
+        return result;
+    }
+
+    //render values,a null value means not set
+    String render(String sql, Object[] values, int size) {
+        String[] names = redactNames.length > 0 ? parameterNames(sql, size) : null;
+        StringBuilder builder = new StringBuilder(64);
+        int bytes = 0;
+        for (int i = 0; i < size; i++) {
+            String text = names != null && isRedacted(names[i]) ? Redacted_Value : renderValue(values[i]);
+            String item = (i > 0 ? ", " : "") + (i + 1) + "=" + text;
+            bytes += utf8Length(item);
+            if (bytes > maxBytes) {
+                builder.append(i > 0 ? ", ..." : "...");
+                break;
+            }
+            builder.append(item);
+        }
+        return builder.toString();
+    }
+
+    private boolean isRedacted(String name) {
+        if (name == null) return false;
+        for (String redactName : redactNames)
+            if (name.contains(redactName)) return true;
+        return false;
+    }
+
+    private String renderValue(Object value) {
+        if (value == null) return "?";
+        if (value == StatementParameters.Null_Value) return "NULL";
+        if (value instanceof CharSequence || value instanceof Character)
+            return "'" + truncate(value.toString()) + "'";
+        if (value instanceof byte[]) return "<bytes:" + ((byte[]) value).length + ">";
+        if (value instanceof Blob) return "<blob>";
+        if (value instanceof Clob) return "<clob>";
+        if (value instanceof InputStream || value instanceof Reader) return "<stream>";
+        if (value instanceof SQLXML) return "<xml>";
+        if (value instanceof Array) return "<array>";
+        if (value instanceof Ref) return "<ref>";
+        return truncate(value.toString());
+    }
+
+    private String truncate(String value) {
+        return value.length() <= maxLength ? value : value.substring(0, maxLength) + "...(" + value.length() + ")";
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0, l = value.length(); i < l; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) length++;
+            else if (c < 0x800 || Character.isSurrogate(c)) length += 2;//surrogate pair:4 bytes
+            else length += 3;
+        }
+        return length;
+    }
+
+    //***************************************************************************************************************//
+    //                                parameter name resolution                                                      //
+    //***************************************************************************************************************//
+    //lower case name of each placeholder,null if unknown
+    static String[] parameterNames(String sql, int size) {
+        String[] names = new String[size];
+        String[] insertColumns = null;
+        int valuesDepth = -1, valuesIndex = 0;//position in values tuple of insert
+        int depth = 0, index = 0;
+
+        for (int i = 0, l = sql.length(); i < l && index < size; i++) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {//skip quoted
+                int end = sql.indexOf(c, i + 1);
+                i = end < 0 ? l : end;
+            } else if (c == '-' && i + 1 < l && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? l : end;
+            } else if (c == '/' && i + 1 < l && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? l : end + 1;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                if (depth-- == valuesDepth) valuesDepth = -1;
+            } else if (c == ',') {
+                if (depth == valuesDepth) valuesIndex++;
+            } else if (c == '?') {
+                if (depth == valuesDepth && insertColumns != null && valuesIndex < insertColumns.length)
+                    names[index] = insertColumns[valuesIndex];
+                else
+                    names[index] = nameBefore(sql, i);
+                index++;
+            } else if ((c == 'v' || c == 'V') && sql.regionMatches(true, i, "values", 0, 6) && isWordBound(sql, i, 6)) {
+                insertColumns = insertColumns(sql, i);
+                int open = sql.indexOf('(', i);
+                if (open >= 0) {//enter values tuple
+                    i = open;
+                    valuesDepth = ++depth;
+                    valuesIndex = 0;
+                }
+            }
+        }
+        return names;
+    }
+
+    private static boolean isWordBound(String sql, int pos, int len) {
+        return (pos == 0 || !isNameChar(sql.charAt(pos - 1))) && (pos + len >= sql.length() || !isNameChar(sql.charAt(pos + len)));
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    //columns list in parentheses before keyword 'values'
+    private static String[] insertColumns(String sql, int valuesPos) {
+        int close = valuesPos - 1;
+        while (close >= 0 && Character.isWhitespace(sql.charAt(close))) close--;
+        if (close < 0 || sql.charAt(close) != ')') return null;
+        int open = sql.lastIndexOf('(', close);
+        if (open < 0) return null;
+
+        String[] columns = sql.substring(open + 1, close).split(",");
+        for (int i = 0; i < columns.length; i++)
+            columns[i] = simpleName(columns[i].trim());
+        return columns;
+    }
+
+    //name of expression before placeholder,such as:'name = ?','name like ?','name in (?,?)'
+    private static String nameBefore(String sql, int pos) {
+        for (int round = 0; round < 3; round++) {
+            while (pos > 0 && " \t\r\n=<>!(,?".indexOf(sql.charAt(pos - 1)) >= 0) pos--;
+            int end = pos;
+            while (pos > 0 && (isNameChar(sql.charAt(pos - 1)) || ".`\"".indexOf(sql.charAt(pos - 1)) >= 0)) pos--;
+            if (pos == end) return null;
+
+            String name = simpleName(sql.substring(pos, end));
+            if (!"like".equals(name) && !"in".equals(name) && !"not".equals(name) && !"is".equals(name)) return name;
+        }
+        return null;
+    }
+
+    private static String simpleName(String name) {
+        int dot = name.lastIndexOf('.');
+        if (dot >= 0) name = name.substring(dot + 1);
+        return name.replace("`", "").replace("\"", "").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import java.util.Arrays;
+
+/**
+ * Parameters set on a traced prepared statement,only references are held until
+ * they are rendered for a slow or failed execution.
+ *
+ * @author Chris Liao
+ */
+public final class StatementParameters {
+    static final Object Null_Value = new Object();
+    private final StatementParameterCapture capture;
+    private final String sql;
+    private Object[] values;
+    private int size;//max index of set parameters
+
+    StatementParameters(StatementParameterCapture capture, String sql) {
+        this.capture = capture;
+        this.sql = sql;
+    }
+
+    void set(int parameterIndex, Object value) {
+        if (parameterIndex < 1) return;
+        if (values == null)
+            values = new Object[Math.max(parameterIndex, 8)];
+        else if (parameterIndex > values.length)
+            values = Arrays.copyOf(values, Math.max(parameterIndex, values.length << 1));
+
+        values[parameterIndex - 1] = value != null ? value : Null_Value;
+        if (parameterIndex > size) size = parameterIndex;
+    }
+
+    void clear() {
+        if (values != null) Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+    public String render() {
+        return size > 0 ? capture.render(sql, values, size) : null;
+    }
+}
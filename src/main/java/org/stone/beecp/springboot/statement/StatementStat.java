@@ -0,0 +1,179 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.stone.beecp.springboot.util.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.stone.beecp.springboot.util.LatencyHistogram.toMillis;
+
+/*
+ *  Aggregated execution statistics of a sql fingerprint
+ *
+ *  @author Chris Liao
+ */
+public class StatementStat {
+    private final String dsId;
+    private final String sql;
+    private final LongAdder errorCount = new LongAdder();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    //batch execution
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder batchItemCount = new LongAdder();
+    private final LongAdder batchRowCount = new LongAdder();
+    private final LongAdder batchTimeNanos = new LongAdder();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    //result set fetch(wrapped result set only)
+    private final LongAdder fetchCount = new LongAdder();
+    private final LongAdder fetchTimeNanos = new LongAdder();
+    private final LongAdder fetchRowCount = new LongAdder();
+    private final LongAdder fetchBytes = new LongAdder();
+    private final AtomicLong maxFetchRowCount = new AtomicLong();
+
+    StatementStat(String dsId, String sql) {
+        this.dsId = dsId;
+        this.sql = sql;
+    }
+
+    void record(StatementTrace trace) {
+        histogram.record(trace.getTookTimeNanos());
+        if (!trace.isSuccessInd()) errorCount.increment();
+
+        int batchSize = trace.getBatchSize();
+        if (batchSize > 0) {
+            batchCount.increment();
+            batchItemCount.add(batchSize);
+            batchRowCount.add(trace.getBatchRowCount());
+            batchTimeNanos.add(trace.getTookTimeNanos());
+            long cur;
+            while (batchSize > (cur = maxBatchSize.get()) && !maxBatchSize.compareAndSet(cur, batchSize)) ;
+        }
+    }
+
+    void recordFetch(long timeNanos, long rowCount, long bytes) {
+        fetchCount.increment();
+        fetchTimeNanos.add(timeNanos);
+        fetchRowCount.add(rowCount);
+        fetchBytes.add(bytes);
+        long cur;
+        while (rowCount > (cur = maxFetchRowCount.get()) && !maxFetchRowCount.compareAndSet(cur, rowCount)) ;
+    }
+
+    public String getDsId() {
+        return dsId;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public long getTotalTimeNanos() {
+        return histogram.getSumNanos();
+    }
+
+    public double getTotalTimeMs() {
+        return toMillis(histogram.getSumNanos());
+    }
+
+    public double getAvgTimeMs() {
+        return toMillis(histogram.getMeanNanos());
+    }
+
+    public double getMinTimeMs() {
+        return toMillis(histogram.getMinNanos());
+    }
+
+    public double getMaxTimeMs() {
+        return toMillis(histogram.getMaxNanos());
+    }
+
+    public double getP50TimeMs() {
+        return toMillis(histogram.getPercentileNanos(50));
+    }
+
+    public double getP95TimeMs() {
+        return toMillis(histogram.getPercentileNanos(95));
+    }
+
+    public double getP99TimeMs() {
+        return toMillis(histogram.getPercentileNanos(99));
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public long getAvgBatchSize() {
+        long count = batchCount.sum();
+        return count > 0 ? batchItemCount.sum() / count : 0;
+    }
+
+    public long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    public long getBatchRowCount() {
+        return batchRowCount.sum();
+    }
+
+    //average time per batch item
+    public double getAvgBatchItemTimeMs() {
+        long items = batchItemCount.sum();
+        return items > 0 ? toMillis(batchTimeNanos.sum() / items) : 0;
+    }
+
+    public double getFetchTimeMs() {
+        return toMillis(fetchTimeNanos.sum());
+    }
+
+    public double getAvgFetchTimeMs() {
+        long count = fetchCount.sum();
+        return count > 0 ? toMillis(fetchTimeNanos.sum() / count) : 0;
+    }
+
+    public long getFetchRowCount() {
+        return fetchRowCount.sum();
+    }
+
+    public long getAvgFetchRowCount() {
+        long count = fetchCount.sum();
+        return count > 0 ? fetchRowCount.sum() / count : 0;
+    }
+
+    public long getMaxFetchRowCount() {
+        return maxFetchRowCount.get();
+    }
+
+    public long getFetchBytes() {
+        return fetchBytes.sum();
+    }
+
+    @JsonIgnore
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import static org.stone.beecp.springboot.util.LatencyHistogram.toMillis;
+
+/*
+ *  Estimated execution count and time of a top sql fingerprint
+ *
+ *  @author Chris Liao
+ */
+public class StatementTopEntry {
+    private final String dsId;
+    private final String sql;
+    private final long count;
+    private final long totalTimeNanos;
+
+    StatementTopEntry(String dsId, String sql, long count, long totalTimeNanos) {
+        this.dsId = dsId;
+        this.sql = sql;
+        this.count = count;
+        this.totalTimeNanos = totalTimeNanos;
+    }
+
+    public String getDsId() {
+        return dsId;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @JsonIgnore
+    public long getTotalTimeNanos() {
+        return totalTimeNanos;
+    }
+
+    public double getTotalTimeMs() {
+        return toMillis(totalTimeNanos);
+    }
+
+    public double getAvgTimeMs() {
+        return toMillis(totalTimeNanos / count);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ *  Top sql fingerprints by execution count and by total time
+ *
+ *  @author Chris Liao
+ */
+public class StatementTopList {
+    private final List<StatementTopEntry> frequentList = new ArrayList<>();
+    private final List<StatementTopEntry> totalTimeList = new ArrayList<>();
+
+    public List<StatementTopEntry> getFrequentList() {
+        return frequentList;
+    }
+
+    public List<StatementTopEntry> getTotalTimeList() {
+        return totalTimeList;
+    }
+
+    public void sort() {
+        frequentList.sort((e1, e2) -> Long.compare(e2.getCount(), e1.getCount()));
+        totalTimeList.sort((e1, e2) -> Long.compare(e2.getTotalTimeNanos(), e1.getTotalTimeNanos()));
+    }
+}
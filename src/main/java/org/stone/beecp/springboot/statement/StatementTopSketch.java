@@ -0,0 +1,196 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Top sql fingerprints of a datasource over rolling time windows,memory is fixed whatever distinct sql are executed.
+ * Each window holds count-min sketches of execution count and time,and two bounded candidate sets of heavy hitters
+ * (by count and by time),a fingerprint enters a full set only when its estimate exceeds the smallest candidate.
+ * Counts and times are estimates,never less than real values.
+ *
+ * @author Chris Liao
+ */
+public final class StatementTopSketch {
+    private static final int Depth = 4;
+    private static final int Width_Bits = 8;
+    private static final int Width = 1 << Width_Bits;
+
+    private final String dsId;
+    private final int topSize;
+    private final long windowTimeMs;
+    private final Window[] windows;
+
+    public StatementTopSketch(String dsId, int topSize, long windowTimeMs, int windowCount) {
+        this.dsId = dsId;
+        this.topSize = topSize;
+        this.windowTimeMs = windowTimeMs;
+        this.windows = new Window[windowCount];
+        for (int i = 0; i < windowCount; i++)
+            windows[i] = new Window(topSize * 2);
+    }
+
+    void record(String fingerprint, long tookTimeNanos) {
+        long epoch = System.currentTimeMillis() / windowTimeMs;
+        Window window = windows[(int) (epoch % windows.length)];
+        if (window.epoch != epoch) window.reset(epoch);
+        window.add(fingerprint, tookTimeNanos);
+    }
+
+    //estimates of candidates summed over live windows,sorted by count and by total time
+    public void collect(List<StatementTopEntry> frequentList, List<StatementTopEntry> totalTimeList) {
+        long currentEpoch = System.currentTimeMillis() / windowTimeMs;
+        List<Window> liveWindows = new ArrayList<>(windows.length);
+        for (Window window : windows) {
+            long epoch = window.epoch;
+            if (epoch <= currentEpoch && epoch > currentEpoch - windows.length) liveWindows.add(window);
+        }
+
+        Set<String> candidateSet = new HashSet<>();
+        for (Window window : liveWindows) {
+            candidateSet.addAll(window.countCandidates.keys);
+            candidateSet.addAll(window.timeCandidates.keys);
+        }
+        List<StatementTopEntry> entryList = new ArrayList<>(candidateSet.size());
+        for (String fingerprint : candidateSet) {
+            int hash = fingerprint.hashCode();
+            long count = 0, timeNanos = 0;
+            for (Window window : liveWindows) {
+                count += estimate(window.counts, hash);
+                timeNanos += estimate(window.times, hash);
+            }
+            if (count > 0) entryList.add(new StatementTopEntry(dsId, fingerprint, count, timeNanos));
+        }
+
+        entryList.sort((e1, e2) -> Long.compare(e2.getCount(), e1.getCount()));
+        frequentList.addAll(entryList.subList(0, Math.min(topSize, entryList.size())));
+        entryList.sort((e1, e2) -> Long.compare(e2.getTotalTimeNanos(), e1.getTotalTimeNanos()));
+        totalTimeList.addAll(entryList.subList(0, Math.min(topSize, entryList.size())));
+    }
+
+    //***************************************************************************************************************//
+    //                                1: count-min sketch methods(4)                                                 //
+    //***************************************************************************************************************//
+    //rows are indexed by independent mixes of hash code(murmur3 finalizer with row seed)
+    private static int index(int row, int hash) {
+        int h = hash + row * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return row * Width + (h >>> (32 - Width_Bits));
+    }
+
+    private static long estimate(AtomicLongArray array, int hash) {
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < Depth; row++)
+            min = Math.min(min, array.get(index(row, hash)));
+        return min;
+    }
+
+    //***************************************************************************************************************//
+    //                                2: window and candidate set(2)                                                 //
+    //***************************************************************************************************************//
+    private static final class Window {
+        private final AtomicLongArray counts = new AtomicLongArray(Depth * Width);
+        private final AtomicLongArray times = new AtomicLongArray(Depth * Width);
+        private final CandidateSet countCandidates;
+        private final CandidateSet timeCandidates;
+        private volatile long epoch = -1;
+
+        Window(int candidateSize) {
+            this.countCandidates = new CandidateSet(candidateSize, counts);
+            this.timeCandidates = new CandidateSet(candidateSize, times);
+        }
+
+        //a racing add to an expired window may leak into the new one,acceptable for estimates
+        synchronized void reset(long newEpoch) {
+            if (epoch != newEpoch) {
+                for (int i = 0, l = counts.length(); i < l; i++) {
+                    counts.set(i, 0L);
+                    times.set(i, 0L);
+                }
+                countCandidates.clear();
+                timeCandidates.clear();
+                epoch = newEpoch;
+            }
+        }
+
+        void add(String fingerprint, long tookTimeNanos) {
+            int hash = fingerprint.hashCode();
+            long count = Long.MAX_VALUE, time = Long.MAX_VALUE;
+            for (int row = 0; row < Depth; row++) {
+                int index = index(row, hash);
+                count = Math.min(count, counts.addAndGet(index, 1L));
+                time = Math.min(time, times.addAndGet(index, tookTimeNanos));
+            }
+            countCandidates.offer(fingerprint, count);
+            timeCandidates.offer(fingerprint, time);
+        }
+    }
+
+    private static final class CandidateSet {
+        private final int capacity;
+        private final AtomicLongArray sketch;
+        private final Set<String> keys = ConcurrentHashMap.newKeySet();
+        private volatile long minEstimate;//lower bound of smallest candidate,estimates only grow in a window
+
+        CandidateSet(int capacity, AtomicLongArray sketch) {
+            this.capacity = capacity;
+            this.sketch = sketch;
+        }
+
+        void offer(String key, long estimate) {
+            if (keys.contains(key) || estimate <= minEstimate && keys.size() >= capacity) return;
+            synchronized (this) {
+                if (keys.contains(key)) return;
+                if (keys.size() < capacity) {
+                    keys.add(key);
+                    return;
+                }
+
+                String minKey = null;
+                long min = Long.MAX_VALUE, secondMin = Long.MAX_VALUE;
+                for (String candidate : keys) {
+                    long value = estimate(sketch, candidate.hashCode());
+                    if (value < min) {
+                        secondMin = min;
+                        min = value;
+                        minKey = candidate;
+                    } else if (value < secondMin) {
+                        secondMin = value;
+                    }
+                }
+                if (estimate > min) {//replace the smallest
+                    keys.remove(minKey);
+                    keys.add(key);
+                    minEstimate = Math.min(secondMin, estimate);
+                } else {
+                    minEstimate = min;
+                }
+            }
+        }
+
+        synchronized void clear() {
+            keys.clear();
+            minEstimate = 0L;
+        }
+    }
+}
@@ -17,10 +17,9 @@ package org.stone.beecp.springboot.statement;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.stone.beecp.springboot.SpringBootDataSourceUtil;
+import org.stone.beecp.springboot.jfr.JfrEvents;
 
-import java.util.Date;
-import java.util.Objects;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 /*
  *  SQL Execute Trace entry
@@ -28,17 +27,30 @@ import java.util.UUID;
  *  @author Chris Liao
  */
 public class StatementTrace {
+    static final String Type_Statement = "Statement";
+    static final String Type_PreparedStatement = "PreparedStatement";
+    static final String Type_CallableStatement = "CallableStatement";
+    private static final AtomicLong SqlIdSeq = new AtomicLong();
+
     private final String sql;
-    private final String dsId;
-    private final String dsUUID;
-    private final String sqlUUID;
+    @JsonIgnore
+    private final StatementTraceContext context;
+    private final long sqlId;
     private final String statementType;
 
-    private long startTimeMs;
-    private String startTime;
+    private final long startTimeMs;
+    private final long startNanoTime;
     private long endTimeMs;
-    private String endTime;
-    private long tookTimeMs;
+    private long tookTimeNanos;
+    //batch execution
+    private int batchSize;
+    private long batchRowCount;
+    //result set fetch(wrapped result set only)
+    private long fetchTimeNanos;
+    private long fetchRowCount;
+    private long fetchBytes;
+    //rendered parameters of failed or slow execution
+    private String parameters;
 
     private boolean slowInd;
     private boolean successInd;
@@ -47,17 +59,20 @@ public class StatementTrace {
     @JsonIgnore
     private Throwable failCause;
     private String methodName;
+    private long traceSeq;
+    final Object jfrEvent;//flight recorder event,null when not enabled
+    @JsonIgnore
+    private final boolean sampled;//not sampled:only aggregated,not kept in trace buffer
 
-    StatementTrace(String dsId, String dsUUID, String sql, String statementType) {
-        this.dsId = dsId;
-        this.dsUUID = dsUUID;
+    StatementTrace(StatementTraceContext context, String sql, String statementType, boolean sampled) {
+        this.context = context;
         this.sql = sql;
         this.statementType = statementType;
-        this.sqlUUID = UUID.randomUUID().toString();
-
-        Date startTime = new Date();
-        this.startTimeMs = startTime.getTime();
-        this.startTime = SpringBootDataSourceUtil.formatDate(startTime);
+        this.sampled = sampled;
+        this.sqlId = SqlIdSeq.incrementAndGet();
+        this.startTimeMs = System.currentTimeMillis();
+        this.startNanoTime = System.nanoTime();
+        this.jfrEvent = JfrEvents.beginSqlExecute();
     }
 
     public String getSql() {
@@ -65,15 +80,24 @@ public class StatementTrace {
     }
 
     public String getDsId() {
-        return dsId;
+        return context.getDsId();
     }
 
     public String getDsUUID() {
-        return dsUUID;
+        return context.getDsUUID();
+    }
+
+    public StatementTraceContext getContext() {
+        return context;
+    }
+
+    @JsonIgnore
+    public boolean isSampled() {
+        return sampled;
     }
 
-    public String getSqlUUID() {
-        return sqlUUID;
+    public long getSqlId() {
+        return sqlId;
     }
 
     public String getStatementType() {
@@ -84,40 +108,74 @@ public class StatementTrace {
         return startTimeMs;
     }
 
-    public void setStartTimeMs(long startTimeMs) {
-        this.startTimeMs = startTimeMs;
+    //formatted at serialization
+    public String getStartTime() {
+        return SpringBootDataSourceUtil.formatTime(startTimeMs);
     }
 
-    public String getStartTime() {
-        return startTime;
+    public long getEndTimeMs() {
+        return endTimeMs;
     }
 
-    public void setStartTime(String startTime) {
-        this.startTime = startTime;
+    public String getEndTime() {
+        return endTimeMs > 0 ? SpringBootDataSourceUtil.formatTime(endTimeMs) : null;
     }
 
-    public long getEndTimeMs() {
-        return endTimeMs;
+    //end time derived from start time and elapsed nanoseconds
+    public void setEndNanoTime(long endNanoTime) {
+        this.tookTimeNanos = endNanoTime - startNanoTime;
+        this.endTimeMs = startTimeMs + tookTimeNanos / 1000000L;
     }
 
-    public void setEndTimeMs(long endTimeMs) {
-        this.endTimeMs = endTimeMs;
+    public long getTookTimeNanos() {
+        return tookTimeNanos;
     }
 
-    public String getEndTime() {
-        return endTime;
+    //milliseconds with microsecond precision
+    public double getTookTimeMs() {
+        return (tookTimeNanos / 1000L) / 1000.0D;
     }
 
-    public void setEndTime(String endTime) {
-        this.endTime = endTime;
+    public int getBatchSize() {
+        return batchSize;
     }
 
-    public long getTookTimeMs() {
-        return tookTimeMs;
+    void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
     }
 
-    public void setTookTimeMs(long tookTimeMs) {
-        this.tookTimeMs = tookTimeMs;
+    public long getBatchRowCount() {
+        return batchRowCount;
+    }
+
+    void setBatchRowCount(long batchRowCount) {
+        this.batchRowCount = batchRowCount;
+    }
+
+    public double getFetchTimeMs() {
+        return (fetchTimeNanos / 1000L) / 1000.0D;
+    }
+
+    public long getFetchRowCount() {
+        return fetchRowCount;
+    }
+
+    public long getFetchBytes() {
+        return fetchBytes;
+    }
+
+    void addFetch(long fetchTimeNanos, long rowCount, long bytes) {
+        this.fetchTimeNanos += fetchTimeNanos;
+        this.fetchRowCount += rowCount;
+        this.fetchBytes += bytes;
+    }
+
+    public String getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(String parameters) {
+        this.parameters = parameters;
     }
 
     public boolean isSlowInd() {
@@ -160,6 +218,14 @@ public class StatementTrace {
         this.methodName = methodName;
     }
 
+    long getTraceSeq() {
+        return traceSeq;
+    }
+
+    void setTraceSeq(long traceSeq) {
+        this.traceSeq = traceSeq;
+    }
+
     public String toString() {
         return sql;
     }
@@ -169,11 +235,11 @@ public class StatementTrace {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         StatementTrace that = (StatementTrace) o;
-        return sqlUUID.equals(that.sqlUUID);
+        return sqlId == that.sqlId;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(sqlUUID);
+        return Long.hashCode(sqlId);
     }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded ring buffer of sql traces,slots are preallocated and claimed by sequence,
+ * the oldest trace is overwritten when buffer is full.
+ *
+ * @author Chris Liao
+ */
+public class StatementTraceBuffer {
+    private final int capacity;
+    private final AtomicReferenceArray<StatementTrace> slots;
+    private final AtomicLong writeSeq = new AtomicLong();
+    //traces under this sequence have been expired(only moved by expire scan thread)
+    private volatile long expiredSeq;
+
+    public StatementTraceBuffer(int capacity) {
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    //multi-producer insert
+    public void offer(StatementTrace trace) {
+        long seq = writeSeq.getAndIncrement();
+        trace.setTraceSeq(seq);
+
+        int index = (int) (seq % capacity);
+        StatementTrace old;
+        do {
+            old = slots.get(index);
+            if (old != null && old.getTraceSeq() > seq) return;//overwritten by a newer trace
+        } while (!slots.compareAndSet(index, old, trace));
+    }
+
+    //remove traces from oldest one until meet a trace not timeout or a claimed slot not written yet
+    public void expire(long timeoutMs) {
+        long endSeq = writeSeq.get();
+        long seq = Math.max(expiredSeq, endSeq - capacity);
+        long deadline = System.currentTimeMillis() - timeoutMs;
+
+        for (; seq < endSeq; seq++) {
+            int index = (int) (seq % capacity);
+            StatementTrace trace = slots.get(index);
+            if (trace == null || trace.getTraceSeq() < seq) break;//writer of this sequence not completed
+            if (trace.getTraceSeq() == seq) {
+                if (trace.getStartTimeMs() > deadline) break;
+                slots.compareAndSet(index, trace, null);
+            }//else overwritten by a newer trace
+        }
+        expiredSeq = seq;
+    }
+
+    //snapshot of live traces,newest first
+    public List<StatementTrace> snapshot() {
+        long endSeq = writeSeq.get();
+        long beginSeq = Math.max(expiredSeq, endSeq - capacity);
+        List<StatementTrace> traceList = new ArrayList<>((int) (endSeq - beginSeq));
+
+        for (long seq = endSeq - 1; seq >= beginSeq; seq--) {
+            StatementTrace trace = slots.get((int) (seq % capacity));
+            if (trace != null && trace.getTraceSeq() == seq) traceList.add(trace);
+        }
+        return traceList;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import org.stone.beecp.springboot.jfr.JfrEvents;
+import org.stone.beecp.springboot.request.RequestTrace;
+import org.stone.beecp.springboot.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sql trace context of a datasource,shared by its connection and statement wrappers
+ *
+ * @author Chris Liao
+ */
+public final class StatementTraceContext {
+    private final String dsId;
+    private final String dsUUID;
+    private final StatementTraceSampler sampler;
+    private final boolean traceResultSet;
+    private final StatementParameterCapture parameterCapture;//null if capture disabled
+    private final LatencyHistogram execHistogram = new LatencyHistogram();//cumulative,never reset
+    private final LatencyHistogram execWindowHistogram;//reset periodically,null when not configured
+    private final LongAdder execErrorCount = new LongAdder();
+    private final TransactionStat transactionStat = new TransactionStat();
+
+    //fingerprint statistics,executions beyond max size are aggregated to a shared entry
+    private final int statMaxSize;
+    private final StatementStat otherStat;
+    private final ConcurrentHashMap<String, StatementStat> statMap;
+    private final ConcurrentHashMap<String, StatementStat> sqlStatCache;//raw sql to its fingerprint stat
+    private final StatementTopSketch topSketch;//null when top sql off
+
+    public StatementTraceContext(String dsId, String dsUUID, StatementTraceSampler sampler, boolean traceResultSet,
+                                 StatementParameterCapture parameterCapture, int statMaxSize, StatementTopSketch topSketch, boolean execHistogramWindowed) {
+        this.dsId = dsId;
+        this.dsUUID = dsUUID;
+        this.sampler = sampler;
+        this.traceResultSet = traceResultSet;
+        this.parameterCapture = parameterCapture;
+        this.statMaxSize = statMaxSize;
+        this.otherStat = new StatementStat(dsId, "<others>");
+        this.statMap = new ConcurrentHashMap<>(16);
+        this.sqlStatCache = new ConcurrentHashMap<>(16);
+        this.topSketch = topSketch;
+        this.execWindowHistogram = execHistogramWindowed ? new LatencyHistogram() : null;
+    }
+
+    public String getDsId() {
+        return dsId;
+    }
+
+    public String getDsUUID() {
+        return dsUUID;
+    }
+
+    public StatementTraceSampler getSampler() {
+        return sampler;
+    }
+
+    public boolean isTraceResultSet() {
+        return traceResultSet;
+    }
+
+    public StatementParameterCapture getParameterCapture() {
+        return parameterCapture;
+    }
+
+    //cumulative histogram for exported counters(prometheus,micrometer)
+    public LatencyHistogram getExecHistogram() {
+        return execHistogram;
+    }
+
+    //histogram of current reset window for displayed percentiles,cumulative one when no reset configured
+    public LatencyHistogram getExecWindowHistogram() {
+        return execWindowHistogram != null ? execWindowHistogram : execHistogram;
+    }
+
+    public void resetExecWindowHistogram() {
+        if (execWindowHistogram != null) execWindowHistogram.reset();
+    }
+
+    public long getExecErrorCount() {
+        return execErrorCount.sum();
+    }
+
+    public TransactionStat getTransactionStat() {
+        return transactionStat;
+    }
+
+    public StatementTopSketch getTopSketch() {
+        return topSketch;
+    }
+
+    //fingerprint of raw sql is computed once while cache is not full
+    public StatementStat getStatementStat(String sql) {
+        StatementStat stat = sqlStatCache.get(sql);
+        if (stat == null) {
+            String fingerprint = StatementFingerprint.fingerprint(sql);
+            stat = statMap.get(fingerprint);
+            if (stat == null)
+                stat = statMap.size() < statMaxSize ? statMap.computeIfAbsent(fingerprint, k -> new StatementStat(dsId, k)) : otherStat;
+            if (sqlStatCache.size() < statMaxSize) sqlStatCache.put(sql, stat);
+        }
+        return stat;
+    }
+
+    //record an ended execution to datasource histogram,its fingerprint stat,top sketch and current request
+    public void recordExecution(StatementTrace trace) {
+        execHistogram.record(trace.getTookTimeNanos());
+        if (execWindowHistogram != null) execWindowHistogram.record(trace.getTookTimeNanos());
+        if (!trace.isSuccessInd()) execErrorCount.increment();
+        StatementStat stat = getStatementStat(trace.getSql());
+        stat.record(trace);
+
+        //real fingerprint of sql aggregated to shared entry is computed again
+        String fingerprint = stat != otherStat ? stat.getSql() : StatementFingerprint.fingerprint(trace.getSql());
+        if (topSketch != null) topSketch.record(fingerprint, trace.getTookTimeNanos());
+        RequestTrace.recordStatement(fingerprint, trace.getTookTimeNanos());
+        JfrEvents.commitSqlExecute(trace.jfrEvent, dsId, fingerprint, trace.getStatementType(), trace.getMethodName(),
+                trace.getBatchSize(), trace.isSuccessInd(), trace.isSlowInd());
+    }
+
+    public List<StatementStat> getStatementStatList() {
+        List<StatementStat> statList = new ArrayList<>(statMap.values());
+        if (otherStat.getCount() > 0) statList.add(otherStat);
+        return statList;
+    }
+
+    //every execution is traced for aggregation,sampler decides whether the trace is kept in buffer
+    StatementTrace createTrace(String sql, String statementType) {
+        return new StatementTrace(this, sql, statementType, sampler.sampleOnBegin());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sql trace sampler of a datasource
+ * <p>
+ * All executions are timed and aggregated to statistics,sampler only decides which traces are kept in trace buffer
+ * rate mode: traces are kept with a fixed probability(1.0 means all)
+ * tail mode: only slow,failed and one of every N other traces are kept
+ *
+ * @author Chris Liao
+ */
+public class StatementTraceSampler {
+    public static final String Mode_Rate = "rate";
+    public static final String Mode_Tail = "tail";
+
+    private final boolean tailMode;
+    private volatile double sampleRate;//changeable at runtime(jmx)
+    private final int tailSampleInterval;
+
+    public StatementTraceSampler(String sampleMode, double sampleRate, int tailSampleInterval) {
+        this.tailMode = Mode_Tail.equals(sampleMode);
+        this.sampleRate = sampleRate;
+        this.tailSampleInterval = tailSampleInterval;
+    }
+
+    public boolean isTailMode() {
+        return tailMode;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    //rate is not used in tail mode,reject change rather than ignore it
+    public void setSampleRate(double sampleRate) {
+        if (tailMode)
+            throw new IllegalStateException("Sample rate is not used in tail mode,change sqlTraceTailSampleInterval instead");
+        if (sampleRate < 0 || sampleRate > 1)
+            throw new IllegalArgumentException("Invalid sample rate:" + sampleRate + ",valid range:[0,1]");
+        this.sampleRate = sampleRate;
+    }
+
+    //decide at execution begin whether to keep its trace
+    boolean sampleOnBegin() {
+        double rate = sampleRate;
+        return tailMode || rate >= 1.0D || rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    //tail mode:decide at execution end whether to keep a normal execution
+    public boolean sampleOnEnd() {
+        return tailSampleInterval <= 1 || ThreadLocalRandom.current().nextInt(tailSampleInterval) == 0;
+    }
+}
@@ -15,30 +15,15 @@
  */
 package org.stone.beecp.springboot.statement;
 
-import java.lang.reflect.Proxy;
-import java.sql.CallableStatement;
 import java.sql.Connection;
-import java.sql.Statement;
+import java.sql.SQLException;
 
 /**
  * @author Chris Liao
  */
 public class StatementTraceUtil {
-    private static final Class[] INTF_Connection = new Class[]{Connection.class};
-    private static final Class[] INTF_CallableStatement = new Class[]{CallableStatement.class};
-    private static final ClassLoader classLoader = StatementTraceUtil.class.getClassLoader();
 
-    public static Connection createConnection(Connection delegate, String dsId, String dsUUID) {
-        return (Connection) Proxy.newProxyInstance(
-                classLoader,
-                INTF_Connection,
-                new ConnectionHandler(delegate, dsId, dsUUID));
-    }
-
-    static Statement createStatementProxy(Statement delegate, String statementType, String dsId, String dsUUID, StatementTrace trace) {
-        return (Statement) Proxy.newProxyInstance(
-                classLoader,
-                INTF_CallableStatement,
-                new StatementHandler(delegate, statementType, dsId, dsUUID, trace));
+    public static Connection createConnection(Connection delegate, StatementTraceContext context) throws SQLException {
+        return new TraceConnection(delegate, context);
     }
 }
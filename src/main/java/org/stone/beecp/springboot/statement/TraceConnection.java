@@ -0,0 +1,303 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import java.sql.*;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * Connection wrapper, statements created from it are wrapped to trace sql execution
+ *
+ * @author Chris Liao
+ */
+class TraceConnection implements Connection {
+    private final StatementTraceContext context;
+    private final Connection connection;
+
+    //transaction span,begins at setAutoCommit(false) or first execution in manual commit mode
+    private boolean autoCommit;
+    private long txStartTime;//zero means no transaction in progress
+    private int txStatementCount;
+
+    TraceConnection(Connection connection, StatementTraceContext context) throws SQLException {
+        this.connection = connection;
+        this.context = context;
+        this.autoCommit = connection.getAutoCommit();
+    }
+
+    //called by statements before execution
+    void beforeExecute() {
+        if (!autoCommit) {
+            if (txStartTime == 0) txStartTime = System.nanoTime();
+            txStatementCount++;
+        }
+    }
+
+    private void endTransaction() {
+        txStartTime = 0;
+        txStatementCount = 0;
+    }
+
+    //***************************************************************************************************************//
+    //                                1: statement create methods(12)                                                //
+    //***************************************************************************************************************//
+    public Statement createStatement() throws SQLException {
+        return new TraceStatement(connection.createStatement(), this, context);
+    }
+
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        return new TraceStatement(connection.createStatement(resultSetType, resultSetConcurrency), this, context);
+    }
+
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return new TraceStatement(connection.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability), this, context);
+    }
+
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return new TracePreparedStatement(connection.prepareStatement(sql), this, context, sql, StatementTrace.Type_PreparedStatement);
+    }
+
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return new TracePreparedStatement(connection.prepareStatement(sql, resultSetType, resultSetConcurrency), this, context, sql, StatementTrace.Type_PreparedStatement);
+    }
+
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return new TracePreparedStatement(connection.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability), this, context, sql, StatementTrace.Type_PreparedStatement);
+    }
+
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        return new TracePreparedStatement(connection.prepareStatement(sql, autoGeneratedKeys), this, context, sql, StatementTrace.Type_PreparedStatement);
+    }
+
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        return new TracePreparedStatement(connection.prepareStatement(sql, columnIndexes), this, context, sql, StatementTrace.Type_PreparedStatement);
+    }
+
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        return new TracePreparedStatement(connection.prepareStatement(sql, columnNames), this, context, sql, StatementTrace.Type_PreparedStatement);
+    }
+
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        return new TraceCallableStatement(connection.prepareCall(sql), this, context, sql);
+    }
+
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return new TraceCallableStatement(connection.prepareCall(sql, resultSetType, resultSetConcurrency), this, context, sql);
+    }
+
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return new TraceCallableStatement(connection.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability), this, context, sql);
+    }
+
+    //***************************************************************************************************************//
+    //                                2: transaction methods(3)                                                      //
+    //***************************************************************************************************************//
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        connection.setAutoCommit(autoCommit);
+        if (this.autoCommit != autoCommit) {
+            this.autoCommit = autoCommit;
+            endTransaction();//transaction in progress is committed by driver when switch to auto commit
+            if (!autoCommit) txStartTime = System.nanoTime();
+        }
+    }
+
+    public void commit() throws SQLException {
+        long startTime = System.nanoTime();
+        connection.commit();
+        if (txStartTime != 0) {
+            long endTime = System.nanoTime();
+            context.getTransactionStat().recordCommit(endTime - txStartTime, endTime - startTime, txStatementCount);
+            endTransaction();
+        }
+    }
+
+    public void rollback() throws SQLException {
+        connection.rollback();
+        if (txStartTime != 0) recordRollback();
+    }
+
+    private void recordRollback() {
+        context.getTransactionStat().recordRollback(System.nanoTime() - txStartTime, txStatementCount);
+        endTransaction();
+    }
+
+    //***************************************************************************************************************//
+    //                                3: delegated methods                                                           //
+    //***************************************************************************************************************//
+    public String nativeSQL(String sql) throws SQLException {
+        return connection.nativeSQL(sql);
+    }
+
+    public boolean getAutoCommit() throws SQLException {
+        return connection.getAutoCommit();
+    }
+
+    //uncommitted statements are rolled back by pool when connection closed
+    public void close() throws SQLException {
+        try {
+            connection.close();
+        } finally {
+            if (txStatementCount > 0) recordRollback();
+        }
+    }
+
+    public boolean isClosed() throws SQLException {
+        return connection.isClosed();
+    }
+
+    public DatabaseMetaData getMetaData() throws SQLException {
+        return connection.getMetaData();
+    }
+
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        connection.setReadOnly(readOnly);
+    }
+
+    public boolean isReadOnly() throws SQLException {
+        return connection.isReadOnly();
+    }
+
+    public void setCatalog(String catalog) throws SQLException {
+        connection.setCatalog(catalog);
+    }
+
+    public String getCatalog() throws SQLException {
+        return connection.getCatalog();
+    }
+
+    public void setTransactionIsolation(int level) throws SQLException {
+        connection.setTransactionIsolation(level);
+    }
+
+    public int getTransactionIsolation() throws SQLException {
+        return connection.getTransactionIsolation();
+    }
+
+    public SQLWarning getWarnings() throws SQLException {
+        return connection.getWarnings();
+    }
+
+    public void clearWarnings() throws SQLException {
+        connection.clearWarnings();
+    }
+
+    public Map<String, Class<?>> getTypeMap() throws SQLException {
+        return connection.getTypeMap();
+    }
+
+    public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+        connection.setTypeMap(map);
+    }
+
+    public void setHoldability(int holdability) throws SQLException {
+        connection.setHoldability(holdability);
+    }
+
+    public int getHoldability() throws SQLException {
+        return connection.getHoldability();
+    }
+
+    public Savepoint setSavepoint() throws SQLException {
+        return connection.setSavepoint();
+    }
+
+    public Savepoint setSavepoint(String name) throws SQLException {
+        return connection.setSavepoint(name);
+    }
+
+    public void rollback(Savepoint savepoint) throws SQLException {
+        connection.rollback(savepoint);
+        if (txStartTime != 0) context.getTransactionStat().recordSavepointRollback();
+    }
+
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        connection.releaseSavepoint(savepoint);
+    }
+
+    public Clob createClob() throws SQLException {
+        return connection.createClob();
+    }
+
+    public Blob createBlob() throws SQLException {
+        return connection.createBlob();
+    }
+
+    public NClob createNClob() throws SQLException {
+        return connection.createNClob();
+    }
+
+    public SQLXML createSQLXML() throws SQLException {
+        return connection.createSQLXML();
+    }
+
+    public boolean isValid(int timeout) throws SQLException {
+        return connection.isValid(timeout);
+    }
+
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+        connection.setClientInfo(name, value);
+    }
+
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+        connection.setClientInfo(properties);
+    }
+
+    public String getClientInfo(String name) throws SQLException {
+        return connection.getClientInfo(name);
+    }
+
+    public Properties getClientInfo() throws SQLException {
+        return connection.getClientInfo();
+    }
+
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        return connection.createArrayOf(typeName, elements);
+    }
+
+    public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+        return connection.createStruct(typeName, attributes);
+    }
+
+    public void setSchema(String schema) throws SQLException {
+        connection.setSchema(schema);
+    }
+
+    public String getSchema() throws SQLException {
+        return connection.getSchema();
+    }
+
+    public void abort(Executor executor) throws SQLException {
+        connection.abort(executor);
+    }
+
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+        connection.setNetworkTimeout(executor, milliseconds);
+    }
+
+    public int getNetworkTimeout() throws SQLException {
+        return connection.getNetworkTimeout();
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return connection.unwrap(iface);
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return connection.isWrapperFor(iface);
+    }
+}
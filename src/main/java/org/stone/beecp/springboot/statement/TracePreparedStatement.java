@@ -0,0 +1,409 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.*;
+import java.util.Calendar;
+
+/**
+ * PreparedStatement wrapper
+ *
+ * @author Chris Liao
+ */
+class TracePreparedStatement extends TraceStatement implements PreparedStatement {
+    private final String sql;
+    private final PreparedStatement preparedStatement;
+    //captured parameters(null if capture disabled)
+    private final StatementParameters parameters;
+
+    TracePreparedStatement(PreparedStatement preparedStatement, TraceConnection connection, StatementTraceContext context, String sql, String statementType) {
+        super(preparedStatement, connection, context, statementType);
+        this.sql = sql;
+        this.preparedStatement = preparedStatement;
+        StatementParameterCapture capture = context.getParameterCapture();
+        this.parameters = capture != null ? new StatementParameters(capture, sql) : null;
+    }
+
+    //***************************************************************************************************************//
+    //                                1: execute and batch methods(7)                                                //
+    //***************************************************************************************************************//
+    public ResultSet executeQuery() throws SQLException {
+        StatementTrace trace = beginTrace(sql, "executeQuery");
+        if (trace == null) return preparedStatement.executeQuery();
+        ResultSet re;
+        try {
+            re = preparedStatement.executeQuery();
+        } catch (Throwable e) {
+            endTrace(trace, e, parameters);
+            throw e;
+        }
+        endTrace(trace, null, parameters);
+        return wrapResultSet(re, trace);
+    }
+
+    public int executeUpdate() throws SQLException {
+        StatementTrace trace = beginTrace(sql, "executeUpdate");
+        if (trace == null) return preparedStatement.executeUpdate();
+        int re;
+        try {
+            re = preparedStatement.executeUpdate();
+        } catch (Throwable e) {
+            endTrace(trace, e, parameters);
+            throw e;
+        }
+        endTrace(trace, null, parameters);
+        return re;
+    }
+
+    public boolean execute() throws SQLException {
+        StatementTrace trace = beginTrace(sql, "execute");
+        if (trace == null) return preparedStatement.execute();
+        boolean re;
+        try {
+            re = preparedStatement.execute();
+        } catch (Throwable e) {
+            endTrace(trace, e, parameters);
+            throw e;
+        }
+        endTrace(trace, null, parameters);
+        return re;
+    }
+
+    public long executeLargeUpdate() throws SQLException {
+        StatementTrace trace = beginTrace(sql, "executeLargeUpdate");
+        if (trace == null) return preparedStatement.executeLargeUpdate();
+        long re;
+        try {
+            re = preparedStatement.executeLargeUpdate();
+        } catch (Throwable e) {
+            endTrace(trace, e, parameters);
+            throw e;
+        }
+        endTrace(trace, null, parameters);
+        return re;
+    }
+
+    public int[] executeBatch() throws SQLException {
+        int size = batchSize;
+        batchSize = 0;
+        StatementTrace trace = beginTrace(sql, "executeBatch");
+        if (trace == null) return preparedStatement.executeBatch();
+        trace.setBatchSize(size);
+        int[] re;
+        try {
+            re = preparedStatement.executeBatch();
+        } catch (Throwable e) {
+            endTrace(trace, e, parameters);
+            throw e;
+        }
+        trace.setBatchRowCount(sumRowCount(re));
+        endTrace(trace, null, parameters);
+        return re;
+    }
+
+    public long[] executeLargeBatch() throws SQLException {
+        int size = batchSize;
+        batchSize = 0;
+        StatementTrace trace = beginTrace(sql, "executeLargeBatch");
+        if (trace == null) return preparedStatement.executeLargeBatch();
+        trace.setBatchSize(size);
+        long[] re;
+        try {
+            re = preparedStatement.executeLargeBatch();
+        } catch (Throwable e) {
+            endTrace(trace, e, parameters);
+            throw e;
+        }
+        trace.setBatchRowCount(sumRowCount(re));
+        endTrace(trace, null, parameters);
+        return re;
+    }
+
+    public void addBatch() throws SQLException {
+        preparedStatement.addBatch();
+        batchSize++;
+    }
+
+    //***************************************************************************************************************//
+    //                                2: delegated methods                                                           //
+    //***************************************************************************************************************//
+    public void setNull(int parameterIndex, int sqlType) throws SQLException {
+        preparedStatement.setNull(parameterIndex, sqlType);
+        if (parameters != null) parameters.set(parameterIndex, null);
+    }
+
+    public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+        preparedStatement.setBoolean(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setByte(int parameterIndex, byte x) throws SQLException {
+        preparedStatement.setByte(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setShort(int parameterIndex, short x) throws SQLException {
+        preparedStatement.setShort(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setInt(int parameterIndex, int x) throws SQLException {
+        preparedStatement.setInt(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setLong(int parameterIndex, long x) throws SQLException {
+        preparedStatement.setLong(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setFloat(int parameterIndex, float x) throws SQLException {
+        preparedStatement.setFloat(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setDouble(int parameterIndex, double x) throws SQLException {
+        preparedStatement.setDouble(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+        preparedStatement.setBigDecimal(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setString(int parameterIndex, String x) throws SQLException {
+        preparedStatement.setString(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+        preparedStatement.setBytes(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setDate(int parameterIndex, Date x) throws SQLException {
+        preparedStatement.setDate(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setTime(int parameterIndex, Time x) throws SQLException {
+        preparedStatement.setTime(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+        preparedStatement.setTimestamp(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        preparedStatement.setAsciiStream(parameterIndex, x, length);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        preparedStatement.setUnicodeStream(parameterIndex, x, length);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        preparedStatement.setBinaryStream(parameterIndex, x, length);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void clearParameters() throws SQLException {
+        preparedStatement.clearParameters();
+        if (parameters != null) parameters.clear();
+    }
+
+    public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+        preparedStatement.setObject(parameterIndex, x, targetSqlType);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setObject(int parameterIndex, Object x) throws SQLException {
+        preparedStatement.setObject(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setCharacterStream(int parameterIndex, Reader reader, int length) throws SQLException {
+        preparedStatement.setCharacterStream(parameterIndex, reader, length);
+        if (parameters != null) parameters.set(parameterIndex, reader);
+    }
+
+    public void setRef(int parameterIndex, Ref x) throws SQLException {
+        preparedStatement.setRef(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setBlob(int parameterIndex, Blob x) throws SQLException {
+        preparedStatement.setBlob(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setClob(int parameterIndex, Clob x) throws SQLException {
+        preparedStatement.setClob(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setArray(int parameterIndex, Array x) throws SQLException {
+        preparedStatement.setArray(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public ResultSetMetaData getMetaData() throws SQLException {
+        return preparedStatement.getMetaData();
+    }
+
+    public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
+        preparedStatement.setDate(parameterIndex, x, cal);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
+        preparedStatement.setTime(parameterIndex, x, cal);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
+        preparedStatement.setTimestamp(parameterIndex, x, cal);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+        preparedStatement.setNull(parameterIndex, sqlType, typeName);
+        if (parameters != null) parameters.set(parameterIndex, null);
+    }
+
+    public void setURL(int parameterIndex, URL x) throws SQLException {
+        preparedStatement.setURL(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public ParameterMetaData getParameterMetaData() throws SQLException {
+        return preparedStatement.getParameterMetaData();
+    }
+
+    public void setRowId(int parameterIndex, RowId x) throws SQLException {
+        preparedStatement.setRowId(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setNString(int parameterIndex, String value) throws SQLException {
+        preparedStatement.setNString(parameterIndex, value);
+        if (parameters != null) parameters.set(parameterIndex, value);
+    }
+
+    public void setNCharacterStream(int parameterIndex, Reader value, long length) throws SQLException {
+        preparedStatement.setNCharacterStream(parameterIndex, value, length);
+        if (parameters != null) parameters.set(parameterIndex, value);
+    }
+
+    public void setNClob(int parameterIndex, NClob value) throws SQLException {
+        preparedStatement.setNClob(parameterIndex, value);
+        if (parameters != null) parameters.set(parameterIndex, value);
+    }
+
+    public void setClob(int parameterIndex, Reader reader, long length) throws SQLException {
+        preparedStatement.setClob(parameterIndex, reader, length);
+        if (parameters != null) parameters.set(parameterIndex, reader);
+    }
+
+    public void setBlob(int parameterIndex, InputStream inputStream, long length) throws SQLException {
+        preparedStatement.setBlob(parameterIndex, inputStream, length);
+        if (parameters != null) parameters.set(parameterIndex, inputStream);
+    }
+
+    public void setNClob(int parameterIndex, Reader reader, long length) throws SQLException {
+        preparedStatement.setNClob(parameterIndex, reader, length);
+        if (parameters != null) parameters.set(parameterIndex, reader);
+    }
+
+    public void setSQLXML(int parameterIndex, SQLXML xmlObject) throws SQLException {
+        preparedStatement.setSQLXML(parameterIndex, xmlObject);
+        if (parameters != null) parameters.set(parameterIndex, xmlObject);
+    }
+
+    public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
+        preparedStatement.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
+        preparedStatement.setAsciiStream(parameterIndex, x, length);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setBinaryStream(int parameterIndex, InputStream x, long length) throws SQLException {
+        preparedStatement.setBinaryStream(parameterIndex, x, length);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setCharacterStream(int parameterIndex, Reader reader, long length) throws SQLException {
+        preparedStatement.setCharacterStream(parameterIndex, reader, length);
+        if (parameters != null) parameters.set(parameterIndex, reader);
+    }
+
+    public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+        preparedStatement.setAsciiStream(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+        preparedStatement.setBinaryStream(parameterIndex, x);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setCharacterStream(int parameterIndex, Reader reader) throws SQLException {
+        preparedStatement.setCharacterStream(parameterIndex, reader);
+        if (parameters != null) parameters.set(parameterIndex, reader);
+    }
+
+    public void setNCharacterStream(int parameterIndex, Reader value) throws SQLException {
+        preparedStatement.setNCharacterStream(parameterIndex, value);
+        if (parameters != null) parameters.set(parameterIndex, value);
+    }
+
+    public void setClob(int parameterIndex, Reader reader) throws SQLException {
+        preparedStatement.setClob(parameterIndex, reader);
+        if (parameters != null) parameters.set(parameterIndex, reader);
+    }
+
+    public void setBlob(int parameterIndex, InputStream inputStream) throws SQLException {
+        preparedStatement.setBlob(parameterIndex, inputStream);
+        if (parameters != null) parameters.set(parameterIndex, inputStream);
+    }
+
+    public void setNClob(int parameterIndex, Reader reader) throws SQLException {
+        preparedStatement.setNClob(parameterIndex, reader);
+        if (parameters != null) parameters.set(parameterIndex, reader);
+    }
+
+    public void setObject(int parameterIndex, Object x, SQLType targetSqlType, int scaleOrLength) throws SQLException {
+        preparedStatement.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+
+    public void setObject(int parameterIndex, Object x, SQLType targetSqlType) throws SQLException {
+        preparedStatement.setObject(parameterIndex, x, targetSqlType);
+        if (parameters != null) parameters.set(parameterIndex, x);
+    }
+}
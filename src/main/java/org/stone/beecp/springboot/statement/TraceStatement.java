@@ -0,0 +1,477 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.stone.beecp.springboot.SpringBootDataSourceManager;
+
+import java.sql.*;
+
+/**
+ * Statement wrapper,execute methods are timed and traced,other methods are delegated directly
+ *
+ * @author Chris Liao
+ */
+class TraceStatement implements Statement {
+    private static final Logger Log = LoggerFactory.getLogger(TraceStatement.class);
+    final StatementTraceContext context;
+    final String statementType;
+    final SpringBootDataSourceManager dsManager = SpringBootDataSourceManager.getInstance();
+    private final Statement statement;
+    private final TraceConnection connection;
+    StatementTrace lastTrace;//trace of last execution,null if tracing failed
+    int batchSize;//count of added batch items
+    private String batchSql;//first sql added to batch
+
+    TraceStatement(Statement statement, TraceConnection connection, StatementTraceContext context) {
+        this(statement, connection, context, StatementTrace.Type_Statement);
+    }
+
+    TraceStatement(Statement statement, TraceConnection connection, StatementTraceContext context, String statementType) {
+        this.statement = statement;
+        this.connection = connection;
+        this.context = context;
+        this.statementType = statementType;
+    }
+
+    //return null if tracing failed
+    StatementTrace beginTrace(String sql, String methodName) {
+        try {
+            connection.beforeExecute();
+            StatementTrace trace = context.createTrace(sql, statementType);
+            dsManager.beginSqlTrace(trace, methodName);
+            return lastTrace = trace;
+        } catch (Throwable e) {
+            Log.warn("Failed to begin sql trace", e);
+            return lastTrace = null;
+        }
+    }
+
+    //called after execution completed,a tracing failure is logged and never thrown to application
+    void endTrace(StatementTrace trace, Throwable failCause, StatementParameters parameters) {
+        try {
+            dsManager.endSqlTrace(trace, failCause, parameters);
+        } catch (Throwable e) {
+            Log.warn("Failed to end sql trace", e);
+        }
+    }
+
+    //batch is cleared after execution,a batch trace is named by its first sql
+    private StatementTrace beginBatchTrace(String methodName) {
+        String sql = batchSql;
+        int size = batchSize;
+        batchSql = null;
+        batchSize = 0;
+        if (size == 0) return null;
+
+        StatementTrace trace = beginTrace(sql, methodName);
+        if (trace != null) trace.setBatchSize(size);
+        return trace;
+    }
+
+    static long sumRowCount(int[] updateCounts) {
+        long rowCount = 0;
+        for (int count : updateCounts)
+            if (count > 0) rowCount += count;
+        return rowCount;
+    }
+
+    static long sumRowCount(long[] updateCounts) {
+        long rowCount = 0;
+        for (long count : updateCounts)
+            if (count > 0) rowCount += count;
+        return rowCount;
+    }
+
+    //fetch of result set is traced only for sampled executions
+    ResultSet wrapResultSet(ResultSet resultSet, StatementTrace trace) {
+        return resultSet != null && trace.isSampled() && context.isTraceResultSet() ? new TraceResultSet(resultSet, this, trace) : resultSet;
+    }
+
+    public TraceConnection getConnection() {
+        return connection;
+    }
+
+    //***************************************************************************************************************//
+    //                                1: execute methods(13)                                                         //
+    //***************************************************************************************************************//
+    public ResultSet executeQuery(String sql) throws SQLException {
+        StatementTrace trace = beginTrace(sql, "executeQuery");
+        if (trace == null) return statement.executeQuery(sql);
+        ResultSet re;
+        try {
+            re = statement.executeQuery(sql);
+        } catch (Throwable e) {
+            endTrace(trace, e, null);
+            throw e;
+        }
+        endTrace(trace, null, null);
+        return wrapResultSet(re, trace);
+    }
+
+    public int executeUpdate(String sql) throws SQLException {
+        StatementTrace trace = beginTrace(sql, "executeUpdate");
+        if (trace == null) return statement.executeUpdate(sql);
+        int re;
+        try {
+            re = statement.executeUpdate(sql);
+        } catch (Throwable e) {
+            endTrace(trace, e, null);
+            throw e;
+        }
+        endTrace(trace, null, null);
+        return re;
+    }
+
+    public boolean execute(String sql) throws SQLException {
+        StatementTrace trace = beginTrace(sql, "execute");
+        if (trace == null) return statement.execute(sql);
+        boolean re;
+        try {
+            re = statement.execute(sql);
+        } catch (Throwable e) {
+            endTrace(trace, e, null);
+            throw e;
+        }
+        endTrace(trace, null, null);
+        return re;
+    }
+
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        StatementTrace trace = beginTrace(sql, "executeUpdate");
+        if (trace == null) return statement.executeUpdate(sql, autoGeneratedKeys);
+        int re;
+        try {
+            re = statement.executeUpdate(sql, autoGeneratedKeys);
+        } catch (Throwable e) {
+            endTrace(trace, e, null);
+            throw e;
+        }
+        endTrace(trace, null, null);
+        return re;
+    }
+
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        StatementTrace trace = beginTrace(sql, "executeUpdate");
+        if (trace == null) return statement.executeUpdate(sql, columnIndexes);
+        int re;
+        try {
+            re = statement.executeUpdate(sql, columnIndexes);
+        } catch (Throwable e) {
+            endTrace(trace, e, null);
+            throw e;
+        }
+        endTrace(trace, null, null);
+        return re;
+    }
+
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        StatementTrace trace = beginTrace(sql, "executeUpdate");
+        if (trace == null) return statement.executeUpdate(sql, columnNames);
+        int re;
+        try {
+            re = statement.executeUpdate(sql, columnNames);
+        } catch (Throwable e) {
+            endTrace(trace, e, null);
+            throw e;
+        }
+        endTrace(trace, null, null);
+        return re;
+    }
+
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        StatementTrace trace = beginTrace(sql, "execute");
+        if (trace == null) return statement.execute(sql, autoGeneratedKeys);
+        boolean re;
+        try {
+            re = statement.execute(sql, autoGeneratedKeys);
+        } catch (Throwable e) {
+            endTrace(trace, e, null);
+            throw e;
+        }
+        endTrace(trace, null, null);
+        return re;
+    }
+
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        StatementTrace trace = beginTrace(sql, "execute");
+        if (trace == null) return statement.execute(sql, columnIndexes);
+        boolean re;
+        try {
+            re = statement.execute(sql, columnIndexes);
+        } catch (Throwable e) {
+            endTrace(trace, e, null);
+            throw e;
+        }
+        endTrace(trace, null, null);
+        return re;
+    }
+
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        StatementTrace trace = beginTrace(sql, "execute");
+        if (trace == null) return statement.execute(sql, columnNames);
+        boolean re;
+        try {
+            re = statement.execute(sql, columnNames);
+        } catch (Throwable e) {
+            endTrace(trace, e, null);
+            throw e;
+        }
+        endTrace(trace, null, null);
+        return re;
+    }
+
+    public long executeLargeUpdate(String sql) throws SQLException {
+        StatementTrace trace = beginTrace(sql, "executeLargeUpdate");
+        if (trace == null) return statement.executeLargeUpdate(sql);
+        long re;
+        try {
+            re = statement.executeLargeUpdate(sql);
+        } catch (Throwable e) {
+            endTrace(trace, e, null);
+            throw e;
+        }
+        endTrace(trace, null, null);
+        return re;
+    }
+
+    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        StatementTrace trace = beginTrace(sql, "executeLargeUpdate");
+        if (trace == null) return statement.executeLargeUpdate(sql, autoGeneratedKeys);
+        long re;
+        try {
+            re = statement.executeLargeUpdate(sql, autoGeneratedKeys);
+        } catch (Throwable e) {
+            endTrace(trace, e, null);
+            throw e;
+        }
+        endTrace(trace, null, null);
+        return re;
+    }
+
+    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        StatementTrace trace = beginTrace(sql, "executeLargeUpdate");
+        if (trace == null) return statement.executeLargeUpdate(sql, columnIndexes);
+        long re;
+        try {
+            re = statement.executeLargeUpdate(sql, columnIndexes);
+        } catch (Throwable e) {
+            endTrace(trace, e, null);
+            throw e;
+        }
+        endTrace(trace, null, null);
+        return re;
+    }
+
+    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+        StatementTrace trace = beginTrace(sql, "executeLargeUpdate");
+        if (trace == null) return statement.executeLargeUpdate(sql, columnNames);
+        long re;
+        try {
+            re = statement.executeLargeUpdate(sql, columnNames);
+        } catch (Throwable e) {
+            endTrace(trace, e, null);
+            throw e;
+        }
+        endTrace(trace, null, null);
+        return re;
+    }
+
+    //***************************************************************************************************************//
+    //                                2: batch methods(4)                                                            //
+    //***************************************************************************************************************//
+    public void addBatch(String sql) throws SQLException {
+        statement.addBatch(sql);
+        if (batchSize++ == 0) batchSql = sql;
+    }
+
+    public void clearBatch() throws SQLException {
+        statement.clearBatch();
+        batchSql = null;
+        batchSize = 0;
+    }
+
+    public int[] executeBatch() throws SQLException {
+        StatementTrace trace = beginBatchTrace("executeBatch");
+        if (trace == null) return statement.executeBatch();
+        int[] re;
+        try {
+            re = statement.executeBatch();
+        } catch (Throwable e) {
+            endTrace(trace, e, null);
+            throw e;
+        }
+        trace.setBatchRowCount(sumRowCount(re));
+        endTrace(trace, null, null);
+        return re;
+    }
+
+    public long[] executeLargeBatch() throws SQLException {
+        StatementTrace trace = beginBatchTrace("executeLargeBatch");
+        if (trace == null) return statement.executeLargeBatch();
+        long[] re;
+        try {
+            re = statement.executeLargeBatch();
+        } catch (Throwable e) {
+            endTrace(trace, e, null);
+            throw e;
+        }
+        trace.setBatchRowCount(sumRowCount(re));
+        endTrace(trace, null, null);
+        return re;
+    }
+
+    //***************************************************************************************************************//
+    //                                3: delegated methods                                                           //
+    //***************************************************************************************************************//
+    public void close() throws SQLException {
+        statement.close();
+    }
+
+    public int getMaxFieldSize() throws SQLException {
+        return statement.getMaxFieldSize();
+    }
+
+    public void setMaxFieldSize(int max) throws SQLException {
+        statement.setMaxFieldSize(max);
+    }
+
+    public int getMaxRows() throws SQLException {
+        return statement.getMaxRows();
+    }
+
+    public void setMaxRows(int max) throws SQLException {
+        statement.setMaxRows(max);
+    }
+
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        statement.setEscapeProcessing(enable);
+    }
+
+    public int getQueryTimeout() throws SQLException {
+        return statement.getQueryTimeout();
+    }
+
+    public void setQueryTimeout(int seconds) throws SQLException {
+        statement.setQueryTimeout(seconds);
+    }
+
+    public void cancel() throws SQLException {
+        statement.cancel();
+    }
+
+    public SQLWarning getWarnings() throws SQLException {
+        return statement.getWarnings();
+    }
+
+    public void clearWarnings() throws SQLException {
+        statement.clearWarnings();
+    }
+
+    public void setCursorName(String name) throws SQLException {
+        statement.setCursorName(name);
+    }
+
+    public ResultSet getResultSet() throws SQLException {
+        ResultSet resultSet = statement.getResultSet();
+        return lastTrace != null ? wrapResultSet(resultSet, lastTrace) : resultSet;
+    }
+
+    public int getUpdateCount() throws SQLException {
+        return statement.getUpdateCount();
+    }
+
+    public boolean getMoreResults() throws SQLException {
+        return statement.getMoreResults();
+    }
+
+    public void setFetchDirection(int direction) throws SQLException {
+        statement.setFetchDirection(direction);
+    }
+
+    public int getFetchDirection() throws SQLException {
+        return statement.getFetchDirection();
+    }
+
+    public void setFetchSize(int rows) throws SQLException {
+        statement.setFetchSize(rows);
+    }
+
+    public int getFetchSize() throws SQLException {
+        return statement.getFetchSize();
+    }
+
+    public int getResultSetConcurrency() throws SQLException {
+        return statement.getResultSetConcurrency();
+    }
+
+    public int getResultSetType() throws SQLException {
+        return statement.getResultSetType();
+    }
+
+    public boolean getMoreResults(int current) throws SQLException {
+        return statement.getMoreResults(current);
+    }
+
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return statement.getGeneratedKeys();
+    }
+
+    public int getResultSetHoldability() throws SQLException {
+        return statement.getResultSetHoldability();
+    }
+
+    public boolean isClosed() throws SQLException {
+        return statement.isClosed();
+    }
+
+    public void setPoolable(boolean poolable) throws SQLException {
+        statement.setPoolable(poolable);
+    }
+
+    public boolean isPoolable() throws SQLException {
+        return statement.isPoolable();
+    }
+
+    public void closeOnCompletion() throws SQLException {
+        statement.closeOnCompletion();
+    }
+
+    public boolean isCloseOnCompletion() throws SQLException {
+        return statement.isCloseOnCompletion();
+    }
+
+    public long getLargeUpdateCount() throws SQLException {
+        return statement.getLargeUpdateCount();
+    }
+
+    public void setLargeMaxRows(long max) throws SQLException {
+        statement.setLargeMaxRows(max);
+    }
+
+    public long getLargeMaxRows() throws SQLException {
+        return statement.getLargeMaxRows();
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return statement.unwrap(iface);
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return statement.isWrapperFor(iface);
+    }
+}
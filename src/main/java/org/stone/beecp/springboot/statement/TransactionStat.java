@@ -0,0 +1,65 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import org.stone.beecp.springboot.util.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transaction statistics of a datasource
+ *
+ * @author Chris Liao
+ */
+public class TransactionStat {
+    private final LatencyHistogram durationHistogram = new LatencyHistogram();//begin to commit or rollback
+    private final LatencyHistogram commitHistogram = new LatencyHistogram();
+    private final LongAdder rollbackCount = new LongAdder();
+    private final LongAdder statementCount = new LongAdder();
+
+    void recordCommit(long durationNanos, long commitNanos, int statements) {
+        durationHistogram.record(durationNanos);
+        commitHistogram.record(commitNanos);
+        statementCount.add(statements);
+    }
+
+    void recordRollback(long durationNanos, int statements) {
+        durationHistogram.record(durationNanos);
+        rollbackCount.increment();
+        statementCount.add(statements);
+    }
+
+    //rollback to savepoint,transaction continues
+    void recordSavepointRollback() {
+        rollbackCount.increment();
+    }
+
+    public LatencyHistogram getDurationHistogram() {
+        return durationHistogram;
+    }
+
+    public LatencyHistogram getCommitHistogram() {
+        return commitHistogram;
+    }
+
+    public long getRollbackCount() {
+        return rollbackCount.sum();
+    }
+
+    public long getStatementCount() {
+        return statementCount.sum();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-scaled buckets of microseconds,every power of two
+ * is split into four sub buckets,so relative error of percentile is below 12.5%.
+ *
+ * @author Chris Liao
+ */
+public class LatencyHistogram {
+    private static final int Sub_Bucket_Bits = 2;
+    private static final int Sub_Bucket_Count = 1 << Sub_Bucket_Bits;
+    private static final int Bucket_Count = 40 * Sub_Bucket_Count;//max about 2^40 micros(12 days)
+
+    private final AtomicLongArray buckets = new AtomicLongArray(Bucket_Count);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicLong minNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private static int bucketIndex(long micros) {
+        if (micros < Sub_Bucket_Count) return (int) micros;
+        int exp = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exp - Sub_Bucket_Bits)) & (Sub_Bucket_Count - 1);
+        int index = (exp - Sub_Bucket_Bits + 1) * Sub_Bucket_Count + sub;
+        return index < Bucket_Count ? index : Bucket_Count - 1;
+    }
+
+    //lower bound(micros) of a bucket
+    private static long bucketLowerMicros(int index) {
+        if (index < Sub_Bucket_Count) return index;
+        int exp = index / Sub_Bucket_Count + Sub_Bucket_Bits - 1;
+        int sub = index % Sub_Bucket_Count;
+        return (long) (Sub_Bucket_Count + sub) << (exp - Sub_Bucket_Bits);
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        buckets.incrementAndGet(bucketIndex(nanos / 1000L));
+        count.increment();
+        sumNanos.add(nanos);
+
+        long cur;
+        while (nanos < (cur = minNanos.get()) && !minNanos.compareAndSet(cur, nanos)) ;
+        while (nanos > (cur = maxNanos.get()) && !maxNanos.compareAndSet(cur, nanos)) ;
+    }
+
+    //clear all recorded values,records during reset may be partly lost
+    public void reset() {
+        for (int i = 0; i < Bucket_Count; i++)
+            buckets.set(i, 0);
+        count.reset();
+        sumNanos.reset();
+        minNanos.set(Long.MAX_VALUE);
+        maxNanos.set(0);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    public long getMinNanos() {
+        long min = minNanos.get();
+        return min == Long.MAX_VALUE ? 0 : min;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getMeanNanos() {
+        long c = count.sum();
+        return c > 0 ? sumNanos.sum() / c : 0;
+    }
+
+    //fill cumulative counts of values under each bound(ascending nanoseconds) and return total count,
+    //a bucket is counted under a bound when its upper edge is not greater than the bound
+    public long getCumulativeCounts(long[] boundNanos, long[] counts) {
+        int boundIndex = 0;
+        long seen = 0;
+        for (int i = 0; i < Bucket_Count; i++) {
+            long upperNanos = i + 1 < Bucket_Count ? bucketLowerMicros(i + 1) * 1000L : Long.MAX_VALUE;
+            while (boundIndex < boundNanos.length && upperNanos > boundNanos[boundIndex])
+                counts[boundIndex++] = seen;
+            seen += buckets.get(i);
+        }
+        while (boundIndex < boundNanos.length)
+            counts[boundIndex++] = seen;
+        return seen;
+    }
+
+    //percentile(0-100) in nanoseconds,middle value of matched bucket
+    public long getPercentileNanos(double percentile) {
+        long[] counts = new long[Bucket_Count];
+        long total = 0;
+        for (int i = 0; i < Bucket_Count; i++)
+            total += counts[i] = buckets.get(i);
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(total * Math.min(percentile, 100.0D) / 100.0D);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < Bucket_Count; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long lower = bucketLowerMicros(i);
+                long upper = i + 1 < Bucket_Count ? bucketLowerMicros(i + 1) : lower;
+                long nanos = (lower + upper) * 500L;
+                return Math.min(Math.max(nanos, getMinNanos()), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    //milliseconds with microsecond precision
+    public static double toMillis(long nanos) {
+        return (nanos / 1000L) / 1000.0D;
+    }
+}
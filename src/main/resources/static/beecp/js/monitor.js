@@ -2,6 +2,8 @@ $(function() {
     var language = $("html").attr("lang");
     var dsURL = getContextPath() + '/beecp/getDataSourceList';
     var sqlURL = getContextPath() + '/beecp/getSqlTraceList';
+    var topSqlURL = getContextPath() + '/beecp/getTopSql';
+    var requestURL = getContextPath() + '/beecp/getRequestStatList';
     var refreshMsg = language=='cn'? '刷新成功':'Refresh success';
 
     var sqlTraceList = []; //empty array
@@ -12,6 +14,9 @@ $(function() {
     var sqlRefreshTask;
     $('#ds_monitorTable').tablesorter();
     $('#sql_monitorTable').tablesorter();
+    $('#top_frequentTable').tablesorter();
+    $('#top_totalTimeTable').tablesorter();
+    $('#request_monitorTable').tablesorter();
 
     $("#ds_refresh_button").click(function() {
         getDsListFromServer();
@@ -21,6 +26,14 @@ $(function() {
         getSqlListFromServer();
         alert(refreshMsg);
     });
+    $("#top_refresh_button").click(function() {
+        getTopSqlFromServer();
+        alert(refreshMsg);
+    });
+    $("#request_refresh_button").click(function() {
+        getRequestListFromServer();
+        alert(refreshMsg);
+    });
 	
 	$("#ds_timer_button").click(function() {
         if (dsRefreshTask != null){//stop
@@ -122,6 +135,76 @@ $(function() {
         });
     };
 
+    function getTopSqlFromServer() {
+        $.ajax({
+            type: 'POST',
+            url: topSqlURL,
+            dataType: 'json',
+            success: function(data) {
+                if(data.code==3) {
+                    window.location.href = getContextPath() + "/beecp/login.html";
+                }else if(data.code==2) {
+                    alert("Error:"+data.message);
+                }else if(data.code==1) {
+                    showTopSqlTable('#top_frequentTable', data.result.frequentList);
+                    showTopSqlTable('#top_totalTimeTable', data.result.totalTimeList);
+                }
+            }
+        });
+    };
+
+    function showTopSqlTable(tableId, topList) {//counts and times are estimates
+        $(tableId + " tr:not(:first)").remove();
+        $.each(topList,
+            function (i, element) {
+                var tableHtml = "<tr>" + "<td>" + escapeHtml(element.sql) + "</td>"
+                    + "<td>" + element.dsId + "</td>"
+                    + "<td>" + element.count + "</td>"
+                    + "<td>" + element.totalTimeMs + "</td>"
+                    + "<td>" + element.avgTimeMs + "</td>" + "</tr>";
+                $(tableId).append(tableHtml);
+            });
+        $(tableId).trigger("update");
+    }
+
+    function getRequestListFromServer() {
+        $.ajax({
+            type: 'POST',
+            url: requestURL,
+            dataType: 'json',
+            success: function(data) {
+                if(data.code==3) {
+                    window.location.href = getContextPath() + "/beecp/login.html";
+                }else if(data.code==2) {
+                    alert("Error:"+data.message);
+                }else if(data.code==1) {
+                    $("#request_monitorTable tr:not(:first)").remove();
+                    $.each(data.result,
+                        function (i, element) {
+                            var histogram = [];
+                            $.each(element.statementCountHistogram, function (range, count) {
+                                if (count > 0) histogram.push(range + ':' + count);
+                            });
+                            var tableHtml = "<tr" + (element.repeatRequestCount > 0 ? " class='sqlExecSlow'" : "") + ">"
+                                + "<td>" + escapeHtml(element.endpoint) + "</td>"
+                                + "<td>" + element.requestCount + "</td>"
+                                + "<td>" + element.avgTimeMs + "</td>"
+                                + "<td>" + element.avgDbTimeMs + "</td>"
+                                + "<td>" + element.dbTimeShare + "</td>"
+                                + "<td>" + element.avgBorrowTimeMs + "</td>"
+                                + "<td>" + element.avgStatementCount + "</td>"
+                                + "<td>" + element.maxStatementCount + "</td>"
+                                + "<td>" + histogram.join(' ') + "</td>"
+                                + "<td>" + element.repeatRequestCount + "</td>"
+                                + "<td>" + (element.repeatSql ? escapeHtml(element.repeatSql) + '(' + element.repeatCount + ')' : '-') + "</td>" + "</tr>";
+                            $("#request_monitorTable").append(tableHtml);
+                        });
+                    $('#request_monitorTable').trigger("update");
+                }
+            }
+        });
+    };
+
     function getDsListFromServer() {
         $.ajax({
             type: 'POST',
@@ -140,9 +223,13 @@ $(function() {
                             function (i, element) {
                                 var mode = element.poolMode;
                                 var state = element.poolState;
+                                var breakerState = element.breakerState;
 
                                 if (language == 'cn') {
-                                    mode = (mode == 'compete') ? '竞争' : '公平';
+                                    if (mode != null) mode = (mode == 'compete') ? '竞争' : '公平';
+                                    if (breakerState == 'closed') breakerState = "关闭";
+                                    else if (breakerState == 'open') breakerState = "熔断";
+                                    else if (breakerState == 'halfOpen') breakerState = "半开";
                                     if (state == 0) state = "未初始化";
                                     else if (state == 1) state = "已启动";
                                     else if (state == 2) state = "已关闭";
@@ -155,12 +242,37 @@ $(function() {
                                 }
 
                                 var tableHtml = "<tr>" + "<td>" + element.dsId + "</td>"
-                                    + "<td>" + mode + "</td>" + "<td>" + state + "</td>"
-                                    + "<td>" + element.poolMaxSize + "</td>"
-                                    + "<td>" + element.idleSize + "</td>"
-                                    + "<td>" + element.usingSize + "</td>"
-                                    + "<td>" + element.semaphoreWaitingSize + "</td>"
-                                    + "<td>" + element.transferWaitingSize + "</td>" + "</tr>";
+                                    + "<td>" + showValue(mode) + "</td>" + "<td>" + showValue(state) + "</td>"
+                                    + "<td>" + showValue(element.poolMaxSize) + "</td>"
+                                    + "<td>" + showValue(element.idleSize) + "</td>"
+                                    + "<td>" + showValue(element.usingSize) + "</td>"
+                                    + "<td>" + showValue(element.semaphoreWaitingSize) + "</td>"
+                                    + "<td>" + showValue(element.transferWaitingSize) + "</td>"
+                                    + "<td>" + element.borrowAvgTimeMs + "</td>"
+                                    + "<td>" + element.borrowP99TimeMs + "</td>"
+                                    + "<td>" + element.borrowMaxTimeMs + "</td>"
+                                    + "<td>" + element.borrowTimeoutCount + "</td>"
+                                    + "<td>" + element.borrowWaitingSize + "</td>"
+                                    + "<td>" + showValue(breakerState) + "</td>"
+                                    + "<td>" + showValue(element.breakerTripCount) + "</td>"
+                                    + "<td>" + showValue(element.breakerFastFailCount) + "</td>"
+                                    + "<td>" + showValue(element.breakerFailoverCount) + "</td>"
+                                    + "<td>" + showValue(element.holdP99TimeMs) + "</td>"
+                                    + "<td>" + showValue(element.holdOverThresholdCount) + "</td>"
+                                    + "<td>" + showValue(element.statementCacheHitCount) + "</td>"
+                                    + "<td>" + showValue(element.statementCacheMissCount) + "</td>"
+                                    + "<td>" + showValue(element.statementCacheEvictionCount) + "</td>"
+                                    + "<td>" + showValue(element.execCount) + "</td>"
+                                    + "<td>" + showValue(element.execAvgTimeMs) + "</td>"
+                                    + "<td>" + showValue(element.execP50TimeMs) + "</td>"
+                                    + "<td>" + showValue(element.execP99TimeMs) + "</td>"
+                                    + "<td>" + showValue(element.execP999TimeMs) + "</td>"
+                                    + "<td>" + showValue(element.execMaxTimeMs) + "</td>"
+                                    + "<td>" + showValue(element.txCount) + "</td>"
+                                    + "<td>" + showValue(element.txP99TimeMs) + "</td>"
+                                    + "<td>" + showValue(element.txCommitP99TimeMs) + "</td>"
+                                    + "<td>" + showValue(element.txRollbackCount) + "</td>"
+                                    + "<td>" + showValue(element.txAvgStatementCount) + "</td>" + "</tr>";
                                 $("#ds_monitorTable").append(tableHtml);
                             });
                         $('#ds_monitorTable').trigger("update");
@@ -170,6 +282,14 @@ $(function() {
         });
     };
 
+    function showValue(value) {//'-' for absent value
+        return (value == null) ? '-' : value;
+    }
+
+    function escapeHtml(text) {//parameter values are application data
+        return String(text).replace(/&/g, '&amp;').replace(/</g, '&lt;').replace(/>/g, '&gt;');
+    }
+
     function getContextPath() {
         var suffix ="beecp/";
         var path = window.location.href;
@@ -225,12 +345,14 @@ $(function() {
             }
 
             var tableHtml = "<tr " + bgcolor + ">" + "<td>"
-                + element.sql + "</td>" + "<td>" + element.dsId
+                + element.sql + (element.parameters ? "<br/>[" + escapeHtml(element.parameters) + "]" : "") + "</td>" + "<td>" + element.dsId
                 + "</td>" + "<td>" + element.startTime
                 + "</td>" + "<td>" + element.endTime
                 + "</td>" + "<td>" + element.tookTimeMs
+                + "</td>" + "<td>" + element.fetchTimeMs
+                + "</td>" + "<td>" + element.fetchRowCount
                 + "</td>" + "<td>" + element.successInd
-                + "</td>" + "<td>" + element.statementType + '.' + element.methodName + "</td>" + "</tr>";
+                + "</td>" + "<td>" + element.statementType + '.' + element.methodName + (element.batchSize > 0 ? '[' + element.batchSize + ']' : '') + "</td>" + "</tr>";
             $("#sql_monitorTable").append(tableHtml);
             if (++count > curSqlPageSize) break;
         }
@@ -240,4 +362,6 @@ $(function() {
     //$("#sql_refresh_button").trigger("click");
     getDsListFromServer();
     getSqlListFromServer();
+    getTopSqlFromServer();
+    getRequestListFromServer();
 });
\ No newline at end of file
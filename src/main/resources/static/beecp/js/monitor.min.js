@@ -1 +1 @@
-$(function(){var language=$("html").attr("lang");var dsURL=getContextPath()+'/beecp/getDataSourceList';var sqlURL=getContextPath()+'/beecp/getSqlTraceList';var refreshMsg=language=='cn'?'刷新成功':'Refresh success';var sqlTraceList=[];var curSqlPageSize=10;var curSqlPageNo=1;var maxSqlPageNo=0;var dsRefreshTask;var sqlRefreshTask;$('#ds_monitorTable').tablesorter();$('#sql_monitorTable').tablesorter();$("#ds_refresh_button").click(function(){getDsListFromServer();alert(refreshMsg)});$("#sql_refresh_button").click(function(){getSqlListFromServer();alert(refreshMsg)});$("#ds_timer_button").click(function(){if(dsRefreshTask!=null){clearInterval(dsRefreshTask);dsRefreshTask=null;var name=(language=='cn')?'启动定时':'Run Timer';$("#ds_timer_button").val(name)}else{dsRefreshTask=setInterval(getDsListFromServer,$("#ds_refresh_interval").val());var name=(language=='cn')?'停止定时':'Stop Timer';$("#ds_timer_button").val(name)}});$("#sql_timer_button").click(function(){if(sqlRefreshTask!=null){clearInterval(sqlRefreshTask);sqlRefreshTask=null;var name=(language=='cn')?'启动定时':'Run Timer';$("#sql_timer_button").val(name)}else{sqlRefreshTask=setInterval(getSqlListFromServer,$("#sql_refresh_interval").val());var name=(language=='cn')?'停止定时':'Stop Timer';$("#sql_timer_button").val(name)}});$("#ds_refresh_interval").click(function(){if(dsRefreshTask!=null){clearInterval(dsRefreshTask);dsRefreshTask=setInterval(getDsListFromServer,$("#ds_refresh_interval").val())}});$("#sql_refresh_interval").click(function(){if(sqlRefreshTask!=null){clearInterval(sqlRefreshTask);sqlRefreshTask=setInterval(getSqlListFromServer,$("#sql_refresh_interval").val())}});$("#page_size").change(function(){curSqlPageSize=$("#page_size").val();curSqlPageNo=1;showSqlTracePage(curSqlPageNo)});$("#sql_first").click(function(){curSqlPageNo=1;showSqlTracePage(curSqlPageNo)});$("#sql_pre").click(function(){curSqlPageNo=curSqlPageNo-1;showSqlTracePage(curSqlPageNo)});$("#sql_next").click(function(){curSqlPageNo=curSqlPageNo+1;showSqlTracePage(curSqlPageNo)});$("#sql_last").click(function(){curSqlPageNo=maxSqlPageNo;showSqlTracePage(curSqlPageNo)});$('#tabs a').click(function(e){e.preventDefault();$('#tabs li').removeClass("current").removeClass("hoverItem");$(this).parent().addClass("current");$("#content div").removeClass("show");$('#'+$(this).attr('title')).addClass('show')});$('#tabs a').hover(function(){if(!$(this).parent().hasClass("current")){$(this).parent().addClass("hoverItem")}},function(){$(this).parent().removeClass("hoverItem")});function getSqlListFromServer(){$.ajax({type:'POST',url:sqlURL,dataType:'json',success:function(data){if(data.code==3){window.location.href=getContextPath()+"/beecp/login.html"}else if(data.code==2){alert("Error:"+data.message)}else if(data.code==1){curSqlPageNo=1;maxSqlPageNo=0;sqlTraceList=[];$("#sql_first").attr("disabled",true);$("#sql_pre").attr("disabled",true);$("#sql_next").attr("disabled",true);$("#sql_last").attr("disabled",true);$("#sql_monitorTable tr:not(:first)").remove();afterLoadSqlTraceList(data.result)}}})};function getDsListFromServer(){$.ajax({type:'POST',url:dsURL,dataType:'json',success:function(data){console.info(data);$("#ds_monitorTable tr:not(:first)").remove();if(data){if(data.code==3){window.location.href=getContextPath()+"/beecp/login.html"}else if(data.code==2){alert("Error:"+data.message)}else if(data.code==1){$.each(data.result,function(i,element){var mode=element.poolMode;var state=element.poolState;if(language=='cn'){mode=(mode=='compete')?'竞争':'公平';if(state==0)state="未初始化";else if(state==1)state="已启动";else if(state==2)state="已关闭";else if(state==3)state="重置中"}else{if(state==0)state="uninitialized";else if(state==1)state="started";else if(state==2)state="closed";else if(state==3)state="clearing"}var tableHtml="<tr><td>"+element.dsId+"</td><td>"+mode+"</td><td>"+state+"</td><td>"+element.poolMaxSize+"</td><td>"+element.idleSize+"</td><td>"+element.usingSize+"</td><td>"+element.semaphoreWaitingSize+"</td><td>"+element.transferWaitingSize+"</td></tr>";$("#ds_monitorTable").append(tableHtml)});$('#ds_monitorTable').trigger("update")}}}})};function getContextPath(){var suffix="beecp/";var path=window.location.href;var index=path.lastIndexOf(suffix);return path.substring(0,index)}function afterLoadSqlTraceList(data){if(data){sqlTraceList=data;$("#total_sql").val(sqlTraceList.length);maxSqlPageNo=parseInt(sqlTraceList.length/curSqlPageSize);if(data.length%curSqlPageSize>0)maxSqlPageNo++;if(data.length>0)showSqlTracePage()}}function showSqlTracePage(){var startIndex=(curSqlPageNo-1)*curSqlPageSize;var endIndex=sqlTraceList.length;$("#sql_monitorTable tr:not(:first)").remove();if(maxSqlPageNo>1){if(curSqlPageNo==1){$("#sql_first").attr("disabled",true);$("#sql_pre").attr("disabled",true);$("#sql_next").attr("disabled",false);$("#sql_last").attr("disabled",false)}else if(curSqlPageNo==maxSqlPageNo){$("#sql_first").attr("disabled",false);$("#sql_pre").attr("disabled",false);$("#sql_next").attr("disabled",true);$("#sql_last").attr("disabled",true)}else{$("#sql_first").attr("disabled",false);$("#sql_pre").attr("disabled",false);$("#sql_next").attr("disabled",false);$("#sql_last").attr("disabled",false)}}var count=0;for(var i=startIndex;i<endIndex;i++){var element=sqlTraceList[i];var bgcolor="";if(element.endTimeMs>0){if(!element.successInd){bgcolor=" class='sqlExecFail'"}else if(element.slowInd){bgcolor=" class='sqlExecSlow'"}}var tableHtml="<tr "+bgcolor+"><td>"+element.sql+"</td><td>"+element.dsId+"</td><td>"+element.startTime+"</td><td>"+element.endTime+"</td><td>"+element.tookTimeMs+"</td><td>"+element.successInd+"</td><td>"+element.statementType+'.'+element.methodName+"</td></tr>";$("#sql_monitorTable").append(tableHtml);if(++count>curSqlPageSize)break}$('#sql_monitorTable').trigger("update")}getDsListFromServer();getSqlListFromServer()});
\ No newline at end of file
+$(function(){var language=$("html").attr("lang");var dsURL=getContextPath()+'/beecp/getDataSourceList';var sqlURL=getContextPath()+'/beecp/getSqlTraceList';var topSqlURL=getContextPath()+'/beecp/getTopSql';var requestURL=getContextPath()+'/beecp/getRequestStatList';var refreshMsg=language=='cn'?'刷新成功':'Refresh success';var sqlTraceList=[];var curSqlPageSize=10;var curSqlPageNo=1;var maxSqlPageNo=0;var dsRefreshTask;var sqlRefreshTask;$('#ds_monitorTable').tablesorter();$('#sql_monitorTable').tablesorter();$('#top_frequentTable').tablesorter();$('#top_totalTimeTable').tablesorter();$('#request_monitorTable').tablesorter();$("#ds_refresh_button").click(function(){getDsListFromServer();alert(refreshMsg)});$("#sql_refresh_button").click(function(){getSqlListFromServer();alert(refreshMsg)});$("#top_refresh_button").click(function(){getTopSqlFromServer();alert(refreshMsg)});$("#request_refresh_button").click(function(){getRequestListFromServer();alert(refreshMsg)});$("#ds_timer_button").click(function(){if(dsRefreshTask!=null){clearInterval(dsRefreshTask);dsRefreshTask=null;var name=(language=='cn')?'启动定时':'Run Timer';$("#ds_timer_button").val(name)}else{dsRefreshTask=setInterval(getDsListFromServer,$("#ds_refresh_interval").val());var name=(language=='cn')?'停止定时':'Stop Timer';$("#ds_timer_button").val(name)}});$("#sql_timer_button").click(function(){if(sqlRefreshTask!=null){clearInterval(sqlRefreshTask);sqlRefreshTask=null;var name=(language=='cn')?'启动定时':'Run Timer';$("#sql_timer_button").val(name)}else{sqlRefreshTask=setInterval(getSqlListFromServer,$("#sql_refresh_interval").val());var name=(language=='cn')?'停止定时':'Stop Timer';$("#sql_timer_button").val(name)}});$("#ds_refresh_interval").click(function(){if(dsRefreshTask!=null){clearInterval(dsRefreshTask);dsRefreshTask=setInterval(getDsListFromServer,$("#ds_refresh_interval").val())}});$("#sql_refresh_interval").click(function(){if(sqlRefreshTask!=null){clearInterval(sqlRefreshTask);sqlRefreshTask=setInterval(getSqlListFromServer,$("#sql_refresh_interval").val())}});$("#page_size").change(function(){curSqlPageSize=$("#page_size").val();curSqlPageNo=1;showSqlTracePage(curSqlPageNo)});$("#sql_first").click(function(){curSqlPageNo=1;showSqlTracePage(curSqlPageNo)});$("#sql_pre").click(function(){curSqlPageNo=curSqlPageNo-1;showSqlTracePage(curSqlPageNo)});$("#sql_next").click(function(){curSqlPageNo=curSqlPageNo+1;showSqlTracePage(curSqlPageNo)});$("#sql_last").click(function(){curSqlPageNo=maxSqlPageNo;showSqlTracePage(curSqlPageNo)});$('#tabs a').click(function(e){e.preventDefault();$('#tabs li').removeClass("current").removeClass("hoverItem");$(this).parent().addClass("current");$("#content div").removeClass("show");$('#'+$(this).attr('title')).addClass('show')});$('#tabs a').hover(function(){if(!$(this).parent().hasClass("current")){$(this).parent().addClass("hoverItem")}},function(){$(this).parent().removeClass("hoverItem")});function getSqlListFromServer(){$.ajax({type:'POST',url:sqlURL,dataType:'json',success:function(data){if(data.code==3){window.location.href=getContextPath()+"/beecp/login.html"}else if(data.code==2){alert("Error:"+data.message)}else if(data.code==1){curSqlPageNo=1;maxSqlPageNo=0;sqlTraceList=[];$("#sql_first").attr("disabled",true);$("#sql_pre").attr("disabled",true);$("#sql_next").attr("disabled",true);$("#sql_last").attr("disabled",true);$("#sql_monitorTable tr:not(:first)").remove();afterLoadSqlTraceList(data.result)}}})};function getTopSqlFromServer(){$.ajax({type:'POST',url:topSqlURL,dataType:'json',success:function(data){if(data.code==3){window.location.href=getContextPath()+"/beecp/login.html"}else if(data.code==2){alert("Error:"+data.message)}else if(data.code==1){showTopSqlTable('#top_frequentTable',data.result.frequentList);showTopSqlTable('#top_totalTimeTable',data.result.totalTimeList)}}})};function showTopSqlTable(tableId,topList){$(tableId+" tr:not(:first)").remove();$.each(topList,function(i,element){var tableHtml="<tr>"+"<td>"+escapeHtml(element.sql)+"</td>"+"<td>"+element.dsId+"</td>"+"<td>"+element.count+"</td>"+"<td>"+element.totalTimeMs+"</td>"+"<td>"+element.avgTimeMs+"</td>"+"</tr>";$(tableId).append(tableHtml)});$(tableId).trigger("update")}function getRequestListFromServer(){$.ajax({type:'POST',url:requestURL,dataType:'json',success:function(data){if(data.code==3){window.location.href=getContextPath()+"/beecp/login.html"}else if(data.code==2){alert("Error:"+data.message)}else if(data.code==1){$("#request_monitorTable tr:not(:first)").remove();$.each(data.result,function(i,element){var histogram=[];$.each(element.statementCountHistogram,function(range,count){if(count>0)histogram.push(range+':'+count)});var tableHtml="<tr"+(element.repeatRequestCount>0?" class='sqlExecSlow'":"")+">"+"<td>"+escapeHtml(element.endpoint)+"</td>"+"<td>"+element.requestCount+"</td>"+"<td>"+element.avgTimeMs+"</td>"+"<td>"+element.avgDbTimeMs+"</td>"+"<td>"+element.dbTimeShare+"</td>"+"<td>"+element.avgBorrowTimeMs+"</td>"+"<td>"+element.avgStatementCount+"</td>"+"<td>"+element.maxStatementCount+"</td>"+"<td>"+histogram.join(' ')+"</td>"+"<td>"+element.repeatRequestCount+"</td>"+"<td>"+(element.repeatSql?escapeHtml(element.repeatSql)+'('+element.repeatCount+')':'-')+"</td>"+"</tr>";$("#request_monitorTable").append(tableHtml)});$('#request_monitorTable').trigger("update")}}})};function getDsListFromServer(){$.ajax({type:'POST',url:dsURL,dataType:'json',success:function(data){console.info(data);$("#ds_monitorTable tr:not(:first)").remove();if(data){if(data.code==3){window.location.href=getContextPath()+"/beecp/login.html"}else if(data.code==2){alert("Error:"+data.message)}else if(data.code==1){$.each(data.result,function(i,element){var mode=element.poolMode;var state=element.poolState;var breakerState=element.breakerState;if(language=='cn'){if(mode!=null)mode=(mode=='compete')?'竞争':'公平';if(breakerState=='closed')breakerState="关闭";else if(breakerState=='open')breakerState="熔断";else if(breakerState=='halfOpen')breakerState="半开";if(state==0)state="未初始化";else if(state==1)state="已启动";else if(state==2)state="已关闭";else if(state==3)state="重置中"}else{if(state==0)state="uninitialized";else if(state==1)state="started";else if(state==2)state="closed";else if(state==3)state="clearing"}var tableHtml="<tr>"+"<td>"+element.dsId+"</td>"+"<td>"+showValue(mode)+"</td>"+"<td>"+showValue(state)+"</td>"+"<td>"+showValue(element.poolMaxSize)+"</td>"+"<td>"+showValue(element.idleSize)+"</td>"+"<td>"+showValue(element.usingSize)+"</td>"+"<td>"+showValue(element.semaphoreWaitingSize)+"</td>"+"<td>"+showValue(element.transferWaitingSize)+"</td>"+"<td>"+element.borrowAvgTimeMs+"</td>"+"<td>"+element.borrowP99TimeMs+"</td>"+"<td>"+element.borrowMaxTimeMs+"</td>"+"<td>"+element.borrowTimeoutCount+"</td>"+"<td>"+element.borrowWaitingSize+"</td>"+"<td>"+showValue(breakerState)+"</td>"+"<td>"+showValue(element.breakerTripCount)+"</td>"+"<td>"+showValue(element.breakerFastFailCount)+"</td>"+"<td>"+showValue(element.breakerFailoverCount)+"</td>"+"<td>"+showValue(element.holdP99TimeMs)+"</td>"+"<td>"+showValue(element.holdOverThresholdCount)+"</td>"+"<td>"+showValue(element.statementCacheHitCount)+"</td>"+"<td>"+showValue(element.statementCacheMissCount)+"</td>"+"<td>"+showValue(element.statementCacheEvictionCount)+"</td>"+"<td>"+showValue(element.execCount)+"</td>"+"<td>"+showValue(element.execAvgTimeMs)+"</td>"+"<td>"+showValue(element.execP50TimeMs)+"</td>"+"<td>"+showValue(element.execP99TimeMs)+"</td>"+"<td>"+showValue(element.execP999TimeMs)+"</td>"+"<td>"+showValue(element.execMaxTimeMs)+"</td>"+"<td>"+showValue(element.txCount)+"</td>"+"<td>"+showValue(element.txP99TimeMs)+"</td>"+"<td>"+showValue(element.txCommitP99TimeMs)+"</td>"+"<td>"+showValue(element.txRollbackCount)+"</td>"+"<td>"+showValue(element.txAvgStatementCount)+"</td>"+"</tr>";$("#ds_monitorTable").append(tableHtml)});$('#ds_monitorTable').trigger("update")}}}})};function showValue(value){return(value==null)?'-':value}function escapeHtml(text){return String(text).replace(/&/g,'&amp;').replace(/</g,'&lt;').replace(/>/g,'&gt;')}function getContextPath(){var suffix="beecp/";var path=window.location.href;var index=path.lastIndexOf(suffix);return path.substring(0,index)}function afterLoadSqlTraceList(data){if(data){sqlTraceList=data;$("#total_sql").val(sqlTraceList.length);maxSqlPageNo=parseInt(sqlTraceList.length/curSqlPageSize);if(data.length%curSqlPageSize>0)maxSqlPageNo++;if(data.length>0)showSqlTracePage()}}function showSqlTracePage(){var startIndex=(curSqlPageNo-1)*curSqlPageSize;var endIndex=sqlTraceList.length;$("#sql_monitorTable tr:not(:first)").remove();if(maxSqlPageNo>1){if(curSqlPageNo==1){$("#sql_first").attr("disabled",true);$("#sql_pre").attr("disabled",true);$("#sql_next").attr("disabled",false);$("#sql_last").attr("disabled",false)}else if(curSqlPageNo==maxSqlPageNo){$("#sql_first").attr("disabled",false);$("#sql_pre").attr("disabled",false);$("#sql_next").attr("disabled",true);$("#sql_last").attr("disabled",true)}else{$("#sql_first").attr("disabled",false);$("#sql_pre").attr("disabled",false);$("#sql_next").attr("disabled",false);$("#sql_last").attr("disabled",false)}}var count=0;for(var i=startIndex;i<endIndex;i++){var element=sqlTraceList[i];var bgcolor="";if(element.endTimeMs>0){if(!element.successInd){bgcolor=" class='sqlExecFail'"}else if(element.slowInd){bgcolor=" class='sqlExecSlow'"}}var tableHtml="<tr "+bgcolor+">"+"<td>"+element.sql+(element.parameters?"<br/>["+escapeHtml(element.parameters)+"]":"")+"</td>"+"<td>"+element.dsId+"</td>"+"<td>"+element.startTime+"</td>"+"<td>"+element.endTime+"</td>"+"<td>"+element.tookTimeMs+"</td>"+"<td>"+element.fetchTimeMs+"</td>"+"<td>"+element.fetchRowCount+"</td>"+"<td>"+element.successInd+"</td>"+"<td>"+element.statementType+'.'+element.methodName+(element.batchSize>0?'['+element.batchSize+']':'')+"</td>"+"</tr>";$("#sql_monitorTable").append(tableHtml);if(++count>curSqlPageSize)break}$('#sql_monitorTable').trigger("update")}getDsListFromServer();getSqlListFromServer();getTopSqlFromServer();getRequestListFromServer()});
\ No newline at end of file
@@ -0,0 +1,138 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class TestDataSourceCircuitBreaker {
+    private static final SQLException Failure = new SQLException("Borrow timeout");
+
+    private static DataSourceCircuitBreaker createBreaker(long openTimeMs) {
+        return new DataSourceCircuitBreaker("ds1", 3, openTimeMs, Arrays.asList(1040, 17002),
+                Collections.singletonList("57P01"), "ds2");
+    }
+
+    @Test
+    public void testOpenAfterConsecutiveFailures() {
+        DataSourceCircuitBreaker breaker = createBreaker(60000L);
+        breaker.onFailure(Failure, false);
+        breaker.onFailure(Failure, false);
+        breaker.onSuccess(false);//reset consecutive count
+        breaker.onFailure(Failure, false);
+        breaker.onFailure(Failure, false);
+        Assert.assertEquals("closed", breaker.getStateName());
+        Assert.assertEquals(DataSourceCircuitBreaker.Acquire_Passed, breaker.tryAcquire());
+
+        breaker.onFailure(Failure, false);
+        Assert.assertEquals("open", breaker.getStateName());
+        Assert.assertEquals(1, breaker.getTripCount());
+        Assert.assertEquals(DataSourceCircuitBreaker.Acquire_Rejected, breaker.tryAcquire());
+
+        breaker.onFailure(Failure, false);//failures while open not trip again
+        Assert.assertEquals(1, breaker.getTripCount());
+    }
+
+    @Test
+    public void testHalfOpenProbeSuccess() throws Exception {
+        DataSourceCircuitBreaker breaker = createBreaker(50L);
+        for (int i = 0; i < 3; i++)
+            breaker.onFailure(Failure, false);
+        Assert.assertEquals(DataSourceCircuitBreaker.Acquire_Rejected, breaker.tryAcquire());
+
+        Thread.sleep(100L);
+        Assert.assertEquals(DataSourceCircuitBreaker.Acquire_Probe, breaker.tryAcquire());
+        Assert.assertEquals("halfOpen", breaker.getStateName());
+        Assert.assertEquals(DataSourceCircuitBreaker.Acquire_Rejected, breaker.tryAcquire());//only one probe
+
+        breaker.onSuccess(true);
+        Assert.assertEquals("closed", breaker.getStateName());
+        Assert.assertEquals(DataSourceCircuitBreaker.Acquire_Passed, breaker.tryAcquire());
+
+        breaker.onFailure(Failure, false);
+        breaker.onFailure(Failure, false);
+        Assert.assertEquals("closed", breaker.getStateName());//consecutive count reset by probe
+    }
+
+    @Test
+    public void testHalfOpenProbeFailure() throws Exception {
+        DataSourceCircuitBreaker breaker = createBreaker(50L);
+        for (int i = 0; i < 3; i++)
+            breaker.onFailure(Failure, false);
+        Thread.sleep(100L);
+        Assert.assertEquals(DataSourceCircuitBreaker.Acquire_Probe, breaker.tryAcquire());
+
+        breaker.onFailure(Failure, true);
+        Assert.assertEquals("open", breaker.getStateName());
+        Assert.assertEquals(1, breaker.getTripCount());//reopen is not a new trip
+        Assert.assertEquals(DataSourceCircuitBreaker.Acquire_Rejected, breaker.tryAcquire());//open time restarted
+
+        Thread.sleep(100L);
+        Assert.assertEquals(DataSourceCircuitBreaker.Acquire_Probe, breaker.tryAcquire());
+    }
+
+    //borrows started before trip end in half-open state
+    @Test
+    public void testHalfOpenIgnoresNonProbeResults() throws Exception {
+        DataSourceCircuitBreaker breaker = createBreaker(50L);
+        for (int i = 0; i < 3; i++)
+            breaker.onFailure(Failure, false);
+        Thread.sleep(100L);
+        Assert.assertEquals(DataSourceCircuitBreaker.Acquire_Probe, breaker.tryAcquire());
+
+        breaker.onSuccess(false);
+        Assert.assertEquals("halfOpen", breaker.getStateName());
+        breaker.onFailure(Failure, false);
+        Assert.assertEquals("halfOpen", breaker.getStateName());
+
+        breaker.onSuccess(true);
+        Assert.assertEquals("closed", breaker.getStateName());
+    }
+
+    @Test
+    public void testFatal() {
+        DataSourceCircuitBreaker breaker = createBreaker(60000L);
+        Assert.assertTrue(breaker.isFatal(new SQLException("Link failure", "08S01")));
+        Assert.assertTrue(breaker.isFatal(new SQLException("Terminated", "57P01")));
+        Assert.assertTrue(breaker.isFatal(new SQLException("Too many connections", "HY000", 1040)));
+        Assert.assertFalse(breaker.isFatal(new SQLException("Syntax error", "42000", 1064)));
+        Assert.assertFalse(breaker.isFatal(new SQLException("No state")));
+
+        SQLException chain = new SQLException("Batch failed", "HY000", 1);
+        chain.setNextException(new SQLException("Closed connection", null, 17002));
+        Assert.assertTrue(breaker.isFatal(chain));
+    }
+
+    @Test
+    public void testStatistics() {
+        DataSourceCircuitBreaker breaker = createBreaker(60000L);
+        Assert.assertEquals("ds2", breaker.getFailoverDsId());
+        breaker.recordFastFail();
+        breaker.recordFailover();
+        breaker.recordFailover();
+        Assert.assertEquals(1, breaker.getFastFailCount());
+        Assert.assertEquals(2, breaker.getFailoverCount());
+
+        SQLException e = breaker.createOpenException();
+        Assert.assertTrue(e instanceof SQLTransientConnectionException);
+        Assert.assertEquals("DataSource(ds1)-circuit breaker is open", e.getMessage());
+    }
+}
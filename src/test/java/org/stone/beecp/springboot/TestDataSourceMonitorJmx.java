@@ -0,0 +1,91 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+
+public class TestDataSourceMonitorJmx {
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return Boolean.FALSE;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        return null;
+    }
+
+    private static SpringBootDataSource createDataSource(String dsId) {
+        Connection con = (Connection) Proxy.newProxyInstance(TestDataSourceMonitorJmx.class.getClassLoader(), new Class[]{Connection.class},
+                (p, method, args) -> defaultValue(method.getReturnType()));
+        DataSource ds = (DataSource) Proxy.newProxyInstance(TestDataSourceMonitorJmx.class.getClassLoader(), new Class[]{DataSource.class},
+                (p, method, args) -> "getConnection".equals(method.getName()) ? con : defaultValue(method.getReturnType()));
+        return new SpringBootDataSource(dsId, ds, false);
+    }
+
+    private static ObjectName createJmxName(String dsId) throws Exception {
+        return new ObjectName("org.stone.beecp.springboot:type=DataSource,dsId=" + ObjectName.quote(dsId));
+    }
+
+    private static void setupJmx() {
+        DataSourceMonitorConfig config = new DataSourceMonitorConfig();
+        config.setMonitorJmx(true);
+        SpringBootDataSourceManager.getInstance().setupMonitorConfig(config);
+    }
+
+    @Test
+    public void testUnregisterAtDetach() throws Exception {
+        setupJmx();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        SpringBootDataSource ds = createDataSource("jmxDs1");
+        SpringBootDataSourceManager.getInstance().addSpringBootDataSource(ds);
+        Assert.assertTrue(server.isRegistered(createJmxName("jmxDs1")));
+
+        ds.detach();
+        Assert.assertFalse(server.isRegistered(createJmxName("jmxDs1")));
+        Assert.assertNull(SpringBootDataSourceManager.getInstance().getSpringBootDataSource("jmxDs1"));
+    }
+
+    //datasource of a refreshed context replaces stale bean,detach of old datasource not remove it
+    @Test
+    public void testReplaceAtContextRefresh() throws Exception {
+        setupJmx();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = createJmxName("jmxDs2");
+        SpringBootDataSource oldDs = createDataSource("jmxDs2");
+        SpringBootDataSourceManager.getInstance().addSpringBootDataSource(oldDs);
+        oldDs.getConnection().close();
+
+        SpringBootDataSource newDs = createDataSource("jmxDs2");
+        SpringBootDataSourceManager.getInstance().addSpringBootDataSource(newDs);
+        newDs.getConnection().close();
+        newDs.getConnection().close();
+        Assert.assertEquals(2L, server.getAttribute(name, "BorrowCount"));
+
+        oldDs.detach();
+        Assert.assertTrue(server.isRegistered(name));
+        Assert.assertSame(newDs, SpringBootDataSourceManager.getInstance().getSpringBootDataSource("jmxDs2"));
+
+        newDs.detach();
+        Assert.assertFalse(server.isRegistered(name));
+    }
+}
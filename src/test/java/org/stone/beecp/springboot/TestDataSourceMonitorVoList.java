@@ -0,0 +1,95 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+public class TestDataSourceMonitorVoList {
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return Boolean.FALSE;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        return null;
+    }
+
+    //datasource of other type(no pool snapshot),its connection is unwrapped to one physical connection
+    private static SpringBootDataSource createDataSource(String dsId) {
+        Connection physicalCon = (Connection) Proxy.newProxyInstance(TestDataSourceMonitorVoList.class.getClassLoader(), new Class[]{Connection.class},
+                (p, method, args) -> {
+                    if ("prepareStatement".equals(method.getName()))
+                        return Proxy.newProxyInstance(TestDataSourceMonitorVoList.class.getClassLoader(), new Class[]{PreparedStatement.class},
+                                (sp, sm, sa) -> defaultValue(sm.getReturnType()));
+                    if ("getAutoCommit".equals(method.getName())) return Boolean.TRUE;
+                    if ("hashCode".equals(method.getName())) return System.identityHashCode(p);
+                    if ("equals".equals(method.getName())) return p == args[0];
+                    return defaultValue(method.getReturnType());
+                });
+        Connection con = (Connection) Proxy.newProxyInstance(TestDataSourceMonitorVoList.class.getClassLoader(), new Class[]{Connection.class},
+                (p, method, args) -> {
+                    if ("isWrapperFor".equals(method.getName())) return Boolean.TRUE;
+                    if ("unwrap".equals(method.getName())) return physicalCon;
+                    return defaultValue(method.getReturnType());
+                });
+        DataSource ds = (DataSource) Proxy.newProxyInstance(TestDataSourceMonitorVoList.class.getClassLoader(), new Class[]{DataSource.class},
+                (p, method, args) -> "getConnection".equals(method.getName()) ? con : defaultValue(method.getReturnType()));
+        return new SpringBootDataSource(dsId, ds, false);
+    }
+
+    private static DataSourceMonitorVo getMonitorVo(String dsId) {
+        for (DataSourceMonitorVo vo : SpringBootDataSourceManager.getInstance().getDataSourceMonitorVoList())
+            if (dsId.equals(vo.getDsId())) return vo;
+        return null;
+    }
+
+    @Test
+    public void testDataSourceWithoutPoolSnapshot() throws Exception {
+        SpringBootDataSource ds = createDataSource("otherTypeDs1");
+        SpringBootDataSourceManager.getInstance().addSpringBootDataSource(ds);
+        ds.getConnection().close();
+        ds.getConnection().close();
+
+        DataSourceMonitorVo vo = getMonitorVo("otherTypeDs1");
+        Assert.assertNotNull("DataSource of other type not in monitor list", vo);
+        Assert.assertNull(vo.getPoolVo());
+        Assert.assertEquals(2, vo.getBorrowCount());
+        Assert.assertEquals(0, vo.getBorrowTimeoutCount());
+    }
+
+    @Test
+    public void testStatementCacheCountersOfOtherType() throws Exception {
+        SpringBootDataSource ds = createDataSource("otherTypeDs2");
+        ds.setStatementCacheSize(4);
+        SpringBootDataSourceManager.getInstance().addSpringBootDataSource(ds);
+        for (int i = 0; i < 3; i++) {
+            try (Connection con = ds.getConnection()) {
+                con.prepareStatement("select 1").close();
+            }
+        }
+
+        DataSourceMonitorVo vo = getMonitorVo("otherTypeDs2");
+        Assert.assertNotNull(vo);
+        Assert.assertEquals(Long.valueOf(2), vo.getStatementCacheHitCount());
+        Assert.assertEquals(Long.valueOf(1), vo.getStatementCacheMissCount());
+        Assert.assertEquals(Long.valueOf(0), vo.getStatementCacheEvictionCount());
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.transaction.annotation.Transactional;
+import org.stone.beecp.springboot.annotation.DsId;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TestReadWriteDataSource {
+    private final ReadWriteDataSourceAspect dsIdAspect = new ReadWriteDataSourceAspect();
+    private final ReadOnlyTransactionAspect txAspect = new ReadOnlyTransactionAspect();
+    private final Map<String, Long> lagMap = new ConcurrentHashMap<>();//replica lag returned by probe
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return Boolean.FALSE;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        return null;
+    }
+
+    private static SpringBootDataSource createDataSource(String dsId) {
+        DataSource ds = (DataSource) Proxy.newProxyInstance(TestReadWriteDataSource.class.getClassLoader(), new Class[]{DataSource.class},
+                (p, method, args) -> {
+                    if ("getConnection".equals(method.getName()))
+                        return Proxy.newProxyInstance(TestReadWriteDataSource.class.getClassLoader(), new Class[]{Connection.class},
+                                (cp, cm, ca) -> defaultValue(cm.getReturnType()));
+                    return defaultValue(method.getReturnType());
+                });
+        return new SpringBootDataSource(dsId, ds, false);
+    }
+
+    private static SpringBootDataSource[] createReplicas(int size) {
+        SpringBootDataSource[] replicas = new SpringBootDataSource[size];
+        for (int i = 0; i < size; i++)
+            replicas[i] = createDataSource("replica" + (i + 1));
+        return replicas;
+    }
+
+    private ReplicaLagMonitor createLagMonitor() {
+        return new ReplicaLagMonitor("group1", (dsId, con) -> lagMap.getOrDefault(dsId, 0L), 1000L, 1000L, 500L, 3000L, 2);
+    }
+
+    //probe a replica with a lag over max lag,it is ejected from read routing
+    private void eject(ReadWriteDataSource ds, int index) {
+        lagMap.put(ds.getReplica(index).getDsId(), 5000L);
+        ds.getLagMonitor().probe(index);
+    }
+
+    private static ProceedingJoinPoint createJoinPoint(Object target, String methodName, Body body) throws Exception {
+        Method method = target.getClass().getMethod(methodName);
+        MethodSignature signature = (MethodSignature) Proxy.newProxyInstance(TestReadWriteDataSource.class.getClassLoader(), new Class[]{MethodSignature.class},
+                (p, m, args) -> "getMethod".equals(m.getName()) ? method : defaultValue(m.getReturnType()));
+        return (ProceedingJoinPoint) Proxy.newProxyInstance(TestReadWriteDataSource.class.getClassLoader(), new Class[]{ProceedingJoinPoint.class},
+                (p, m, args) -> {
+                    switch (m.getName()) {
+                        case "proceed":
+                            return body.run();
+                        case "getSignature":
+                            return signature;
+                        case "getTarget":
+                            return target;
+                        default:
+                            return defaultValue(m.getReturnType());
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() {
+        ReadWriteDataSource.endRoute(null);
+    }
+
+    @Test
+    public void testDsIdReadRoute() throws Throwable {
+        SpringBootDataSource primary = createDataSource("primary");
+        ReadWriteDataSource ds = new ReadWriteDataSource("group1", primary, createReplicas(1), ReadWriteDataSource.Strategy_RoundRobin, null, null, null);
+        OrderService service = new OrderService();
+
+        Assert.assertSame(primary, ds.getCurrentDataSource());
+        Assert.assertSame(ds.getReplica(0), dsIdAspect.setRoute(createJoinPoint(service, "read", ds::getCurrentDataSource)));
+        Assert.assertSame(primary, dsIdAspect.setRoute(createJoinPoint(service, "plain", ds::getCurrentDataSource)));
+    }
+
+    @Test
+    public void testReadOnlyTransactionRoute() throws Throwable {
+        SpringBootDataSource primary = createDataSource("primary");
+        ReadWriteDataSource ds = new ReadWriteDataSource("group1", primary, createReplicas(1), ReadWriteDataSource.Strategy_RoundRobin, null, null, null);
+        OrderService orderService = new OrderService();
+        ReportService reportService = new ReportService();
+
+        Assert.assertSame(ds.getReplica(0), txAspect.setRoute(createJoinPoint(orderService, "readOnly", ds::getCurrentDataSource)));
+        Assert.assertSame(primary, txAspect.setRoute(createJoinPoint(orderService, "write", ds::getCurrentDataSource)));
+        //class annotation,overridden by method annotation
+        Assert.assertSame(ds.getReplica(0), txAspect.setRoute(createJoinPoint(reportService, "report", ds::getCurrentDataSource)));
+        Assert.assertSame(primary, txAspect.setRoute(createJoinPoint(reportService, "save", ds::getCurrentDataSource)));
+    }
+
+    //reads in a write transaction stay on primary,so they see writes of the transaction
+    @Test
+    public void testNestedReadInWriteRoute() throws Throwable {
+        SpringBootDataSource primary = createDataSource("primary");
+        ReadWriteDataSource ds = new ReadWriteDataSource("group1", primary, createReplicas(2), ReadWriteDataSource.Strategy_RoundRobin, null, null, null);
+        OrderService service = new OrderService();
+
+        Object[] inner = new Object[2];
+        Object outer = txAspect.setRoute(createJoinPoint(service, "write", () -> {
+            inner[0] = dsIdAspect.setRoute(createJoinPoint(service, "read", ds::getCurrentDataSource));
+            inner[1] = txAspect.setRoute(createJoinPoint(service, "readOnly", ds::getCurrentDataSource));
+            return ds.getCurrentDataSource();
+        }));
+        Assert.assertSame(primary, inner[0]);
+        Assert.assertSame(primary, inner[1]);
+        Assert.assertSame(primary, outer);
+    }
+
+    @Test
+    public void testRestorePreviousRoute() throws Throwable {
+        SpringBootDataSource primary = createDataSource("primary");
+        ReadWriteDataSource ds = new ReadWriteDataSource("group1", primary, createReplicas(1), ReadWriteDataSource.Strategy_RoundRobin, null, null, null);
+        OrderService service = new OrderService();
+
+        Object[] routes = new Object[3];
+        txAspect.setRoute(createJoinPoint(service, "readOnly", () -> {
+            routes[0] = txAspect.setRoute(createJoinPoint(service, "write", ds::getCurrentDataSource));
+            routes[1] = ds.getCurrentDataSource();//read route restored after inner write
+            try {
+                txAspect.setRoute(createJoinPoint(service, "write", () -> {
+                    throw new IllegalStateException("write failed");
+                }));
+                Assert.fail("Exception of inner method not thrown");
+            } catch (IllegalStateException e) {
+                routes[2] = ds.getCurrentDataSource();//restored on exception
+            }
+            return null;
+        }));
+        Assert.assertSame(primary, routes[0]);
+        Assert.assertSame(ds.getReplica(0), routes[1]);
+        Assert.assertSame(ds.getReplica(0), routes[2]);
+        Assert.assertFalse(ReadWriteDataSource.isReadRoute());
+        Assert.assertSame(primary, ds.getCurrentDataSource());
+    }
+
+    @Test
+    public void testWeightedWithEjectedReplica() {
+        SpringBootDataSource primary = createDataSource("primary");
+        ReadWriteDataSource ds = new ReadWriteDataSource("group1", primary, createReplicas(3), ReadWriteDataSource.Strategy_Weighted,
+                new int[]{1, 3, 2}, createLagMonitor(), null);
+        eject(ds, 1);
+
+        Set<Integer> selectedSet = new HashSet<>();
+        for (int i = 0; i < 200; i++)
+            selectedSet.add(ds.selectReplica());
+        Assert.assertFalse("Ejected replica selected", selectedSet.contains(1));
+        Assert.assertTrue(selectedSet.contains(0));
+        Assert.assertTrue(selectedSet.contains(2));
+
+        //primary used when all replicas ejected
+        eject(ds, 0);
+        eject(ds, 2);
+        Assert.assertEquals(-1, ds.selectReplica());
+        ReadWriteDataSource.beginRoute(true);
+        Assert.assertSame(primary, ds.getCurrentDataSource());
+    }
+
+    @Test
+    public void testLeastActiveWithEjectedReplica() throws Exception {
+        SpringBootDataSource primary = createDataSource("primary");
+        ReadWriteDataSource ds = new ReadWriteDataSource("group1", primary, createReplicas(3), ReadWriteDataSource.Strategy_LeastActive,
+                null, createLagMonitor(), null);
+        try (Connection ignored = ds.getReplica(0).getConnection()) {
+            eject(ds, 1);
+            for (int i = 0; i < 20; i++)
+                Assert.assertEquals(2, ds.selectReplica());
+
+            //a busy replica is still selected when it is the only available one
+            eject(ds, 2);
+            Assert.assertEquals(0, ds.selectReplica());
+        }
+        Assert.assertEquals(0L, ds.getReplica(0).getActiveCount());
+    }
+
+    interface Body {
+        Object run() throws Throwable;
+    }
+
+    public static class OrderService {
+        @Transactional
+        public void write() {
+        }
+
+        @Transactional(readOnly = true)
+        public void readOnly() {
+        }
+
+        @DsId(read = true)
+        public void read() {
+        }
+
+        @DsId
+        public void plain() {
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public static class ReportService {
+        public void report() {
+        }
+
+        @Transactional
+        public void save() {
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TestReplicaHedger {
+    private static final ResultSetReader<String> Reader = rs -> rs.next() ? rs.getString(1) : null;
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return Boolean.FALSE;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        return null;
+    }
+
+    //replica answers its name after a delay,or fails with a message
+    private static final class FakeReplica {
+        final String name;
+        final long delayMs;
+        final String failMessage;
+        final List<String> queryThreadList = new CopyOnWriteArrayList<>();
+        volatile boolean cancelled;
+
+        FakeReplica(String name, long delayMs, String failMessage) {
+            this.name = name;
+            this.delayMs = delayMs;
+            this.failMessage = failMessage;
+        }
+
+        SpringBootDataSource createDataSource() {
+            DataSource ds = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{DataSource.class},
+                    (p, method, args) -> "getConnection".equals(method.getName()) ? createConnection() : defaultValue(method.getReturnType()));
+            return new SpringBootDataSource(name, ds, false);
+        }
+
+        private Connection createConnection() {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class},
+                    (p, method, args) -> "prepareStatement".equals(method.getName()) ? createStatement() : defaultValue(method.getReturnType()));
+        }
+
+        private PreparedStatement createStatement() {
+            CountDownLatch cancelLatch = new CountDownLatch(1);
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{PreparedStatement.class}, (p, method, args) -> {
+                switch (method.getName()) {
+                    case "cancel":
+                        cancelled = true;
+                        cancelLatch.countDown();
+                        return null;
+                    case "executeQuery":
+                        queryThreadList.add(Thread.currentThread().getName());
+                        if (cancelLatch.await(delayMs, TimeUnit.MILLISECONDS))
+                            throw new SQLException("Query cancelled");
+                        if (failMessage != null) throw new SQLException(failMessage);
+                        return createResultSet();
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+        }
+
+        private ResultSet createResultSet() {
+            boolean[] read = new boolean[1];
+            return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSet.class}, (p, method, args) -> {
+                switch (method.getName()) {
+                    case "next":
+                        return !read[0] && (read[0] = true);
+                    case "getString":
+                        return name;
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+        }
+    }
+
+    //hedge delay stays at min delay(50ms) before enough samples
+    private static ReadWriteDataSource createGroup(ReplicaHedger hedger, FakeReplica... replicas) {
+        SpringBootDataSource[] dataSources = new SpringBootDataSource[replicas.length];
+        for (int i = 0; i < replicas.length; i++)
+            dataSources[i] = replicas[i].createDataSource();
+        return new ReadWriteDataSource("group1", new FakeReplica("primary", 0, null).createDataSource(), dataSources,
+                ReadWriteDataSource.Strategy_RoundRobin, null, null, hedger);
+    }
+
+    @Test
+    public void testOriginalWinsWithoutHedge() throws Exception {
+        ReplicaHedger hedger = new ReplicaHedger("group1", 95D, 50L, 0.1D, 4);
+        FakeReplica replica1 = new FakeReplica("replica1", 0, null);
+        FakeReplica replica2 = new FakeReplica("replica2", 0, null);
+        ReadWriteDataSource group = createGroup(hedger, replica1, replica2);
+
+        Assert.assertEquals("replica1", hedger.query(group, 0, "select name", null, Reader));
+        Assert.assertEquals(1, hedger.getQueryCount());
+        Assert.assertEquals(0, hedger.getHedgeCount());
+        Assert.assertEquals(Thread.currentThread().getName(), replica1.queryThreadList.get(0));//original in caller thread
+        Assert.assertTrue(replica2.queryThreadList.isEmpty());
+    }
+
+    @Test
+    public void testHedgeWinsAndCancelsOriginal() throws Exception {
+        ReplicaHedger hedger = new ReplicaHedger("group1", 95D, 50L, 0.1D, 4);
+        FakeReplica replica1 = new FakeReplica("replica1", 5000, null);
+        FakeReplica replica2 = new FakeReplica("replica2", 0, null);
+        ReadWriteDataSource group = createGroup(hedger, replica1, replica2);
+
+        long startTime = System.nanoTime();
+        Assert.assertEquals("replica2", hedger.query(group, 0, "select name", null, Reader));
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) < 2000L);
+        Assert.assertTrue("Loser not cancelled", replica1.cancelled);
+        Assert.assertEquals(1, hedger.getHedgeCount());
+        Assert.assertEquals(1, hedger.getHedgeWinCount());
+        Assert.assertTrue(replica2.queryThreadList.get(0).startsWith("ReplicaHedger-group1"));
+    }
+
+    @Test
+    public void testOriginalWinsAfterHedgeLaunched() throws Exception {
+        ReplicaHedger hedger = new ReplicaHedger("group1", 95D, 50L, 0.1D, 4);
+        FakeReplica replica1 = new FakeReplica("replica1", 150, null);
+        FakeReplica replica2 = new FakeReplica("replica2", 5000, null);
+        ReadWriteDataSource group = createGroup(hedger, replica1, replica2);
+
+        Assert.assertEquals("replica1", hedger.query(group, 0, "select name", null, Reader));
+        Assert.assertEquals(1, hedger.getHedgeCount());
+        Assert.assertEquals(0, hedger.getHedgeWinCount());
+        Assert.assertTrue("Hedge not cancelled", replica2.cancelled);
+    }
+
+    @Test
+    public void testBudgetRejection() throws Exception {
+        ReplicaHedger hedger = new ReplicaHedger("group1", 95D, 20L, 0.001D, 4);
+        FakeReplica replica1 = new FakeReplica("replica1", 5000, null);
+        FakeReplica replica2 = new FakeReplica("replica2", 0, null);
+        ReadWriteDataSource group = createGroup(hedger, replica1, replica2);
+
+        for (int i = 0; i < 10; i++)//burst budget
+            Assert.assertEquals("replica2", hedger.query(group, 0, "select name", null, Reader));
+        Assert.assertEquals(10, hedger.getHedgeCount());
+        Assert.assertEquals(0, hedger.getBudgetRejectCount());
+
+        FakeReplica slowReplica = new FakeReplica("replica1", 200, null);
+        group = createGroup(hedger, slowReplica, replica2);
+        Assert.assertEquals("replica1", hedger.query(group, 0, "select name", null, Reader));
+        Assert.assertEquals(10, hedger.getHedgeCount());
+        Assert.assertEquals(1, hedger.getBudgetRejectCount());
+    }
+
+    @Test
+    public void testNoFreeHedgeThread() throws Exception {
+        ReplicaHedger hedger = new ReplicaHedger("group1", 95D, 20L, 0.1D, 1);
+        FakeReplica replica1 = new FakeReplica("replica1", 300, null);
+        FakeReplica replica2 = new FakeReplica("replica2", 1000, null);
+        ReadWriteDataSource group = createGroup(hedger, replica1, replica2);
+
+        Thread other = new Thread(() -> {
+            try {
+                hedger.query(group, 0, "select name", null, Reader);
+            } catch (SQLException e) {
+                //do nothing
+            }
+        });
+        other.start();
+        Thread.sleep(100L);//hedge thread taken by other query
+        Assert.assertEquals("replica1", hedger.query(group, 0, "select name", null, Reader));
+        other.join();
+        Assert.assertEquals(1, hedger.getHedgeCount());
+        Assert.assertEquals(1, hedger.getBudgetRejectCount());
+    }
+
+    @Test
+    public void testBothFailed() {
+        ReplicaHedger hedger = new ReplicaHedger("group1", 95D, 50L, 0.1D, 4);
+        FakeReplica replica1 = new FakeReplica("replica1", 200, "Replica1 failed");
+        FakeReplica replica2 = new FakeReplica("replica2", 0, "Replica2 failed");
+        ReadWriteDataSource group = createGroup(hedger, replica1, replica2);
+
+        try {
+            hedger.query(group, 0, "select name", null, Reader);
+            Assert.fail("Failed queries not thrown");
+        } catch (SQLException e) {
+            Assert.assertEquals("Replica2 failed", e.getMessage());//first failure
+        }
+        Assert.assertEquals(1, hedger.getHedgeCount());
+        Assert.assertEquals(0, hedger.getHedgeWinCount());
+    }
+
+    @Test
+    public void testOriginalFailedBeforeDelay() {
+        ReplicaHedger hedger = new ReplicaHedger("group1", 95D, 200L, 0.1D, 4);
+        FakeReplica replica1 = new FakeReplica("replica1", 0, "Replica1 failed");
+        FakeReplica replica2 = new FakeReplica("replica2", 0, null);
+        ReadWriteDataSource group = createGroup(hedger, replica1, replica2);
+
+        try {
+            hedger.query(group, 0, "select name", null, Reader);
+            Assert.fail("Failed query not thrown");
+        } catch (SQLException e) {
+            Assert.assertEquals("Replica1 failed", e.getMessage());
+        }
+        Assert.assertEquals(0, hedger.getHedgeCount());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TestReplicaLagMonitor {
+    private static final String Lag_Sql = "select LAG_MS from REPLICA_LAG";
+    private JdbcDataSource h2;
+
+    @Before
+    public void setUp() throws Exception {
+        h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1");
+        execute("create table if not exists REPLICA_LAG(LAG_MS bigint)");
+        execute("delete from REPLICA_LAG");
+        execute("insert into REPLICA_LAG values(0)");
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection con = h2.getConnection(); Statement st = con.createStatement()) {
+            st.executeUpdate(sql);
+        }
+    }
+
+    private void setLag(long lag) throws SQLException {
+        execute("update REPLICA_LAG set LAG_MS=" + lag);
+    }
+
+    private ReplicaLagMonitor createMonitor(ReplicaLagProbe probe, long probeInterval, long maxProbeTime, int replicaSize) {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor("group1", probe, probeInterval, 1000L, 500L, maxProbeTime, 2);
+        SpringBootDataSource[] replicas = new SpringBootDataSource[replicaSize];
+        for (int i = 0; i < replicaSize; i++)
+            replicas[i] = new SpringBootDataSource("replica" + (i + 1), h2, false);
+        monitor.init(replicas);
+        return monitor;
+    }
+
+    @Test
+    public void testEjectAndRecover() throws Exception {
+        ReplicaLagMonitor monitor = createMonitor(new SqlReplicaLagProbe(Lag_Sql, 1), 1000L, 3000L, 1);
+        ReplicaLagMonitor.ReplicaHealth health = monitor.getHealths()[0];
+
+        setLag(100);
+        monitor.probe(0);
+        Assert.assertTrue(health.isAvailable());
+        Assert.assertEquals(100L, health.getLagMs());
+
+        setLag(5000);
+        monitor.probe(0);
+        Assert.assertFalse("Replica over max lag not ejected", health.isAvailable());
+
+        setLag(200);
+        monitor.probe(0);
+        Assert.assertFalse("Replica re-admitted before recover probes", health.isAvailable());
+        monitor.probe(0);
+        Assert.assertTrue("Replica not re-admitted after recover probes", health.isAvailable());
+    }
+
+    @Test
+    public void testRecoverCountResetOverRecoverLag() throws Exception {
+        ReplicaLagMonitor monitor = createMonitor(new SqlReplicaLagProbe(Lag_Sql, 1), 1000L, 3000L, 1);
+        ReplicaLagMonitor.ReplicaHealth health = monitor.getHealths()[0];
+
+        setLag(5000);
+        monitor.probe(0);
+        setLag(200);
+        monitor.probe(0);
+        setLag(800);//under max lag,but over recover lag
+        monitor.probe(0);
+        monitor.probe(0);
+        Assert.assertFalse("Replica re-admitted over recover lag", health.isAvailable());
+
+        setLag(200);
+        monitor.probe(0);
+        Assert.assertFalse(health.isAvailable());
+        monitor.probe(0);
+        Assert.assertTrue(health.isAvailable());
+    }
+
+    @Test
+    public void testProbeFailure() {
+        ReplicaLagMonitor monitor = createMonitor(new SqlReplicaLagProbe("select LAG_MS from NOT_EXISTS_TABLE", 1), 1000L, 3000L, 1);
+        ReplicaLagMonitor.ReplicaHealth health = monitor.getHealths()[0];
+
+        monitor.probe(0);
+        Assert.assertFalse("Replica with failed probe not ejected", health.isAvailable());
+        Assert.assertEquals(-1L, health.getLagMs());
+        Assert.assertNotNull(health.getProbeFailCause());
+    }
+
+    @Test
+    public void testBlockedProbeNotStallOthers() throws Exception {
+        CountDownLatch blockLatch = new CountDownLatch(1);
+        SqlReplicaLagProbe sqlProbe = new SqlReplicaLagProbe(Lag_Sql, 1);
+        ReplicaLagProbe probe = (dsId, con) -> {
+            try {
+                if ("replica1".equals(dsId)) blockLatch.await();
+            } catch (InterruptedException e) {
+                throw new SQLException(e);
+            }
+            return sqlProbe.probe(dsId, con);
+        };
+        ReplicaLagMonitor monitor = createMonitor(probe, 20L, 100L, 2);
+        ReplicaLagMonitor.ReplicaHealth blockedHealth = monitor.getHealths()[0];
+        ReplicaLagMonitor.ReplicaHealth health = monitor.getHealths()[1];
+
+        try {
+            monitor.start();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (blockedHealth.isAvailable() && System.nanoTime() < deadline)
+                Thread.sleep(20L);
+            Assert.assertFalse("Blocked probe not timeout", blockedHealth.isAvailable());
+            Assert.assertNotNull(blockedHealth.getProbeFailCause());
+
+            long lastProbeTime = health.getLastProbeTimeMs();
+            Thread.sleep(200L);
+            Assert.assertTrue("Probe of other replica stalled", health.getLastProbeTimeMs() > lastProbeTime);
+            Assert.assertTrue(health.isAvailable());
+        } finally {
+            blockLatch.countDown();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.stone.beecp.springboot.factory.SpringBootDataSourceException;
+
+import java.lang.reflect.Method;
+
+public class TestShardKeyEvaluator {
+
+    public static class User {
+        private final long id;
+
+        User(long id) {
+            this.id = id;
+        }
+
+        public long getId() {
+            return id;
+        }
+    }
+
+    //methods of key expressions,parameter names kept by debug info of test compile
+    public void byName(String name, long userId) {
+    }
+
+    public void byIndex(String name, long userId) {
+    }
+
+    public void byProperty(User user) {
+    }
+
+    public void byOutOfIndex(long userId) {
+    }
+
+    public void byInvalid(long userId) {
+    }
+
+    private static Object evaluate(String methodName, String shardKey, Object... args) {
+        Method method = null;
+        for (Method m : TestShardKeyEvaluator.class.getMethods())
+            if (m.getName().equals(methodName)) method = m;
+        return ShardKeyEvaluator.get(method, shardKey).evaluate(new TestShardKeyEvaluator(), args);
+    }
+
+    @Test
+    public void testParameterName() {
+        Assert.assertEquals(1001L, evaluate("byName", "#userId", "chris", 1001L));
+        Assert.assertEquals(1002L, evaluate("byName", "#userId", "chris", 1002L));//cached evaluator
+    }
+
+    @Test
+    public void testParameterIndex() {
+        Assert.assertEquals(2001L, evaluate("byIndex", "#p1", "chris", 2001L));
+    }
+
+    @Test
+    public void testSpelExpression() {
+        Assert.assertEquals(3001L, evaluate("byProperty", "#user.id", new User(3001L)));
+        Assert.assertEquals(3002L, evaluate("byProperty", "#user.id", new User(3002L)));
+    }
+
+    @Test
+    public void testOutOfIndexBySpel() {
+        Assert.assertNull(evaluate("byOutOfIndex", "#p5", 1L));
+    }
+
+    @Test(expected = SpringBootDataSourceException.class)
+    public void testInvalidExpression() {
+        evaluate("byInvalid", "#userId +", 1L);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestShardingDataSource {
+    private static final int Key_Size = 20000;
+
+    private static SpringBootDataSource[] createShards(int size) {
+        SpringBootDataSource[] shards = new SpringBootDataSource[size];
+        for (int i = 0; i < size; i++)
+            shards[i] = new SpringBootDataSource("ds" + (i + 1), null, false);
+        return shards;
+    }
+
+    private static ShardingDataSource createGroup(String strategy, int shardSize, long[] rangeBounds) {
+        return new ShardingDataSource("group1", createShards(shardSize), strategy, rangeBounds, 160);
+    }
+
+    @Test
+    public void testRange() {
+        ShardingDataSource ds = createGroup(ShardingDataSource.Strategy_Range, 3, new long[]{100L, 200L});
+        Assert.assertEquals(0, ds.getShardIndex(-5L));
+        Assert.assertEquals(0, ds.getShardIndex(99));
+        Assert.assertEquals(1, ds.getShardIndex(100));
+        Assert.assertEquals(1, ds.getShardIndex(199L));
+        Assert.assertEquals(2, ds.getShardIndex(200));
+        Assert.assertEquals(2, ds.getShardIndex(Long.MAX_VALUE));
+        Assert.assertEquals(1, ds.getShardIndex(" 150 "));
+        Assert.assertEquals("ds3", ds.getShard(1000).getDsId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRangeNotNumber() {
+        createGroup(ShardingDataSource.Strategy_Range, 3, new long[]{100L, 200L}).getShardIndex("user1");
+    }
+
+    @Test
+    public void testHashMod() {
+        ShardingDataSource ds = createGroup(ShardingDataSource.Strategy_HashMod, 4, null);
+        Assert.assertEquals(3, ds.getShardIndex(7));
+        Assert.assertEquals(0, ds.getShardIndex(8L));
+        Assert.assertEquals(3, ds.getShardIndex(-1));//floor mod
+        int index = ds.getShardIndex("user1");
+        Assert.assertEquals("Hash of string key not stable", index, ds.getShardIndex(new String("user1")));
+        Assert.assertEquals(Math.floorMod(ShardingDataSource.hash("user1"), 4L), index);
+
+        int[] counts = new int[4];
+        for (int i = 0; i < Key_Size; i++)
+            counts[ds.getShardIndex("user" + i)]++;
+        assertBalanced(counts);
+    }
+
+    @Test
+    public void testConsistentHash() {
+        ShardingDataSource ds = createGroup(ShardingDataSource.Strategy_ConsistentHash, 4, null);
+        int[] counts = new int[4];
+        for (int i = 0; i < Key_Size; i++) {
+            int index = ds.getShardIndex("user" + i);
+            Assert.assertEquals("Shard of key not stable", index, createGroup(ShardingDataSource.Strategy_ConsistentHash, 4, null).getShardIndex("user" + i));
+            counts[index]++;
+        }
+        assertBalanced(counts);
+    }
+
+    //adding a shard to n shards moves about 1/(n+1) of keys,all of them to the new shard
+    @Test
+    public void testConsistentHashRemap() {
+        ShardingDataSource ds4 = createGroup(ShardingDataSource.Strategy_ConsistentHash, 4, null);
+        ShardingDataSource ds5 = createGroup(ShardingDataSource.Strategy_ConsistentHash, 5, null);
+        int moved = 0;
+        for (int i = 0; i < Key_Size; i++) {
+            int index4 = ds4.getShardIndex("user" + i);
+            int index5 = ds5.getShardIndex("user" + i);
+            if (index4 != index5) {
+                moved++;
+                Assert.assertEquals("Key moved between old shards", 4, index5);
+            }
+        }
+        double movedRatio = (double) moved / Key_Size;
+        Assert.assertTrue("Moved ratio:" + movedRatio, movedRatio > 0.15D && movedRatio < 0.25D);
+
+        //hash mod moves most keys
+        ShardingDataSource mod4 = createGroup(ShardingDataSource.Strategy_HashMod, 4, null);
+        ShardingDataSource mod5 = createGroup(ShardingDataSource.Strategy_HashMod, 5, null);
+        int modMoved = 0;
+        for (int i = 0; i < Key_Size; i++)
+            if (mod4.getShardIndex("user" + i) != mod5.getShardIndex("user" + i)) modMoved++;
+        Assert.assertTrue(modMoved > moved * 3);
+    }
+
+    //every shard is within 20% of average
+    private static void assertBalanced(int[] counts) {
+        double avg = (double) Key_Size / counts.length;
+        for (int count : counts)
+            Assert.assertTrue("Unbalanced shard count:" + count, Math.abs(count - avg) < avg * 0.2D);
+    }
+}
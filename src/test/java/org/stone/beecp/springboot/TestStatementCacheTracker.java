@@ -0,0 +1,226 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestStatementCacheTracker {
+    private StatementCacheTracker tracker;
+
+    @Before
+    public void setUp() {
+        tracker = new StatementCacheTracker("ds1", 2, null);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return Boolean.FALSE;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        return null;
+    }
+
+    //driver connection
+    private static final class PhysicalConnection {
+        final List<String> preparedSqlList = new ArrayList<>();
+        final List<boolean[]> statementClosedList = new ArrayList<>();
+        boolean autoCommit = true;
+        boolean closed;
+        int rollbackCount;
+
+        final Connection proxy = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class}, (p, method, args) -> {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    preparedSqlList.add((String) args[0]);
+                    return createStatement();
+                case "isClosed":
+                    return closed;
+                case "close":
+                    closed = true;
+                    return null;
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setAutoCommit":
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                case "rollback":
+                    rollbackCount++;
+                    return null;
+                case "hashCode":
+                    return System.identityHashCode(p);
+                case "equals":
+                    return p == args[0];
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+
+        private PreparedStatement createStatement() {
+            boolean[] statementClosed = new boolean[1];
+            statementClosedList.add(statementClosed);
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{PreparedStatement.class}, (p, method, args) -> {
+                switch (method.getName()) {
+                    case "isClosed":
+                        return statementClosed[0];
+                    case "close":
+                        statementClosed[0] = true;
+                        return null;
+                    case "executeUpdate":
+                        return 1;
+                    case "hashCode":
+                        return System.identityHashCode(p);
+                    case "equals":
+                        return p == args[0];
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+        }
+    }
+
+    //a new pool proxy per borrow over same physical connection,statements prepared on proxy are closed at its close
+    private static Connection borrow(PhysicalConnection physical, boolean unwrapToPhysical) {
+        Connection physicalCon = physical.proxy;
+        return (Connection) Proxy.newProxyInstance(TestStatementCacheTracker.class.getClassLoader(), new Class[]{Connection.class}, (p, method, args) -> {
+            switch (method.getName()) {
+                case "isWrapperFor":
+                    return true;
+                case "unwrap":
+                    return unwrapToPhysical ? physicalCon : p;
+                case "close":
+                    return null;//returned to pool
+                case "hashCode":
+                    return System.identityHashCode(p);
+                case "equals":
+                    return p == args[0];
+                default:
+                    return method.invoke(physicalCon, args);
+            }
+        });
+    }
+
+    @Test
+    public void testHitAcrossBorrows() throws Exception {
+        PhysicalConnection physical = new PhysicalConnection();
+        for (int i = 0; i < 3; i++) {
+            Connection con = tracker.wrap(borrow(physical, true));
+            PreparedStatement ps = con.prepareStatement("select * from user where id=?");
+            ps.setInt(1, i);
+            ps.executeQuery();
+            ps.close();
+            con.close();
+        }
+
+        Assert.assertEquals(1, physical.preparedSqlList.size());
+        Assert.assertEquals(1, tracker.getMissCount());
+        Assert.assertEquals(2, tracker.getHitCount());
+        Assert.assertFalse(physical.statementClosedList.get(0)[0]);
+    }
+
+    @Test
+    public void testCachePerPhysicalConnection() throws Exception {
+        PhysicalConnection physical1 = new PhysicalConnection();
+        PhysicalConnection physical2 = new PhysicalConnection();
+        for (PhysicalConnection physical : new PhysicalConnection[]{physical1, physical2, physical1}) {
+            Connection con = tracker.wrap(borrow(physical, true));
+            con.prepareStatement("select 1").close();
+            con.close();
+        }
+        Assert.assertEquals(1, physical1.preparedSqlList.size());
+        Assert.assertEquals(1, physical2.preparedSqlList.size());
+        Assert.assertEquals(1, tracker.getHitCount());
+        Assert.assertEquals(2, tracker.getMissCount());
+    }
+
+    @Test
+    public void testNotCachedWhenNotUnwrapped() {
+        Connection pooledCon = borrow(new PhysicalConnection(), false);
+        Assert.assertSame(pooledCon, tracker.wrap(pooledCon));
+    }
+
+    @Test
+    public void testOpenStatementNotShared() throws Exception {
+        PhysicalConnection physical = new PhysicalConnection();
+        Connection con = tracker.wrap(borrow(physical, true));
+        PreparedStatement ps1 = con.prepareStatement("select 1");
+        PreparedStatement ps2 = con.prepareStatement("select 1");//first one in use
+        Assert.assertEquals(2, physical.preparedSqlList.size());
+        ps1.close();
+        ps2.close();
+        con.close();
+        Assert.assertEquals(1, tracker.getEvictionCount());//replaced one is closed
+        Assert.assertTrue(physical.statementClosedList.get(0)[0]);
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        PhysicalConnection physical = new PhysicalConnection();
+        Connection con = tracker.wrap(borrow(physical, true));
+        for (int i = 0; i < 3; i++)
+            con.prepareStatement("select " + i).close();
+        con.close();
+
+        Assert.assertEquals(1, tracker.getEvictionCount());
+        Assert.assertTrue("Eldest statement not closed", physical.statementClosedList.get(0)[0]);
+        Assert.assertFalse(physical.statementClosedList.get(2)[0]);
+    }
+
+    @Test
+    public void testRollbackUncommittedAtClose() throws Exception {
+        PhysicalConnection physical = new PhysicalConnection();
+        Connection con = tracker.wrap(borrow(physical, true));
+        con.setAutoCommit(false);
+        PreparedStatement ps = con.prepareStatement("update user set name=?");
+        ps.executeUpdate();
+        ps.close();
+        con.close();
+        Assert.assertEquals(1, physical.rollbackCount);
+
+        con = tracker.wrap(borrow(physical, true));
+        ps = con.prepareStatement("update user set name=?");
+        ps.executeUpdate();
+        con.commit();
+        ps.close();
+        con.close();
+        Assert.assertEquals("Committed work rolled back", 1, physical.rollbackCount);
+
+        con = tracker.wrap(borrow(physical, true));
+        con.prepareStatement("update user set name=?").close();
+        con.close();
+        Assert.assertEquals("Rollback without execution", 1, physical.rollbackCount);
+    }
+
+    @Test
+    public void testScanClosedPhysicalConnection() throws Exception {
+        PhysicalConnection physical = new PhysicalConnection();
+        Connection con = tracker.wrap(borrow(physical, true));
+        con.prepareStatement("select 1").close();
+        con.close();
+
+        tracker.scan();
+        Assert.assertFalse(physical.statementClosedList.get(0)[0]);
+        physical.closed = true;//closed by pool
+        tracker.scan();
+        Assert.assertTrue(physical.statementClosedList.get(0)[0]);
+    }
+}
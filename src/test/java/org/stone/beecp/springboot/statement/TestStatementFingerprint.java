@@ -0,0 +1,62 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.stone.beecp.springboot.statement.StatementFingerprint.fingerprint;
+
+public class TestStatementFingerprint {
+
+    @Test
+    public void testLiterals() {
+        Assert.assertNull(fingerprint(null));
+        Assert.assertEquals("select * from user where id=? and name=?", fingerprint("select * from user where id=10 and name='chris'"));
+        Assert.assertEquals("select * from user where name=?", fingerprint("select * from user where name='O''Brien'"));
+        Assert.assertEquals("select * from t where a=? and b>?", fingerprint("select * from t where a=-1.5 and b>1e10"));
+        Assert.assertEquals("select * from t where a=?", fingerprint("select * from t where a=0xFF"));
+        Assert.assertEquals("select * from t where a=?", fingerprint("select * from t where a=?"));
+    }
+
+    @Test
+    public void testIdentifierDigits() {
+        Assert.assertEquals("select col1,t2.c3 from tab2 t2", fingerprint("select col1, t2.c3 from tab2 t2"));
+        Assert.assertEquals("select a-? from t", fingerprint("select a-1 from t"));
+        Assert.assertEquals("select a - ? from t", fingerprint("select a - 1 from t"));
+    }
+
+    @Test
+    public void testInList() {
+        String expect = "select * from t where id in (?)";
+        Assert.assertEquals(expect, fingerprint("select * from t where id in (1,2,3)"));
+        Assert.assertEquals(expect, fingerprint("select * from t where id in ( 1 , 2 )"));
+        Assert.assertEquals(expect, fingerprint("select * from t where id in (?,?,?,?)"));
+        Assert.assertEquals(expect, fingerprint("select * from t where id in ('a','b')"));
+        Assert.assertEquals("select * from t where id IN (?)", fingerprint("select * from t where id IN (1,2)"));
+        Assert.assertEquals("select * from t where id in (select id from s where x=?) and y in (?)",
+                fingerprint("select * from t where id in (select id from s where x=1) and y in (1,2)"));
+        Assert.assertEquals("insert into t(a,b) values(?,?)", fingerprint("insert into t(a, b) values(1, 2)"));
+        Assert.assertEquals("select min(a,b) from t", fingerprint("select min(a,b) from t"));
+    }
+
+    @Test
+    public void testCommentsAndSpaces() {
+        Assert.assertEquals("select * from t where a=?", fingerprint("  select *\n\tfrom t -- trailing\n where a=1  "));
+        Assert.assertEquals("select * from t", fingerprint("select /* hint */ * from   t"));
+        Assert.assertEquals("select * from t", fingerprint("select * from t /* unclosed"));
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestStatementJournal {
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("sql-journal").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) for (File file : files) file.delete();
+        dir.delete();
+    }
+
+    private static StatementTrace createTrace(String dsId, String sql, boolean success) {
+        StatementTraceContext context = new StatementTraceContext(dsId, dsId + "-uuid", null, false, null, 10, null, false);
+        StatementTrace trace = new StatementTrace(context, sql, "PreparedStatement", true);
+        trace.setMethodName("executeQuery");
+        trace.setEndNanoTime(System.nanoTime() + 2000000L);
+        trace.setSuccessInd(success);
+        trace.setSlowInd(true);
+        if (!success) trace.setFailCause(new SQLException("Table not found"));
+        return trace;
+    }
+
+    private static File[] listFiles(File dir) {
+        File[] files = dir.listFiles();
+        Arrays.sort(files);
+        return files;
+    }
+
+    //wait writer thread until expected records can be read
+    private static List<StatementJournalRecord> awaitRead(StatementJournal journal, String dsId, int size) throws Exception {
+        List<StatementJournalRecord> recordList = null;
+        for (int i = 0; i < 500; i++) {
+            recordList = journal.read(dsId, 0L, Long.MAX_VALUE, Integer.MAX_VALUE);
+            if (recordList.size() >= size) break;
+            Thread.sleep(10L);
+        }
+        return recordList;
+    }
+
+    @Test
+    public void testRecordRoundTrip() throws Exception {
+        StatementJournal journal = new StatementJournal(dir.getPath(), StatementJournal.Min_File_Size, 3, 100);
+        journal.start();
+
+        StatementTrace trace1 = createTrace("ds1", "select * from user where name=?", true);
+        trace1.setParameters("[\u674e\u96f7]");
+        StatementTrace trace2 = createTrace("ds1", "delete from user", false);
+        journal.offer(trace1);
+        journal.offer(trace2);
+
+        List<StatementJournalRecord> recordList = awaitRead(journal, "ds1", 2);
+        Assert.assertEquals(2, recordList.size());
+
+        StatementJournalRecord record = recordList.get(1);//newest first
+        Assert.assertEquals("ds1", record.getDsId());
+        Assert.assertEquals("PreparedStatement", record.getStatementType());
+        Assert.assertEquals("executeQuery", record.getMethodName());
+        Assert.assertEquals("select * from user where name=?", record.getSql());
+        Assert.assertEquals("[\u674e\u96f7]", record.getParameters());
+        Assert.assertNull(record.getFailCause());
+        Assert.assertEquals(trace1.getStartTimeMs(), record.getStartTimeMs());
+        Assert.assertEquals((trace1.getTookTimeNanos() / 1000L) / 1000.0D, record.getTookTimeMs(), 0.0D);
+        Assert.assertTrue(record.isSuccessInd());
+        Assert.assertTrue(record.isSlowInd());
+
+        record = recordList.get(0);
+        Assert.assertEquals("delete from user", record.getSql());
+        Assert.assertNull(record.getParameters());
+        Assert.assertEquals("java.sql.SQLException: Table not found", record.getFailCause());
+        Assert.assertFalse(record.isSuccessInd());
+    }
+
+    @Test
+    public void testFileLayout() throws Exception {
+        StatementJournal journal = new StatementJournal(dir.getPath(), StatementJournal.Min_File_Size, 3, 100);
+        journal.start();
+        journal.offer(createTrace("ds1", "select 1", true));
+        awaitRead(journal, null, 1);
+
+        File[] files = listFiles(dir);
+        Assert.assertEquals(1, files.length);
+        Assert.assertTrue(files[0].getName().matches("sql-journal-\\d+\\.bin"));
+        Assert.assertEquals(StatementJournal.Min_File_Size, files[0].length());
+
+        try (RandomAccessFile raf = new RandomAccessFile(files[0], "r")) {
+            byte[] magic = new byte[8];
+            raf.readFully(magic);
+            Assert.assertEquals("BEECPSJ1", new String(magic, StandardCharsets.US_ASCII));
+
+            //length,startTimeMs,tookTimeNanos,flags and six texts
+            int size = raf.readInt();
+            int expectSize = 21 + (4 + 3) + (4 + 17) + (4 + 12) + (4 + 8) + 4 + 4;
+            Assert.assertEquals(expectSize, size);
+            raf.seek(8 + size);
+            Assert.assertEquals(0, raf.readInt());//end of records
+        }
+    }
+
+    @Test
+    public void testReadFilter() throws Exception {
+        StatementJournal journal = new StatementJournal(dir.getPath(), StatementJournal.Min_File_Size, 3, 100);
+        journal.start();
+        for (int i = 0; i < 5; i++) {
+            journal.offer(createTrace("ds1", "select " + i, true));
+            journal.offer(createTrace("ds2", "select " + i, true));
+        }
+        Assert.assertEquals(10, awaitRead(journal, "", 10).size());
+
+        List<StatementJournalRecord> recordList = journal.read("ds2", 0L, Long.MAX_VALUE, 3);
+        Assert.assertEquals(3, recordList.size());
+        for (StatementJournalRecord record : recordList)
+            Assert.assertEquals("ds2", record.getDsId());
+        Assert.assertEquals("select 4", recordList.get(0).getSql());
+
+        Assert.assertTrue(journal.read("ds1", 0L, 1L, 10).isEmpty());
+        Assert.assertTrue(journal.read("ds3", 0L, Long.MAX_VALUE, 10).isEmpty());
+    }
+
+    @Test
+    public void testTruncateLongSql() throws Exception {
+        StatementJournal journal = new StatementJournal(dir.getPath(), StatementJournal.Min_File_Size, 3, 100);
+        journal.start();
+        char[] chars = new char[5000];
+        Arrays.fill(chars, 'x');
+        journal.offer(createTrace("ds1", new String(chars), true));
+        Assert.assertEquals(4096, awaitRead(journal, "ds1", 1).get(0).getSql().length());
+    }
+
+    @Test
+    public void testRotateFiles() throws Exception {
+        StatementJournal journal = new StatementJournal(dir.getPath(), StatementJournal.Min_File_Size, 2, 1000);
+        journal.start();
+        char[] chars = new char[4000];
+        Arrays.fill(chars, 'x');
+        String sql = new String(chars);
+        for (int i = 0; i < 600; i++) {//about 240 records per file
+            journal.offer(createTrace("ds1", i + sql, true));
+            if (i % 100 == 99) awaitRead(journal, "ds1", Math.min(i + 1, 400));
+        }
+
+        List<StatementJournalRecord> recordList = awaitRead(journal, "ds1", 600);
+        Assert.assertEquals(2, listFiles(dir).length);//oldest file deleted
+        Assert.assertTrue(recordList.size() < 600);
+        Assert.assertTrue(recordList.get(0).getSql().startsWith("599x"));
+        Assert.assertEquals(0, journal.getDroppedCount());
+    }
+}
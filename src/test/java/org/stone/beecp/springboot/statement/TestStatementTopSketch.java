@@ -0,0 +1,97 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestStatementTopSketch {
+    private static final long Millis = 1000000L;
+
+    private static void record(StatementTopSketch sketch, String fingerprint, int count, long tookTimeNanos) {
+        for (int i = 0; i < count; i++)
+            sketch.record(fingerprint, tookTimeNanos);
+    }
+
+    @Test
+    public void testHeavyHitters() {
+        StatementTopSketch sketch = new StatementTopSketch("ds1", 3, 60000L, 5);
+        record(sketch, "select a", 1000, Millis);
+        record(sketch, "select b", 500, Millis);
+        for (int i = 0; i < 2000; i++)//noise of distinct sql
+            sketch.record("select noise" + i, 1000L);
+        record(sketch, "select c", 200, Millis);
+        record(sketch, "select slow", 5, 1000L * Millis);
+
+        List<StatementTopEntry> frequentList = new ArrayList<>();
+        List<StatementTopEntry> totalTimeList = new ArrayList<>();
+        sketch.collect(frequentList, totalTimeList);
+
+        Assert.assertEquals(3, frequentList.size());
+        Assert.assertEquals("select a", frequentList.get(0).getSql());
+        Assert.assertEquals("select b", frequentList.get(1).getSql());
+        Assert.assertEquals("select c", frequentList.get(2).getSql());
+        Assert.assertEquals("ds1", frequentList.get(0).getDsId());
+
+        //estimates never less than real values
+        Assert.assertTrue(frequentList.get(0).getCount() >= 1000);
+        Assert.assertTrue(frequentList.get(1).getCount() >= 500);
+        Assert.assertTrue(frequentList.get(2).getCount() >= 200);
+        Assert.assertTrue(frequentList.get(0).getTotalTimeNanos() >= 1000 * Millis);
+
+        Assert.assertEquals(3, totalTimeList.size());
+        Assert.assertEquals("select slow", totalTimeList.get(0).getSql());
+        Assert.assertTrue(totalTimeList.get(0).getTotalTimeNanos() >= 5000 * Millis);
+        Assert.assertEquals("select a", totalTimeList.get(1).getSql());
+    }
+
+    @Test
+    public void testLessThanTopSize() {
+        StatementTopSketch sketch = new StatementTopSketch("ds1", 10, 60000L, 5);
+        record(sketch, "select a", 3, Millis);
+        record(sketch, "select b", 1, Millis);
+
+        List<StatementTopEntry> frequentList = new ArrayList<>();
+        List<StatementTopEntry> totalTimeList = new ArrayList<>();
+        sketch.collect(frequentList, totalTimeList);
+        Assert.assertEquals(2, frequentList.size());
+        Assert.assertEquals(3, frequentList.get(0).getCount());//exact without collision
+        Assert.assertEquals(3 * Millis, frequentList.get(0).getTotalTimeNanos());
+        Assert.assertEquals(1, frequentList.get(1).getCount());
+    }
+
+    @Test
+    public void testWindowExpired() throws Exception {
+        StatementTopSketch sketch = new StatementTopSketch("ds1", 3, 50L, 2);
+        record(sketch, "select a", 10, Millis);
+        Thread.sleep(200L);//out of two windows
+
+        List<StatementTopEntry> frequentList = new ArrayList<>();
+        List<StatementTopEntry> totalTimeList = new ArrayList<>();
+        sketch.collect(frequentList, totalTimeList);
+        Assert.assertTrue(frequentList.isEmpty());
+        Assert.assertTrue(totalTimeList.isEmpty());
+
+        sketch.record("select b", Millis);//reuse expired window
+        sketch.collect(frequentList, totalTimeList);
+        Assert.assertEquals(1, frequentList.size());
+        Assert.assertEquals("select b", frequentList.get(0).getSql());
+        Assert.assertEquals(1, frequentList.get(0).getCount());
+    }
+}
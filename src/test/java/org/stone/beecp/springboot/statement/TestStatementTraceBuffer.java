@@ -0,0 +1,124 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class TestStatementTraceBuffer {
+
+    private static StatementTrace createTrace(String sql) {
+        return new StatementTrace(null, sql, "Statement", true);
+    }
+
+    private static void assertSqlList(List<StatementTrace> traceList, String... sqls) {
+        Assert.assertEquals(sqls.length, traceList.size());
+        for (int i = 0; i < sqls.length; i++)
+            Assert.assertEquals(sqls[i], traceList.get(i).getSql());
+    }
+
+    @Test
+    public void testSnapshotNewestFirst() {
+        StatementTraceBuffer buffer = new StatementTraceBuffer(4);
+        Assert.assertTrue(buffer.snapshot().isEmpty());
+        buffer.offer(createTrace("s0"));
+        buffer.offer(createTrace("s1"));
+        assertSqlList(buffer.snapshot(), "s1", "s0");
+    }
+
+    @Test
+    public void testRingWrap() {
+        StatementTraceBuffer buffer = new StatementTraceBuffer(4);
+        for (int i = 0; i < 10; i++)
+            buffer.offer(createTrace("s" + i));
+
+        assertSqlList(buffer.snapshot(), "s9", "s8", "s7", "s6");
+        Assert.assertEquals(9, buffer.snapshot().get(0).getTraceSeq());
+    }
+
+    @Test
+    public void testOverwriteOldestSlot() {
+        StatementTraceBuffer buffer = new StatementTraceBuffer(2);
+        buffer.offer(createTrace("s0"));//seq 0,slot 0
+        buffer.offer(createTrace("s1"));//seq 1,slot 1
+        buffer.offer(createTrace("s2"));//seq 2,slot 0
+        assertSqlList(buffer.snapshot(), "s2", "s1");
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        StatementTraceBuffer buffer = new StatementTraceBuffer(8);
+        buffer.offer(createTrace("old0"));
+        buffer.offer(createTrace("old1"));
+        Thread.sleep(100L);
+        buffer.offer(createTrace("new0"));
+
+        buffer.expire(50L);
+        assertSqlList(buffer.snapshot(), "new0");
+
+        buffer.offer(createTrace("new1"));
+        assertSqlList(buffer.snapshot(), "new1", "new0");
+        buffer.expire(-1000L);//deadline in future,all expired
+        Assert.assertTrue(buffer.snapshot().isEmpty());
+
+        buffer.offer(createTrace("new2"));
+        assertSqlList(buffer.snapshot(), "new2");
+    }
+
+    @Test
+    public void testExpireAfterWrap() throws Exception {
+        StatementTraceBuffer buffer = new StatementTraceBuffer(3);
+        for (int i = 0; i < 5; i++)
+            buffer.offer(createTrace("old" + i));
+        Thread.sleep(100L);
+        buffer.offer(createTrace("new0"));
+
+        buffer.expire(50L);
+        assertSqlList(buffer.snapshot(), "new0");
+    }
+
+    //a sequence claimed by a writer but not written yet stops expiry,so the trace is visible after written
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExpireStopsAtPendingWrite() throws Exception {
+        StatementTraceBuffer buffer = new StatementTraceBuffer(8);
+        buffer.offer(createTrace("old0"));
+        Thread.sleep(100L);
+
+        Field seqField = StatementTraceBuffer.class.getDeclaredField("writeSeq");
+        seqField.setAccessible(true);
+        long pendingSeq = ((AtomicLong) seqField.get(buffer)).getAndIncrement();//claimed,not written
+        buffer.offer(createTrace("new1"));
+
+        buffer.expire(50L);
+        assertSqlList(buffer.snapshot(), "new1");
+
+        Field slotsField = StatementTraceBuffer.class.getDeclaredField("slots");
+        slotsField.setAccessible(true);
+        StatementTrace pending = createTrace("pending");
+        pending.setTraceSeq(pendingSeq);
+        ((AtomicReferenceArray<StatementTrace>) slotsField.get(buffer)).set((int) pendingSeq, pending);
+        assertSqlList(buffer.snapshot(), "new1", "pending");
+
+        buffer.expire(50L);
+        assertSqlList(buffer.snapshot(), "new1", "pending");
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.statement;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestStatementTraceSampler {
+
+    @Test
+    public void testChangeRateInRateMode() {
+        StatementTraceSampler sampler = new StatementTraceSampler(StatementTraceSampler.Mode_Rate, 1.0D, 0);
+        Assert.assertTrue(sampler.sampleOnBegin());
+
+        sampler.setSampleRate(0D);
+        Assert.assertEquals(0D, sampler.getSampleRate(), 0D);
+        Assert.assertFalse(sampler.sampleOnBegin());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRate() {
+        new StatementTraceSampler(StatementTraceSampler.Mode_Rate, 1.0D, 0).setSampleRate(1.5D);
+    }
+
+    //rate is not used in tail mode,so change is rejected rather than silently ignored
+    @Test
+    public void testChangeRateInTailMode() {
+        StatementTraceSampler sampler = new StatementTraceSampler(StatementTraceSampler.Mode_Tail, 1.0D, 100);
+        try {
+            sampler.setSampleRate(0D);
+            Assert.fail("Sample rate changed in tail mode");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(1.0D, sampler.getSampleRate(), 0D);
+        }
+        Assert.assertTrue(sampler.sampleOnBegin());
+    }
+}
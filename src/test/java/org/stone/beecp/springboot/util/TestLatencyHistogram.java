@@ -0,0 +1,120 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.stone.beecp.springboot.util;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestLatencyHistogram {
+    private LatencyHistogram histogram;
+
+    private static long millis(long ms) {
+        return ms * 1000000L;
+    }
+
+    @Before
+    public void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void testEmpty() {
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMinNanos());
+        Assert.assertEquals(0, histogram.getMaxNanos());
+        Assert.assertEquals(0, histogram.getMeanNanos());
+        Assert.assertEquals(0, histogram.getPercentileNanos(99));
+    }
+
+    @Test
+    public void testStatistics() {
+        histogram.record(millis(1));
+        histogram.record(millis(3));
+        histogram.record(-5);//as zero
+        Assert.assertEquals(3, histogram.getCount());
+        Assert.assertEquals(millis(4), histogram.getSumNanos());
+        Assert.assertEquals(0, histogram.getMinNanos());
+        Assert.assertEquals(millis(3), histogram.getMaxNanos());
+        Assert.assertEquals(millis(4) / 3, histogram.getMeanNanos());
+    }
+
+    @Test
+    public void testPercentile() {
+        for (int i = 1; i <= 1000; i++)
+            histogram.record(millis(i));
+
+        assertNear(millis(500), histogram.getPercentileNanos(50));
+        assertNear(millis(900), histogram.getPercentileNanos(90));
+        assertNear(millis(990), histogram.getPercentileNanos(99));
+        assertNear(millis(1000), histogram.getPercentileNanos(100));
+        Assert.assertEquals(histogram.getPercentileNanos(100), histogram.getPercentileNanos(150));
+        Assert.assertTrue(histogram.getPercentileNanos(100) <= histogram.getMaxNanos());
+        Assert.assertEquals(millis(1), histogram.getPercentileNanos(0));//clamped to min
+        Assert.assertTrue(histogram.getPercentileNanos(50) <= histogram.getPercentileNanos(90));
+    }
+
+    @Test
+    public void testSmallValues() {
+        histogram.record(1000L);//1 micro,bucket[1,2)
+        histogram.record(3000L);//3 micros,bucket[3,4)
+        Assert.assertEquals(1500L, histogram.getPercentileNanos(50));
+        Assert.assertEquals(3000L, histogram.getPercentileNanos(100));//clamped to max
+    }
+
+    @Test
+    public void testCumulativeCounts() {
+        for (int i = 0; i < 3; i++)
+            histogram.record(500000L);//500 micros,bucket[448,512)
+        for (int i = 0; i < 2; i++)
+            histogram.record(5000000L);//5000 micros,bucket[4096,5120)
+
+        long[] bounds = {100000L, 1024000L, 8192000L, Long.MAX_VALUE};
+        long[] counts = new long[bounds.length];
+        Assert.assertEquals(5, histogram.getCumulativeCounts(bounds, counts));
+        Assert.assertArrayEquals(new long[]{0, 3, 5, 5}, counts);
+
+        //a bucket straddling a bound is counted under next bound
+        long[] straddleCounts = new long[1];
+        histogram.getCumulativeCounts(new long[]{500000L}, straddleCounts);
+        Assert.assertEquals(0, straddleCounts[0]);
+    }
+
+    @Test
+    public void testReset() {
+        histogram.record(millis(10));
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getSumNanos());
+        Assert.assertEquals(0, histogram.getMinNanos());
+        Assert.assertEquals(0, histogram.getMaxNanos());
+        Assert.assertEquals(0, histogram.getPercentileNanos(50));
+
+        histogram.record(millis(2));
+        Assert.assertEquals(millis(2), histogram.getMinNanos());
+        Assert.assertEquals(millis(2), histogram.getPercentileNanos(50));
+    }
+
+    @Test
+    public void testToMillis() {
+        Assert.assertEquals(1.234D, LatencyHistogram.toMillis(1234567L), 0.0D);
+    }
+
+    //relative error of log-scaled buckets is below 12.5%
+    private static void assertNear(long expect, long actual) {
+        Assert.assertTrue("Expect:" + expect + ",actual:" + actual, Math.abs(actual - expect) <= expect * 0.125D);
+    }
+}